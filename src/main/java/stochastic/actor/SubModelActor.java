@@ -3,19 +3,18 @@ package stochastic.actor;
 import akka.actor.AbstractActor;
 import akka.actor.ActorRef;
 import akka.actor.Props;
-import ilog.concert.IloException;
-import ilog.cplex.IloCplex;
+import stochastic.lp.LPSolver;
+import stochastic.solver.SolverUtility;
 import stochastic.solver.SubSolverRunnable;
+import stochastic.utility.OptException;
 
 public class SubModelActor extends AbstractActor {
     private ActorRef bendersDataHolder;
-    private IloCplex cplex;
+    private LPSolver lpSolver;
 
-    private SubModelActor(ActorRef bendersDataHolder, boolean disableOutput) throws IloException {
+    private SubModelActor(ActorRef bendersDataHolder, boolean disableOutput) throws OptException {
         this.bendersDataHolder = bendersDataHolder;
-        cplex = new IloCplex();
-        if (disableOutput)
-            cplex.setOut(null);
+        lpSolver = SolverUtility.createSecondStageSolver(disableOutput);
     }
 
     static Props props(ActorRef bendersDataHolder, boolean disableOutput) {
@@ -41,13 +40,13 @@ public class SubModelActor extends AbstractActor {
 
     @Override
     public void postStop() {
-        cplex.end();
-        cplex = null;
+        lpSolver.end();
+        lpSolver = null;
     }
 
     private void handle(SolveModel solveModel) {
         SubSolverRunnable subSolverRunnable = solveModel.subSolverRunnable;
-        subSolverRunnable.setCplex(cplex);
+        subSolverRunnable.setLPSolver(lpSolver);
         subSolverRunnable.run();
         BendersDataHolder.UpdateCut updateCut = new BendersDataHolder.UpdateCut(
             subSolverRunnable.getCutNum(),
@@ -0,0 +1,289 @@
+package stochastic.lp;
+
+import ilog.concert.IloColumn;
+import ilog.concert.IloException;
+import ilog.concert.IloLPMatrix;
+import ilog.concert.IloNumVar;
+import ilog.concert.IloNumVarType;
+import ilog.concert.IloObjective;
+import ilog.cplex.IloCplex;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import stochastic.utility.OptException;
+
+/**
+ * LPSolver implementation backed by CPLEX.
+ * <p>
+ * All columns and rows of the model are kept in a single IloLPMatrix, so that their indices in the
+ * matrix are the indices used by the interface.
+ */
+public class CplexLPSolver implements LPSolver {
+    private final static Logger logger = LogManager.getLogger(CplexLPSolver.class);
+    private IloCplex cplex;
+    private IloLPMatrix matrix;
+    private IloObjective objective;
+
+    public CplexLPSolver(boolean disableOutput) throws OptException {
+        try {
+            cplex = new IloCplex();
+            if (disableOutput)
+                cplex.setOut(null);
+        } catch (IloException ie) {
+            logger.error(ie);
+            throw new OptException("error initializing CPLEX");
+        }
+    }
+
+    private void initModel() throws IloException {
+        if (matrix == null) {
+            objective = cplex.addMinimize();
+            matrix = cplex.addLPMatrix();
+        }
+    }
+
+    @Override
+    public int addColumns(int num, double lb, double ub, double[] objCoefs) throws OptException {
+        try {
+            initModel();
+            IloNumVar[] vars = cplex.numVarArray(num, lb, ub);
+            final int first = matrix.addCols(vars);
+            if (objCoefs != null)
+                cplex.setLinearCoefs(objective, objCoefs, vars);
+            return first;
+        } catch (IloException ie) {
+            logger.error(ie);
+            throw new OptException("CPLEX error adding columns");
+        }
+    }
+
+    @Override
+    public int addColumn(double lb, double ub, double objCoef, int[] rows, double[] values)
+            throws OptException {
+        try {
+            initModel();
+            IloColumn column = cplex.column(matrix, rows, values);
+            if (objCoef != 0.0)
+                column = column.and(cplex.column(objective, objCoef));
+            IloNumVar var = cplex.numVar(column, lb, ub);
+            return matrix.getIndex(var);
+        } catch (IloException ie) {
+            logger.error(ie);
+            throw new OptException("CPLEX error adding column");
+        }
+    }
+
+    @Override
+    public int addColumns(double lb, double ub, int[][] ind, double[][] val)
+            throws OptException {
+        try {
+            initModel();
+            return matrix.addCols(cplex.numVarArray(ind.length, lb, ub), ind, val);
+        } catch (IloException ie) {
+            logger.error(ie);
+            throw new OptException("CPLEX error adding columns");
+        }
+    }
+
+    @Override
+    public int addRows(double[] lbs, double[] ubs, int[][] ind, double[][] val)
+            throws OptException {
+        try {
+            initModel();
+            return matrix.addRows(lbs, ubs, ind, val);
+        } catch (IloException ie) {
+            logger.error(ie);
+            throw new OptException("CPLEX error adding rows");
+        }
+    }
+
+    @Override
+    public void setRowUB(int row, double ub) throws OptException {
+        try {
+            matrix.getRange(row).setUB(ub);
+        } catch (IloException ie) {
+            logger.error(ie);
+            throw new OptException("CPLEX error updating row bound");
+        }
+    }
+
+    @Override
+    public void removeColumns(int[] columns) throws OptException {
+        try {
+            // removing columns from the matrix keeps their variables in the model, so they are
+            // deleted as well.
+            IloNumVar[] vars = new IloNumVar[columns.length];
+            for (int i = 0; i < columns.length; ++i)
+                vars[i] = matrix.getNumVar(columns[i]);
+            matrix.removeCols(columns);
+            cplex.delete(vars);
+        } catch (IloException ie) {
+            logger.error(ie);
+            throw new OptException("CPLEX error removing columns");
+        }
+    }
+
+    @Override
+    public void setInteger(int[] columns) throws OptException {
+        try {
+            IloNumVar[] vars = new IloNumVar[columns.length];
+            for (int i = 0; i < columns.length; ++i)
+                vars[i] = matrix.getNumVar(columns[i]);
+            cplex.add(cplex.conversion(vars, IloNumVarType.Int));
+        } catch (IloException ie) {
+            logger.error(ie);
+            throw new OptException("CPLEX error converting columns to integers");
+        }
+    }
+
+    @Override
+    public void setMIPGap(double gap) throws OptException {
+        try {
+            cplex.setParam(IloCplex.Param.MIP.Tolerances.MIPGap, gap);
+        } catch (IloException ie) {
+            logger.error(ie);
+            throw new OptException("CPLEX error setting MIP gap");
+        }
+    }
+
+    @Override
+    public void setColumnName(int column, String name) throws OptException {
+        try {
+            matrix.getNumVar(column).setName(name);
+        } catch (IloException ie) {
+            logger.error(ie);
+            throw new OptException("CPLEX error setting column name");
+        }
+    }
+
+    @Override
+    public void setRowName(int row, String name) throws OptException {
+        try {
+            matrix.getRange(row).setName(name);
+        } catch (IloException ie) {
+            logger.error(ie);
+            throw new OptException("CPLEX error setting row name");
+        }
+    }
+
+    @Override
+    public Status solve(Algorithm algorithm) throws OptException {
+        try {
+            // Presolve is turned off when continuing from a previous basis, as it would discard
+            // the basis of the presolved model.
+            switch (algorithm) {
+                case PRIMAL:
+                    cplex.setParam(IloCplex.Param.RootAlgorithm, IloCplex.Algorithm.Primal);
+                    cplex.setParam(IloCplex.Param.Preprocessing.Presolve, false);
+                    break;
+                case DUAL:
+                    cplex.setParam(IloCplex.Param.RootAlgorithm, IloCplex.Algorithm.Dual);
+                    cplex.setParam(IloCplex.Param.Preprocessing.Presolve, false);
+                    break;
+                default:
+                    cplex.setParam(IloCplex.Param.RootAlgorithm, IloCplex.Algorithm.Auto);
+                    cplex.setParam(IloCplex.Param.Preprocessing.Presolve, true);
+                    break;
+            }
+
+            cplex.solve();
+            IloCplex.Status status = cplex.getStatus();
+            if (status == IloCplex.Status.Optimal)
+                return Status.OPTIMAL;
+            if (status == IloCplex.Status.Infeasible)
+                return Status.INFEASIBLE;
+            if (status == IloCplex.Status.Unbounded)
+                return Status.UNBOUNDED;
+
+            logger.error("CPLEX status: " + status);
+            return Status.NOT_SOLVED;
+        } catch (IloException ie) {
+            logger.error(ie);
+            throw new OptException("CPLEX error solving model");
+        }
+    }
+
+    @Override
+    public double getObjValue() throws OptException {
+        try {
+            return cplex.getObjValue();
+        } catch (IloException ie) {
+            logger.error(ie);
+            throw new OptException("CPLEX error reading objective value");
+        }
+    }
+
+    @Override
+    public double[] getValues(int first, int num) throws OptException {
+        try {
+            return cplex.getValues(matrix, first, num);
+        } catch (IloException ie) {
+            logger.error(ie);
+            throw new OptException("CPLEX error reading solution values");
+        }
+    }
+
+    @Override
+    public double[] getDuals(int first, int num) throws OptException {
+        try {
+            return cplex.getDuals(matrix, first, num);
+        } catch (IloException ie) {
+            logger.error(ie);
+            throw new OptException("CPLEX error reading duals");
+        }
+    }
+
+    @Override
+    public int getNumRows() {
+        return cplex.getNrows();
+    }
+
+    @Override
+    public int getNumColumns() {
+        return cplex.getNcols();
+    }
+
+    @Override
+    public int getNumNonZeros() {
+        return cplex.getNNZs();
+    }
+
+    @Override
+    public void exportModel(String fileName) throws OptException {
+        try {
+            cplex.exportModel(fileName);
+        } catch (IloException ie) {
+            logger.error(ie);
+            throw new OptException("CPLEX error exporting model");
+        }
+    }
+
+    @Override
+    public void writeSolution(String fileName) throws OptException {
+        try {
+            cplex.writeSolution(fileName);
+        } catch (IloException ie) {
+            logger.error(ie);
+            throw new OptException("CPLEX error writing solution");
+        }
+    }
+
+    @Override
+    public void clearModel() throws OptException {
+        try {
+            matrix = null;
+            objective = null;
+            cplex.clearModel();
+        } catch (IloException ie) {
+            logger.error(ie);
+            throw new OptException("CPLEX error clearing model");
+        }
+    }
+
+    @Override
+    public void end() {
+        matrix = null;
+        objective = null;
+        cplex.end();
+        cplex = null;
+    }
+}
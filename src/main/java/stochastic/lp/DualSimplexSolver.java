@@ -0,0 +1,1055 @@
+package stochastic.lp;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import stochastic.utility.OptException;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Pure Java LPSolver implementation using the bounded dual simplex method.
+ * <p>
+ * Every row i gets a logical variable w_i = a_i x bounded by the row bounds, so the model becomes
+ * A x - w = 0 with bounds on all variables. The basis inverse is kept in product form: a list of
+ * eta vectors on top of the all-logical basis -I. It is rebuilt from scratch (reinversion) at the
+ * start of every solve and after every REINVERSION_INTERVAL pivots. Nonbasic variables sit at one
+ * of their bounds.
+ * <p>
+ * The dual simplex method needs a dual feasible starting basis. The all-logical basis is one if
+ * all costs are nonnegative. When re-solving, the previous basis stays dual feasible after changes
+ * of row bounds. New columns with a negative reduced cost are moved to their upper bound. So, the
+ * solver covers models like the second-stage problem (nonnegative costs, bounded new columns), but
+ * not models that need a primal phase or integer columns. Costs are perturbed slightly while
+ * iterating to avoid stalling on the many zero-cost path columns, and costs of entering variables
+ * are shifted when the ratio test tolerates a slightly wrong reduced cost. Perturbations and
+ * shifts are removed and dual feasibility is checked again for the original costs before a
+ * solution is reported as optimal, so its reduced costs are wrong by at most OPTIMALITY_TOL times
+ * the largest cost.
+ */
+public class DualSimplexSolver implements LPSolver {
+    private final static Logger logger = LogManager.getLogger(DualSimplexSolver.class);
+    private static final double PRIMAL_TOL = 1e-7;
+    private static final double DUAL_TOL = 1e-7;
+    private static final double OPTIMALITY_TOL = 1e-6; // relative to the largest cost.
+    private static final double PIVOT_TOL = 1e-7;
+    private static final double DROP_TOL = 1e-12;
+    private static final double PERTURBATION = 1e-5;
+    private static final int REINVERSION_INTERVAL = 100;
+
+    private static final int BASIC = 0;
+    private static final int AT_LOWER = 1;
+    private static final int AT_UPPER = 2;
+    private static final int AT_ZERO = 3; // nonbasic free variable.
+
+    // Columns (structural variables), stored column-wise.
+    private int numColumns;
+    private double[] colLbs;
+    private double[] colUbs;
+    private double[] costs;
+    private int[][] colRows;
+    private double[][] colValues;
+    private int[] colStatus;
+    private String[] colNames;
+    private int numNonZeros;
+
+    // Rows with the bounds of their logical variables.
+    private int numRows;
+    private double[] rowLbs;
+    private double[] rowUbs;
+    private int[] rowStatus;
+    private String[] rowNames;
+
+    // Basis: head[p] is the variable at position p, column j is encoded as j, logical of row i as
+    // ~i. Etas are stored without their pivot entry.
+    private boolean basisValid;
+    private int[] head;
+    private int numEtas;
+    private int numFactorEtas; // etas built by the last reinversion, the rest are updates.
+    private int[] etaPivots;
+    private double[] etaPivotValues;
+    private int[][] etaIndices;
+    private double[][] etaValues;
+
+    // Iteration data
+    private double[] workCosts; // costs including perturbations and shifts.
+    private double[] workRowCosts; // perturbations and shifts of logicals, whose true cost is 0.
+    private boolean costsChanged; // true if work costs include perturbations or shifts.
+    private double optimalityTol; // OPTIMALITY_TOL scaled by the largest cost.
+    private double[] xB; // values of basic variables by position.
+    private double[] colReducedCosts;
+    private double[] rowReducedCosts; // reduced costs of logicals, i.e. the row duals.
+    private final Random random;
+
+    // Solution
+    private Status status;
+    private double objValue;
+    private double[] colSolution;
+    private double[] duals;
+
+    public DualSimplexSolver() {
+        random = new Random(0);
+        initModel();
+    }
+
+    private void initModel() {
+        numColumns = 0;
+        colLbs = new double[16];
+        colUbs = new double[16];
+        costs = new double[16];
+        colRows = new int[16][];
+        colValues = new double[16][];
+        colStatus = new int[16];
+        colNames = null;
+        numNonZeros = 0;
+
+        numRows = 0;
+        rowLbs = new double[16];
+        rowUbs = new double[16];
+        rowStatus = new int[16];
+        rowNames = null;
+
+        basisValid = false;
+        head = new int[0];
+        numEtas = 0;
+        etaPivots = new int[16];
+        etaPivotValues = new double[16];
+        etaIndices = new int[16][];
+        etaValues = new double[16][];
+
+        status = Status.NOT_SOLVED;
+    }
+
+    private void ensureColumnCapacity(int capacity) {
+        if (capacity <= colLbs.length)
+            return;
+
+        capacity = Math.max(capacity, 2 * colLbs.length);
+        colLbs = Arrays.copyOf(colLbs, capacity);
+        colUbs = Arrays.copyOf(colUbs, capacity);
+        costs = Arrays.copyOf(costs, capacity);
+        colRows = Arrays.copyOf(colRows, capacity);
+        colValues = Arrays.copyOf(colValues, capacity);
+        colStatus = Arrays.copyOf(colStatus, capacity);
+        if (colNames != null)
+            colNames = Arrays.copyOf(colNames, capacity);
+    }
+
+    private void ensureRowCapacity(int capacity) {
+        if (capacity <= rowLbs.length)
+            return;
+
+        capacity = Math.max(capacity, 2 * rowLbs.length);
+        rowLbs = Arrays.copyOf(rowLbs, capacity);
+        rowUbs = Arrays.copyOf(rowUbs, capacity);
+        rowStatus = Arrays.copyOf(rowStatus, capacity);
+        if (rowNames != null)
+            rowNames = Arrays.copyOf(rowNames, capacity);
+    }
+
+    private static int nonbasicStatus(double lb, double ub) {
+        if (lb > -Double.MAX_VALUE)
+            return AT_LOWER;
+        return ub < Double.MAX_VALUE ? AT_UPPER : AT_ZERO;
+    }
+
+    @Override
+    public int addColumns(int num, double lb, double ub, double[] objCoefs) {
+        ensureColumnCapacity(numColumns + num);
+        final int first = numColumns;
+        for (int j = first; j < first + num; ++j) {
+            colLbs[j] = lb;
+            colUbs[j] = ub;
+            costs[j] = objCoefs != null ? objCoefs[j - first] : 0.0;
+            colRows[j] = new int[0];
+            colValues[j] = new double[0];
+            colStatus[j] = nonbasicStatus(lb, ub);
+        }
+        numColumns += num;
+        return first;
+    }
+
+    @Override
+    public int addColumn(double lb, double ub, double objCoef, int[] rows, double[] values) {
+        final int j = addColumns(1, lb, ub, new double[]{objCoef});
+        colRows[j] = rows.clone();
+        colValues[j] = values.clone();
+        numNonZeros += rows.length;
+        return j;
+    }
+
+    @Override
+    public int addColumns(double lb, double ub, int[][] ind, double[][] val) {
+        final int first = addColumns(ind.length, lb, ub, null);
+        for (int k = 0; k < ind.length; ++k) {
+            colRows[first + k] = ind[k].clone();
+            colValues[first + k] = val[k].clone();
+            numNonZeros += ind[k].length;
+        }
+        return first;
+    }
+
+    @Override
+    public int addRows(double[] lbs, double[] ubs, int[][] ind, double[][] val) {
+        final int num = lbs.length;
+        ensureRowCapacity(numRows + num);
+        final int first = numRows;
+
+        // append the coefficients to the columns, growing each column once.
+        int[] numAdded = new int[numColumns];
+        for (int[] rowInd : ind)
+            for (int j : rowInd)
+                ++numAdded[j];
+
+        int[] sizes = new int[numColumns];
+        for (int j = 0; j < numColumns; ++j) {
+            sizes[j] = colRows[j].length;
+            if (numAdded[j] > 0) {
+                colRows[j] = Arrays.copyOf(colRows[j], sizes[j] + numAdded[j]);
+                colValues[j] = Arrays.copyOf(colValues[j], sizes[j] + numAdded[j]);
+            }
+        }
+
+        for (int i = 0; i < num; ++i) {
+            final int row = first + i;
+            rowLbs[row] = lbs[i];
+            rowUbs[row] = ubs[i];
+            rowStatus[row] = BASIC;
+            for (int k = 0; k < ind[i].length; ++k) {
+                final int j = ind[i][k];
+                colRows[j][sizes[j]] = row;
+                colValues[j][sizes[j]++] = val[i][k];
+            }
+            numNonZeros += ind[i].length;
+        }
+        numRows += num;
+
+        // the logicals of the new rows are basic in their own positions.
+        if (basisValid) {
+            head = Arrays.copyOf(head, numRows);
+            for (int row = first; row < numRows; ++row)
+                head[row] = ~row;
+        }
+        return first;
+    }
+
+    @Override
+    public void setRowUB(int row, double ub) {
+        rowUbs[row] = ub;
+        if (rowStatus[row] == AT_LOWER && rowLbs[row] > ub)
+            rowStatus[row] = AT_UPPER;
+    }
+
+    @Override
+    public void removeColumns(int[] columns) {
+        boolean[] removed = new boolean[numColumns];
+        boolean basicRemoved = false;
+        for (int j : columns) {
+            removed[j] = true;
+            if (colStatus[j] == BASIC)
+                basicRemoved = true;
+        }
+
+        // remaining columns move down, newIndices maps old to new indices.
+        int[] newIndices = new int[numColumns];
+        int numKept = 0;
+        for (int j = 0; j < numColumns; ++j) {
+            if (removed[j]) {
+                newIndices[j] = -1;
+                numNonZeros -= colRows[j].length;
+                continue;
+            }
+            newIndices[j] = numKept;
+            colLbs[numKept] = colLbs[j];
+            colUbs[numKept] = colUbs[j];
+            costs[numKept] = costs[j];
+            colRows[numKept] = colRows[j];
+            colValues[numKept] = colValues[j];
+            colStatus[numKept] = colStatus[j];
+            if (colNames != null)
+                colNames[numKept] = colNames[j];
+            ++numKept;
+        }
+        for (int j = numKept; j < numColumns; ++j) {
+            colRows[j] = null;
+            colValues[j] = null;
+        }
+        numColumns = numKept;
+
+        if (!basisValid)
+            return;
+
+        // Removing nonbasic columns leaves the basis matrix unchanged. Without a basic column,
+        // the rest of the basis may not be dual feasible, so the solver restarts from the
+        // all-logical basis.
+        if (basicRemoved) {
+            basisValid = false;
+            for (int j = 0; j < numColumns; ++j)
+                if (colStatus[j] == BASIC)
+                    colStatus[j] = nonbasicStatus(colLbs[j], colUbs[j]);
+        } else {
+            for (int p = 0; p < numRows; ++p)
+                if (head[p] >= 0)
+                    head[p] = newIndices[head[p]];
+        }
+    }
+
+    @Override
+    public void setInteger(int[] columns) throws OptException {
+        throw new OptException("the dual simplex solver does not support integer columns");
+    }
+
+    @Override
+    public void setMIPGap(double gap) {
+        // only used for integer columns, which are not supported.
+    }
+
+    @Override
+    public void setColumnName(int column, String name) {
+        if (colNames == null)
+            colNames = new String[colLbs.length];
+        colNames[column] = name;
+    }
+
+    @Override
+    public void setRowName(int row, String name) {
+        if (rowNames == null)
+            rowNames = new String[rowLbs.length];
+        rowNames[row] = name;
+    }
+
+    @Override
+    public Status solve(Algorithm algorithm) {
+        // Both hints are served by the dual simplex: after new columns, the basis is made dual
+        // feasible again by moving columns to their upper bounds.
+        if (!basisValid) {
+            head = new int[numRows];
+            for (int i = 0; i < numRows; ++i) {
+                head[i] = ~i;
+                rowStatus[i] = BASIC;
+            }
+            basisValid = true;
+        }
+
+        xB = new double[numRows];
+        colReducedCosts = new double[numColumns];
+        rowReducedCosts = new double[numRows];
+        double maxCost = 1.0;
+        for (int j = 0; j < numColumns; ++j)
+            maxCost = Math.max(maxCost, Math.abs(costs[j]));
+        optimalityTol = OPTIMALITY_TOL * maxCost;
+
+        reinvert();
+        perturbCosts();
+        computeReducedCosts();
+        if (!makeDualFeasible()) {
+            logger.error("no dual feasible starting basis");
+            status = Status.NOT_SOLVED;
+            return status;
+        }
+        computePrimalValues();
+
+        status = iterate();
+        if (status == Status.OPTIMAL)
+            storeSolution();
+        return status;
+    }
+
+    private Status iterate() {
+        final int maxIterations = 20 * (numRows + numColumns) + 10000;
+        double[] rho = new double[numRows];
+        double[] column = new double[numRows];
+        double[] colAlphas = new double[numColumns];
+        double[] rowAlphas = new double[numRows];
+
+        // starting basis, which is dual feasible for the perturbed costs.
+        final int[] startHead = head.clone();
+        final int[] startColStatus = colStatus.clone();
+        final int[] startRowStatus = rowStatus.clone();
+
+        for (int iteration = 0; iteration < maxIterations; ++iteration) {
+            final int p = chooseLeavingPosition();
+            if (p < 0) {
+                if (!costsChanged)
+                    return Status.OPTIMAL;
+
+                // remove perturbations and shifts, fix dual infeasibilities by bound flips and
+                // continue if that made the basis primal infeasible.
+                restoreCosts();
+                computeReducedCosts();
+                if (!restoreDualFeasibility(startHead, startColStatus, startRowStatus))
+                    return Status.NOT_SOLVED;
+                computePrimalValues();
+                continue;
+            }
+
+            // row p of the basis inverse and the pivot row.
+            Arrays.fill(rho, 0.0);
+            rho[p] = 1.0;
+            btran(rho);
+            for (int j = 0; j < numColumns; ++j) {
+                if (colStatus[j] == BASIC)
+                    continue;
+                double alpha = 0.0;
+                final int[] rows = colRows[j];
+                final double[] values = colValues[j];
+                for (int k = 0; k < rows.length; ++k)
+                    alpha += rho[rows[k]] * values[k];
+                colAlphas[j] = alpha;
+            }
+            for (int i = 0; i < numRows; ++i)
+                rowAlphas[i] = rowStatus[i] == BASIC ? 0.0 : -rho[i];
+
+            final int leaving = head[p];
+            final boolean toLower = xB[p] < getLb(leaving);
+            final int entering = chooseEnteringVariable(colAlphas, rowAlphas, toLower);
+            if (entering == Integer.MIN_VALUE)
+                return Status.INFEASIBLE;
+
+            // entering column in terms of the current basis.
+            Arrays.fill(column, 0.0);
+            loadColumn(entering, column);
+            ftran(column);
+            final double alphaQ = column[p];
+            final double rowAlphaQ = entering >= 0 ? colAlphas[entering] : rowAlphas[~entering];
+            if (Math.abs(alphaQ - rowAlphaQ) > 1e-6 * (1 + Math.abs(alphaQ))) {
+                // numerical trouble, rebuild the basis inverse and retry.
+                reinvert();
+                computeReducedCosts();
+                shiftToDualFeasible();
+                computePrimalValues();
+                continue;
+            }
+
+            // primal step
+            final double bound = toLower ? getLb(leaving) : getUb(leaving);
+            final double thetaP = (xB[p] - bound) / alphaQ;
+            for (int i = 0; i < numRows; ++i)
+                if (column[i] != 0.0)
+                    xB[i] -= thetaP * column[i];
+            final double enteringValue = getNonbasicValue(entering) + thetaP;
+
+            // dual step
+            // The leaving variable gets the reduced cost -thetaD, which must be >= 0 at its lower
+            // and <= 0 at its upper bound. The ratio test may pick a variable whose reduced cost
+            // has the wrong sign within the tolerance, giving thetaD the wrong sign. Its cost is
+            // then shifted to make the reduced cost zero, so that the step does not move away
+            // from dual feasibility.
+            double thetaD = getReducedCost(entering) / alphaQ;
+            if (toLower ? thetaD > 0 : thetaD < 0) {
+                shiftCost(entering);
+                thetaD = 0.0;
+            }
+            for (int j = 0; j < numColumns; ++j)
+                if (colStatus[j] != BASIC)
+                    colReducedCosts[j] -= thetaD * colAlphas[j];
+            for (int i = 0; i < numRows; ++i)
+                if (rowStatus[i] != BASIC)
+                    rowReducedCosts[i] -= thetaD * rowAlphas[i];
+            setReducedCost(leaving, -thetaD);
+            setReducedCost(entering, 0.0);
+
+            // basis change
+            final boolean fixed = getLb(leaving) == getUb(leaving);
+            setStatus(leaving, fixed || toLower ? AT_LOWER : AT_UPPER);
+            setStatus(entering, BASIC);
+            head[p] = entering;
+            xB[p] = enteringValue;
+            addEta(p, column);
+
+            if (numEtas - numFactorEtas >= REINVERSION_INTERVAL) {
+                reinvert();
+                computeReducedCosts();
+                shiftToDualFeasible();
+                computePrimalValues();
+            }
+        }
+
+        logger.error("dual simplex iteration limit reached");
+        return Status.NOT_SOLVED;
+    }
+
+    /**
+     * @return position of the basic variable with the largest bound violation, -1 if the basis is
+     * primal feasible.
+     */
+    private int chooseLeavingPosition() {
+        int best = -1;
+        double bestViolation = 0.0;
+        for (int p = 0; p < numRows; ++p) {
+            final int var = head[p];
+            final double lb = getLb(var);
+            final double ub = getUb(var);
+            double violation = 0.0;
+            if (xB[p] < lb - PRIMAL_TOL * Math.max(1.0, Math.abs(lb)))
+                violation = lb - xB[p];
+            else if (xB[p] > ub + PRIMAL_TOL * Math.max(1.0, Math.abs(ub)))
+                violation = xB[p] - ub;
+
+            if (violation > bestViolation) {
+                bestViolation = violation;
+                best = p;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Harris ratio test: finds the largest step keeping all reduced costs feasible within the
+     * tolerance, then picks the candidate with the largest pivot element within that step.
+     *
+     * @return entering variable, Integer.MIN_VALUE if there is none (the LP is infeasible).
+     */
+    private int chooseEnteringVariable(double[] colAlphas, double[] rowAlphas, boolean toLower) {
+        double maxStep = Double.MAX_VALUE;
+        for (int pass = 0; pass < 2; ++pass) {
+            int entering = Integer.MIN_VALUE;
+            double bestAlpha = 0.0;
+            for (int v = -numRows; v < numColumns; ++v) {
+                final int var = v < 0 ? ~(v + numRows) : v;
+                final int varStatus = getStatus(var);
+                if (varStatus == BASIC || getLb(var) == getUb(var))
+                    continue;
+
+                double alpha = var >= 0 ? colAlphas[var] : rowAlphas[~var];
+                if (toLower)
+                    alpha = -alpha;
+
+                // alpha is now the rate at which the reduced cost moves towards infeasibility.
+                final double d = getReducedCost(var);
+                double slack;
+                if (varStatus == AT_LOWER && alpha > PIVOT_TOL)
+                    slack = d;
+                else if (varStatus == AT_UPPER && alpha < -PIVOT_TOL)
+                    slack = -d;
+                else if (varStatus == AT_ZERO && Math.abs(alpha) > PIVOT_TOL)
+                    slack = Math.abs(d);
+                else
+                    continue;
+
+                final double absAlpha = Math.abs(alpha);
+                if (pass == 0) {
+                    maxStep = Math.min(maxStep, (Math.max(slack, 0.0) + DUAL_TOL) / absAlpha);
+                } else if (Math.max(slack, 0.0) / absAlpha <= maxStep && absAlpha > bestAlpha) {
+                    bestAlpha = absAlpha;
+                    entering = var;
+                }
+            }
+            if (pass == 0 && maxStep == Double.MAX_VALUE)
+                return Integer.MIN_VALUE;
+            if (pass == 1)
+                return entering;
+        }
+        return Integer.MIN_VALUE;
+    }
+
+    /**
+     * Moves nonbasic variables with a reduced cost of the wrong sign to their other bound.
+     * Variables that cannot be moved as their other bound is infinite are left as they are if
+     * their reduced cost is wrong by at most the optimality tolerance, i.e. by rounding errors.
+     *
+     * @return false if some variable cannot be moved and its reduced cost is wrong by more.
+     */
+    private boolean makeDualFeasible() {
+        boolean feasible = true;
+        for (int v = -numRows; v < numColumns; ++v) {
+            final int var = v < 0 ? ~(v + numRows) : v;
+            final int varStatus = getStatus(var);
+            if (varStatus == BASIC || getLb(var) == getUb(var))
+                continue;
+
+            final double d = getReducedCost(var);
+            if (varStatus == AT_LOWER && d < -DUAL_TOL) {
+                if (getUb(var) < Double.MAX_VALUE)
+                    setStatus(var, AT_UPPER);
+                else if (d < -optimalityTol)
+                    feasible = false;
+            } else if (varStatus == AT_UPPER && d > DUAL_TOL) {
+                if (getLb(var) > -Double.MAX_VALUE)
+                    setStatus(var, AT_LOWER);
+                else if (d > optimalityTol)
+                    feasible = false;
+            } else if (varStatus == AT_ZERO && Math.abs(d) > optimalityTol) {
+                feasible = false;
+            }
+        }
+        return feasible;
+    }
+
+    /**
+     * Makes the basis dual feasible while iterating, after reduced costs were recomputed by a
+     * reinversion. Rounding errors or dependent columns made nonbasic can leave reduced costs of
+     * the wrong sign. Variables whose reduced cost is wrong by more than the optimality tolerance
+     * are moved to their other bound if it is finite. The costs of the others are shifted, which
+     * keeps the primal values and is undone before the solution is reported.
+     */
+    private void shiftToDualFeasible() {
+        for (int v = -numRows; v < numColumns; ++v) {
+            final int var = v < 0 ? ~(v + numRows) : v;
+            final int varStatus = getStatus(var);
+            if (varStatus == BASIC || getLb(var) == getUb(var))
+                continue;
+
+            final double d = getReducedCost(var);
+            if (varStatus == AT_LOWER && d < -DUAL_TOL) {
+                if (d < -optimalityTol && getUb(var) < Double.MAX_VALUE)
+                    setStatus(var, AT_UPPER);
+                else
+                    shiftCost(var);
+            } else if (varStatus == AT_UPPER && d > DUAL_TOL) {
+                if (d > optimalityTol && getLb(var) > -Double.MAX_VALUE)
+                    setStatus(var, AT_LOWER);
+                else
+                    shiftCost(var);
+            } else if (varStatus == AT_ZERO && Math.abs(d) > DUAL_TOL) {
+                shiftCost(var);
+            }
+        }
+    }
+
+    /**
+     * Shifts the cost of a nonbasic variable so that its reduced cost becomes zero.
+     */
+    private void shiftCost(int var) {
+        if (var >= 0)
+            workCosts[var] -= colReducedCosts[var];
+        else
+            workRowCosts[~var] -= rowReducedCosts[~var];
+        setReducedCost(var, 0.0);
+        costsChanged = true;
+    }
+
+    /**
+     * Makes the basis dual feasible for the original costs after perturbations and shifts were
+     * removed. Bound flips are tried first. If a variable has no bound to flip to, the solver
+     * restarts from the given starting basis with the original costs.
+     *
+     * @return false if not even the starting basis is dual feasible for the original costs.
+     */
+    private boolean restoreDualFeasibility(int[] startHead, int[] startColStatus,
+                                           int[] startRowStatus) {
+        if (makeDualFeasible())
+            return true;
+
+        logger.warn("dual infeasible basis, restarting without cost perturbation");
+        restoreCosts();
+        System.arraycopy(startHead, 0, head, 0, numRows);
+        System.arraycopy(startColStatus, 0, colStatus, 0, numColumns);
+        System.arraycopy(startRowStatus, 0, rowStatus, 0, numRows);
+        reinvert();
+        computeReducedCosts();
+        if (makeDualFeasible())
+            return true;
+
+        logger.error("no dual feasible starting basis without perturbation");
+        return false;
+    }
+
+    /**
+     * Removes perturbations and shifts from the work costs.
+     */
+    private void restoreCosts() {
+        System.arraycopy(costs, 0, workCosts, 0, numColumns);
+        Arrays.fill(workRowCosts, 0.0);
+        costsChanged = false;
+    }
+
+    private void perturbCosts() {
+        workCosts = Arrays.copyOf(costs, numColumns);
+        for (int j = 0; j < numColumns; ++j) {
+            final double delta = PERTURBATION * (1 + Math.abs(costs[j])) * (1 + random.nextDouble());
+            if (colStatus[j] == AT_LOWER)
+                workCosts[j] += delta;
+            else if (colStatus[j] == AT_UPPER)
+                workCosts[j] -= delta;
+        }
+        workRowCosts = new double[numRows];
+        costsChanged = true;
+    }
+
+    /**
+     * Rebuilds the eta file for the current basic variables, starting from the all-logical basis.
+     * Columns that turn out to be linearly dependent are made nonbasic and the logicals they would
+     * have replaced stay basic.
+     */
+    private void reinvert() {
+        numEtas = 0;
+        ArrayList<Integer> basicColumns = new ArrayList<>();
+        for (int p = 0; p < numRows; ++p)
+            if (head[p] >= 0)
+                basicColumns.add(head[p]);
+        basicColumns.sort((a, b) -> Integer.compare(colRows[a].length, colRows[b].length));
+
+        boolean[] replaceable = new boolean[numRows];
+        for (int i = 0; i < numRows; ++i) {
+            head[i] = ~i;
+            replaceable[i] = rowStatus[i] != BASIC;
+        }
+
+        double[] column = new double[numRows];
+        for (int j : basicColumns) {
+            Arrays.fill(column, 0.0);
+            loadColumn(j, column);
+            ftran(column);
+
+            int pivot = -1;
+            for (int i = 0; i < numRows; ++i)
+                if (replaceable[i] && Math.abs(column[i]) > PIVOT_TOL
+                        && (pivot < 0 || Math.abs(column[i]) > Math.abs(column[pivot])))
+                    pivot = i;
+
+            if (pivot < 0) {
+                colStatus[j] = nonbasicStatus(colLbs[j], colUbs[j]);
+                continue;
+            }
+
+            addEta(pivot, column);
+            head[pivot] = j;
+            replaceable[pivot] = false;
+        }
+
+        for (int i = 0; i < numRows; ++i)
+            if (replaceable[i])
+                rowStatus[i] = BASIC;
+        numFactorEtas = numEtas;
+    }
+
+    private void addEta(int pivot, double[] column) {
+        if (numEtas == etaPivots.length) {
+            final int capacity = 2 * numEtas;
+            etaPivots = Arrays.copyOf(etaPivots, capacity);
+            etaPivotValues = Arrays.copyOf(etaPivotValues, capacity);
+            etaIndices = Arrays.copyOf(etaIndices, capacity);
+            etaValues = Arrays.copyOf(etaValues, capacity);
+        }
+
+        int size = 0;
+        for (int i = 0; i < numRows; ++i)
+            if (i != pivot && Math.abs(column[i]) > DROP_TOL)
+                ++size;
+
+        int[] indices = new int[size];
+        double[] values = new double[size];
+        size = 0;
+        for (int i = 0; i < numRows; ++i) {
+            if (i != pivot && Math.abs(column[i]) > DROP_TOL) {
+                indices[size] = i;
+                values[size++] = column[i];
+            }
+        }
+
+        etaPivots[numEtas] = pivot;
+        etaPivotValues[numEtas] = column[pivot];
+        etaIndices[numEtas] = indices;
+        etaValues[numEtas] = values;
+        ++numEtas;
+    }
+
+    /**
+     * Replaces the given column by B^-1 times the column.
+     */
+    private void ftran(double[] column) {
+        for (int i = 0; i < numRows; ++i)
+            column[i] = -column[i];
+
+        for (int k = 0; k < numEtas; ++k) {
+            final int pivot = etaPivots[k];
+            if (column[pivot] == 0.0)
+                continue;
+
+            final double t = column[pivot] / etaPivotValues[k];
+            column[pivot] = t;
+            final int[] indices = etaIndices[k];
+            final double[] values = etaValues[k];
+            for (int e = 0; e < indices.length; ++e)
+                column[indices[e]] -= values[e] * t;
+        }
+    }
+
+    /**
+     * Replaces the given row vector (indexed by basis positions) by the row times B^-1.
+     */
+    private void btran(double[] row) {
+        for (int k = numEtas - 1; k >= 0; --k) {
+            final int pivot = etaPivots[k];
+            double s = row[pivot];
+            final int[] indices = etaIndices[k];
+            final double[] values = etaValues[k];
+            for (int e = 0; e < indices.length; ++e)
+                s -= row[indices[e]] * values[e];
+            row[pivot] = s / etaPivotValues[k];
+        }
+
+        for (int i = 0; i < numRows; ++i)
+            row[i] = -row[i];
+    }
+
+    private void loadColumn(int var, double[] column) {
+        if (var < 0) {
+            column[~var] = -1.0;
+            return;
+        }
+
+        final int[] rows = colRows[var];
+        final double[] values = colValues[var];
+        for (int k = 0; k < rows.length; ++k)
+            column[rows[k]] = values[k];
+    }
+
+    private void computePrimalValues() {
+        // x_B = -B^-1 N x_N
+        double[] rhs = new double[numRows];
+        for (int j = 0; j < numColumns; ++j) {
+            if (colStatus[j] == BASIC)
+                continue;
+            final double value = getNonbasicValue(j);
+            if (value == 0.0)
+                continue;
+            final int[] rows = colRows[j];
+            final double[] values = colValues[j];
+            for (int k = 0; k < rows.length; ++k)
+                rhs[rows[k]] += values[k] * value;
+        }
+        for (int i = 0; i < numRows; ++i)
+            if (rowStatus[i] != BASIC)
+                rhs[i] -= getNonbasicValue(~i);
+
+        ftran(rhs);
+        for (int p = 0; p < numRows; ++p)
+            xB[p] = -rhs[p];
+    }
+
+    private void computeReducedCosts() {
+        double[] pi = new double[numRows];
+        for (int p = 0; p < numRows; ++p)
+            pi[p] = head[p] >= 0 ? workCosts[head[p]] : workRowCosts[~head[p]];
+        btran(pi);
+
+        for (int j = 0; j < numColumns; ++j) {
+            if (colStatus[j] == BASIC) {
+                colReducedCosts[j] = 0.0;
+                continue;
+            }
+            double d = workCosts[j];
+            final int[] rows = colRows[j];
+            final double[] values = colValues[j];
+            for (int k = 0; k < rows.length; ++k)
+                d -= pi[rows[k]] * values[k];
+            colReducedCosts[j] = d;
+        }
+        for (int i = 0; i < numRows; ++i)
+            rowReducedCosts[i] = rowStatus[i] == BASIC ? 0.0 : workRowCosts[i] + pi[i];
+    }
+
+    private void storeSolution() {
+        colSolution = new double[numColumns];
+        for (int j = 0; j < numColumns; ++j)
+            if (colStatus[j] != BASIC)
+                colSolution[j] = getNonbasicValue(j);
+        for (int p = 0; p < numRows; ++p)
+            if (head[p] >= 0)
+                colSolution[head[p]] = xB[p];
+
+        objValue = 0.0;
+        for (int j = 0; j < numColumns; ++j)
+            objValue += costs[j] * colSolution[j];
+
+        // the duals are the reduced costs of the logicals, i.e. c_B B^-1 for the true costs.
+        double[] pi = new double[numRows];
+        for (int p = 0; p < numRows; ++p)
+            pi[p] = head[p] >= 0 ? costs[head[p]] : 0.0;
+        btran(pi);
+        duals = pi;
+    }
+
+    private double getLb(int var) {
+        return var >= 0 ? colLbs[var] : rowLbs[~var];
+    }
+
+    private double getUb(int var) {
+        return var >= 0 ? colUbs[var] : rowUbs[~var];
+    }
+
+    private int getStatus(int var) {
+        return var >= 0 ? colStatus[var] : rowStatus[~var];
+    }
+
+    private void setStatus(int var, int varStatus) {
+        if (var >= 0)
+            colStatus[var] = varStatus;
+        else
+            rowStatus[~var] = varStatus;
+    }
+
+    private double getReducedCost(int var) {
+        return var >= 0 ? colReducedCosts[var] : rowReducedCosts[~var];
+    }
+
+    private void setReducedCost(int var, double d) {
+        if (var >= 0)
+            colReducedCosts[var] = d;
+        else
+            rowReducedCosts[~var] = d;
+    }
+
+    private double getNonbasicValue(int var) {
+        switch (getStatus(var)) {
+            case AT_LOWER:
+                return getLb(var);
+            case AT_UPPER:
+                return getUb(var);
+            default:
+                return 0.0;
+        }
+    }
+
+    @Override
+    public double getObjValue() throws OptException {
+        checkSolution();
+        return objValue;
+    }
+
+    @Override
+    public double[] getValues(int first, int num) throws OptException {
+        checkSolution();
+        return Arrays.copyOfRange(colSolution, first, first + num);
+    }
+
+    @Override
+    public double[] getDuals(int first, int num) throws OptException {
+        checkSolution();
+        return Arrays.copyOfRange(duals, first, first + num);
+    }
+
+    private void checkSolution() throws OptException {
+        if (status != Status.OPTIMAL)
+            throw new OptException("no optimal solution available");
+    }
+
+    @Override
+    public int getNumRows() {
+        return numRows;
+    }
+
+    @Override
+    public int getNumColumns() {
+        return numColumns;
+    }
+
+    @Override
+    public int getNumNonZeros() {
+        return numNonZeros;
+    }
+
+    private String getColumnName(int j) {
+        return colNames != null && colNames[j] != null ? colNames[j] : "x" + (j + 1);
+    }
+
+    private String getRowName(int i) {
+        return rowNames != null && rowNames[i] != null ? rowNames[i] : "c" + (i + 1);
+    }
+
+    /**
+     * Writes the model in CPLEX LP format. Ranged rows are written as two rows.
+     */
+    @Override
+    public void exportModel(String fileName) throws OptException {
+        // collect rows from the column-wise storage.
+        ArrayList<ArrayList<Integer>> rowColumns = new ArrayList<>();
+        ArrayList<ArrayList<Double>> rowValues = new ArrayList<>();
+        for (int i = 0; i < numRows; ++i) {
+            rowColumns.add(new ArrayList<>());
+            rowValues.add(new ArrayList<>());
+        }
+        for (int j = 0; j < numColumns; ++j) {
+            for (int k = 0; k < colRows[j].length; ++k) {
+                rowColumns.get(colRows[j][k]).add(j);
+                rowValues.get(colRows[j][k]).add(colValues[j][k]);
+            }
+        }
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))) {
+            writer.write("Minimize\n obj:");
+            for (int j = 0; j < numColumns; ++j)
+                if (costs[j] != 0.0)
+                    writeTerm(writer, j, costs[j]);
+
+            writer.write("\nSubject To\n");
+            for (int i = 0; i < numRows; ++i) {
+                final boolean hasLb = rowLbs[i] > -Double.MAX_VALUE;
+                final boolean hasUb = rowUbs[i] < Double.MAX_VALUE;
+                if (hasLb && hasUb && rowLbs[i] == rowUbs[i]) {
+                    writeRow(writer, getRowName(i), rowColumns.get(i), rowValues.get(i), "=",
+                        rowLbs[i]);
+                } else {
+                    final boolean ranged = hasLb && hasUb;
+                    if (hasLb)
+                        writeRow(writer, getRowName(i) + (ranged ? "_lb" : ""),
+                            rowColumns.get(i), rowValues.get(i), ">=", rowLbs[i]);
+                    if (hasUb)
+                        writeRow(writer, getRowName(i) + (ranged ? "_ub" : ""),
+                            rowColumns.get(i), rowValues.get(i), "<=", rowUbs[i]);
+                }
+            }
+
+            writer.write("Bounds\n");
+            for (int j = 0; j < numColumns; ++j) {
+                final String lb = colLbs[j] > -Double.MAX_VALUE ? Double.toString(colLbs[j])
+                    : "-infinity";
+                final String ub = colUbs[j] < Double.MAX_VALUE ? Double.toString(colUbs[j])
+                    : "+infinity";
+                writer.write(" " + lb + " <= " + getColumnName(j) + " <= " + ub + "\n");
+            }
+            writer.write("End\n");
+        } catch (IOException ex) {
+            logger.error(ex);
+            throw new OptException("error exporting model to " + fileName);
+        }
+    }
+
+    private void writeRow(BufferedWriter writer, String name, ArrayList<Integer> columns,
+                          ArrayList<Double> values, String sense, double rhs) throws IOException {
+        writer.write(" " + name + ":");
+        for (int k = 0; k < columns.size(); ++k)
+            writeTerm(writer, columns.get(k), values.get(k));
+        writer.write(" " + sense + " " + rhs + "\n");
+    }
+
+    private void writeTerm(BufferedWriter writer, int column, double value) throws IOException {
+        writer.write((value < 0 ? " - " : " + ") + Math.abs(value) + " " + getColumnName(column));
+    }
+
+    /**
+     * Writes the objective value, column values and row duals of the last solution as text.
+     */
+    @Override
+    public void writeSolution(String fileName) throws OptException {
+        checkSolution();
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))) {
+            writer.write("objective: " + objValue + "\n");
+            for (int j = 0; j < numColumns; ++j)
+                if (colSolution[j] != 0.0)
+                    writer.write(getColumnName(j) + ": " + colSolution[j] + "\n");
+            for (int i = 0; i < numRows; ++i)
+                if (duals[i] != 0.0)
+                    writer.write("dual " + getRowName(i) + ": " + duals[i] + "\n");
+        } catch (IOException ex) {
+            logger.error(ex);
+            throw new OptException("error writing solution to " + fileName);
+        }
+    }
+
+    @Override
+    public void clearModel() {
+        initModel();
+    }
+
+    @Override
+    public void end() {
+        initModel();
+    }
+}
@@ -0,0 +1,122 @@
+package stochastic.lp;
+
+import stochastic.utility.OptException;
+
+/**
+ * Interface to the solvers used for the linear and mixed integer models of the project.
+ * <p>
+ * Models are minimization problems built at the matrix level. Columns and rows are identified by
+ * their index in order of creation. Each column has bounds and an objective coefficient, each row
+ * is of the form lb <= a x <= ub. Rows are added in bulk with their coefficients, while columns can
+ * be added either empty (before the rows using them) or with their coefficients in existing rows.
+ * <p>
+ * Duals follow the CPLEX convention, i.e. the reduced cost of column j is c_j - sum_i pi_i a_ij.
+ * Implementations keep the last optimal basis, so that a model modified by adding columns or by
+ * changing row bounds is re-solved starting from it.
+ */
+public interface LPSolver {
+    /**
+     * Algorithm hint for solve().
+     * <p>
+     * AUTO: let the solver choose, e.g. for MIPs solved from scratch.
+     * PRIMAL: the model changed only by new columns, so the previous basis stays primal feasible.
+     * DUAL: the model changed in row bounds, so the previous basis stays dual feasible.
+     */
+    enum Algorithm {AUTO, PRIMAL, DUAL}
+
+    enum Status {OPTIMAL, INFEASIBLE, UNBOUNDED, NOT_SOLVED}
+
+    /**
+     * Adds columns without coefficients in rows.
+     *
+     * @param num       number of columns to add.
+     * @param lb        lower bound of all new columns.
+     * @param ub        upper bound of all new columns.
+     * @param objCoefs  objective coefficients of the new columns, null for zeros.
+     * @return index of the first new column, the remaining ones follow contiguously.
+     */
+    int addColumns(int num, double lb, double ub, double[] objCoefs) throws OptException;
+
+    /**
+     * Adds a column with coefficients in existing rows.
+     *
+     * @return index of the new column.
+     */
+    int addColumn(double lb, double ub, double objCoef, int[] rows, double[] values)
+        throws OptException;
+
+    /**
+     * Adds columns with coefficients in existing rows and no objective cost. Column k has
+     * coefficients val[k] in rows ind[k].
+     *
+     * @return index of the first new column, the remaining ones follow contiguously.
+     */
+    int addColumns(double lb, double ub, int[][] ind, double[][] val) throws OptException;
+
+    /**
+     * Adds rows lbs[i] <= sum_k val[i][k] x_{ind[i][k]} <= ubs[i].
+     *
+     * @return index of the first new row, the remaining ones follow contiguously.
+     */
+    int addRows(double[] lbs, double[] ubs, int[][] ind, double[][] val) throws OptException;
+
+    void setRowUB(int row, double ub) throws OptException;
+
+    /**
+     * Removes the given columns. Remaining columns keep their order, so the index of each one
+     * decreases by the number of removed columns before it.
+     *
+     * @param columns indices of the columns to remove.
+     */
+    void removeColumns(int[] columns) throws OptException;
+
+    /**
+     * Requires the given columns to take integer values.
+     *
+     * @throws OptException if the solver does not support integer columns.
+     */
+    void setInteger(int[] columns) throws OptException;
+
+    /**
+     * Sets the relative MIP gap used to stop solving models with integer columns.
+     */
+    void setMIPGap(double gap) throws OptException;
+
+    void setColumnName(int column, String name) throws OptException;
+
+    void setRowName(int row, String name) throws OptException;
+
+    Status solve(Algorithm algorithm) throws OptException;
+
+    double getObjValue() throws OptException;
+
+    /**
+     * @return values of columns [first, first + num) in the last solution.
+     */
+    double[] getValues(int first, int num) throws OptException;
+
+    /**
+     * @return duals of rows [first, first + num) in the last solution.
+     */
+    double[] getDuals(int first, int num) throws OptException;
+
+    int getNumRows();
+
+    int getNumColumns();
+
+    int getNumNonZeros();
+
+    void exportModel(String fileName) throws OptException;
+
+    void writeSolution(String fileName) throws OptException;
+
+    /**
+     * Removes all columns and rows, keeping the solver ready to build a new model.
+     */
+    void clearModel() throws OptException;
+
+    /**
+     * Releases all resources of the solver, which cannot be used afterwards.
+     */
+    void end();
+}
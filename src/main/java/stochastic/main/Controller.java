@@ -1,6 +1,5 @@
 package stochastic.main;
 
-import ilog.concert.IloException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import stochastic.dao.ScheduleDAO;
@@ -132,9 +131,6 @@ class Controller {
             logger.info("Benders global upper bound: " + bendersGlobalUpperBound);
             logger.info("Benders global optimality gap: " +
                 String.format("%.2f", bendersOptimalityGap) + " %");
-        } catch (IloException ex) {
-            logger.error(ex);
-            throw new OptException("CPLEX error in Benders");
         } catch (IOException ex) {
             logger.error(ex);
             throw new OptException("error writing to files during Benders");
@@ -142,16 +138,11 @@ class Controller {
     }
 
     private void solveWithNaiveApproach() throws OptException {
-        try {
-            NaiveSolver naiveSolver = new NaiveSolver(dataRegistry);
-            naiveSolver.solve();
-            naiveModelStats = naiveSolver.getModelStats();
-            naiveModelSolution = naiveSolver.getFinalRescheduleSolution();
-            naiveModelSolutionTime = naiveSolver.getSolutionTime();
-        } catch (IloException ex) {
-            logger.error(ex);
-            throw new OptException("exception solving naive model");
-        }
+        NaiveSolver naiveSolver = new NaiveSolver(dataRegistry);
+        naiveSolver.solve();
+        naiveModelStats = naiveSolver.getModelStats();
+        naiveModelSolution = naiveSolver.getFinalRescheduleSolution();
+        naiveModelSolutionTime = naiveSolver.getSolutionTime();
     }
 
     final ModelStats getNaiveModelStats() {
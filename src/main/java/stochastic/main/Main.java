@@ -54,12 +54,22 @@ public class Main {
             "type of batch run (benders/train/test)");
         options.addOption("budget", true, "reschedule budget fraction");
         options.addOption("columnGen", true,
-            "column gen strategy (enum/all/best/first)");
+            "column gen strategy (enum/all/best/first/hybrid/adaptive)");
         options.addOption("cache", true,
             "use column caching (y/n)");
+        options.addOption("cacheModels", true,
+            "max number of idle second-stage models kept across Benders iterations (0 to disable)");
+        options.addOption("poolSize", true,
+            "max number of paths kept per tail in second-stage column pools (0 for no limit)");
+        options.addOption("sharePaths", true,
+            "paths shared across second-stage scenarios (none/used/all)");
+        options.addOption("shareCap", true,
+            "max number of shared paths imported per tail, scenario and Benders iteration");
         options.addOption("cut", true, "benders cut type (single/multi)");
         options.addOption("distribution", true,
             "distribution (exp/tnorm/lnorm)");
+        options.addOption("enumLimit", true,
+            "max number of paths of tails enumerated by the hybrid column gen strategy");
         options.addOption("expectedExcess", true,
             "enable expected excess (y/n)");
         options.addOption("excessTarget", true,
@@ -72,16 +82,30 @@ public class Main {
             "generate primary delays, write to file and exit");
         options.addOption("inputName", true, "instance name");
         options.addOption("inputPath", true, "path to folder with instance");
+        options.addOption("lpSolver", true,
+            "solver for second-stage LPs (cplex/simplex)");
         options.addOption("mean", true, "distribution mean");
         options.addOption("model", true, "model (benders/dep/naive/original)");
         options.addOption("numScenarios", true, "number of scenarios");
         options.addOption("outputPath", true, "path to output folder");
         options.addOption("outputName", true, "name of output file");
+        options.addOption("pathMemory", true,
+            "MB of memory for enumerated DEP paths, more paths are spilled to a temp file");
         options.addOption("parallel", true,
             "number of parallel runs for second stage");
+        options.addOption("partialPricing", true,
+            "fraction of tails priced per column gen iteration in (0, 1], 1 to price all tails");
+        options.addOption("pricingThreads", true,
+            "number of threads for pricing tails within a column gen iteration");
         options.addOption("parseDelays", false,
             "parse primary delays from files");
         options.addOption("sd", true, "standard deviation");
+        options.addOption("shareLabels", true,
+            "share labeling among tails with the same source port (y/n)");
+        options.addOption("stabilize", true,
+            "dual smoothing factor for column generation in [0, 1), 0 to disable");
+        options.addOption("stabilizeBox", true,
+            "half-width of dual box around stability center, 0 to disable");
         options.addOption("stats", false, "generate stats about instance");
         options.addOption("h", false, "help (show options and exit)");
 
@@ -199,7 +223,18 @@ public class Main {
         // Second-stage parameters
         Parameters.setColumnGenStrategy(Enums.ColumnGenStrategy.FIRST_PATHS);
         Parameters.setNumReducedCostPaths(10); // ignored for full enumeration
+        Parameters.setHybridEnumerationLimit(100); // used only for hybrid
         Parameters.setUseColumnCaching(true);
+        Parameters.setNumCachedSubModels(30);
+        Parameters.setColumnPoolCapacity(100);
+        Parameters.setColumnSharingPolicy(Enums.ColumnSharingPolicy.USED_PATHS);
+        Parameters.setNumSharedPathsPerTail(5);
+        Parameters.setShareSourceLabels(true);
+        Parameters.setPartialPricingFraction(1.0);
+        Parameters.setStabilizationAlpha(0.0);
+        Parameters.setStabilizationBoxWidth(0.0);
+        Parameters.setSecondStageSolverType(Enums.LPSolverType.CPLEX);
+        Parameters.setPathStoreMemoryInMB(1024);
 
         // Debugging parameter
         Parameters.setDebugVerbose(false); // Set to true to see CPLEX logs, lp files and solution xml files.
@@ -209,6 +244,7 @@ public class Main {
         // Multi-threading parameters
         Parameters.setRunSecondStageInParallel(true);
         Parameters.setNumThreadsForSecondStage(6);
+        Parameters.setNumThreadsForPricing(1);
 
         // Solution quality parameters
         Parameters.setCheckSolutionQuality(true);
@@ -240,11 +276,21 @@ public class Main {
                 case "first":
                     Parameters.setColumnGenStrategy(Enums.ColumnGenStrategy.FIRST_PATHS);
                     break;
+                case "hybrid":
+                    Parameters.setColumnGenStrategy(Enums.ColumnGenStrategy.HYBRID);
+                    break;
+                case "adaptive":
+                    Parameters.setColumnGenStrategy(Enums.ColumnGenStrategy.ADAPTIVE);
+                    break;
                 default:
                     logger.error("unknown column generation strategy: " + columnGen);
                     break;
             }
         }
+        if (cmd.hasOption("enumLimit")) {
+            final int enumLimit = Integer.parseInt(cmd.getOptionValue("enumLimit"));
+            Parameters.setHybridEnumerationLimit(enumLimit);
+        }
         if (cmd.hasOption("cut")) {
             final String cutType = cmd.getOptionValue("cut");
             if (cutType.equals("single"))
@@ -322,6 +368,10 @@ public class Main {
             Parameters.setNumThreadsForSecondStage(numThreads);
             Parameters.setRunSecondStageInParallel(numThreads > 1);
         }
+        if (cmd.hasOption("pricingThreads")) {
+            final int numThreads = Integer.parseInt(cmd.getOptionValue("pricingThreads"));
+            Parameters.setNumThreadsForPricing(numThreads);
+        }
         if (cmd.hasOption("parseDelays"))
             Parameters.setParsePrimaryDelaysFromFiles(true);
         if (cmd.hasOption("budget")) {
@@ -333,6 +383,72 @@ public class Main {
             Parameters.setUseColumnCaching(useCaching);
             logger.info("use column caches: " + useCaching);
         }
+        if (cmd.hasOption("shareLabels")) {
+            final boolean shareLabels = cmd.getOptionValue("shareLabels").equals("y");
+            Parameters.setShareSourceLabels(shareLabels);
+            logger.info("share source labels: " + shareLabels);
+        }
+        if (cmd.hasOption("partialPricing")) {
+            final double fraction = Double.parseDouble(cmd.getOptionValue("partialPricing"));
+            if (fraction <= 0 || fraction > 1)
+                throw new OptException("partial pricing fraction must be in (0, 1]");
+            Parameters.setPartialPricingFraction(fraction);
+        }
+        if (cmd.hasOption("stabilize")) {
+            final double alpha = Double.parseDouble(cmd.getOptionValue("stabilize"));
+            Parameters.setStabilizationAlpha(alpha);
+        }
+        if (cmd.hasOption("stabilizeBox")) {
+            final double boxWidth = Double.parseDouble(cmd.getOptionValue("stabilizeBox"));
+            Parameters.setStabilizationBoxWidth(boxWidth);
+        }
+        if (cmd.hasOption("cacheModels")) {
+            final int numModels = Integer.parseInt(cmd.getOptionValue("cacheModels"));
+            Parameters.setNumCachedSubModels(numModels);
+        }
+        if (cmd.hasOption("poolSize")) {
+            final int poolSize = Integer.parseInt(cmd.getOptionValue("poolSize"));
+            Parameters.setColumnPoolCapacity(poolSize);
+        }
+        if (cmd.hasOption("sharePaths")) {
+            final String sharePaths = cmd.getOptionValue("sharePaths");
+            switch (sharePaths) {
+                case "none":
+                    Parameters.setColumnSharingPolicy(Enums.ColumnSharingPolicy.NONE);
+                    break;
+                case "used":
+                    Parameters.setColumnSharingPolicy(Enums.ColumnSharingPolicy.USED_PATHS);
+                    break;
+                case "all":
+                    Parameters.setColumnSharingPolicy(Enums.ColumnSharingPolicy.ALL_PATHS);
+                    break;
+                default:
+                    logger.error("unknown path sharing policy: " + sharePaths);
+                    break;
+            }
+        }
+        if (cmd.hasOption("shareCap")) {
+            final int shareCap = Integer.parseInt(cmd.getOptionValue("shareCap"));
+            Parameters.setNumSharedPathsPerTail(shareCap);
+        }
+        if (cmd.hasOption("lpSolver")) {
+            final String lpSolver = cmd.getOptionValue("lpSolver");
+            switch (lpSolver) {
+                case "cplex":
+                    Parameters.setSecondStageSolverType(Enums.LPSolverType.CPLEX);
+                    break;
+                case "simplex":
+                    Parameters.setSecondStageSolverType(Enums.LPSolverType.DUAL_SIMPLEX);
+                    break;
+                default:
+                    logger.error("unknown LP solver: " + lpSolver);
+                    break;
+            }
+        }
+        if (cmd.hasOption("pathMemory")) {
+            final int pathMemory = Integer.parseInt(cmd.getOptionValue("pathMemory"));
+            Parameters.setPathStoreMemoryInMB(pathMemory);
+        }
         if (cmd.hasOption("sd")) {
             final double sd = Double.parseDouble(cmd.getOptionValue("sd"));
             Parameters.setDistributionSd(sd);
@@ -0,0 +1,133 @@
+package stochastic.model;
+
+import stochastic.lp.LPSolver;
+import stochastic.utility.OptException;
+
+import java.util.Arrays;
+
+/**
+ * Collects the linear constraints of a model in primitive arrays and adds them to the solver in
+ * bulk.
+ * <p>
+ * Building rows term by term is slow for large models like the deterministic equivalent. Here,
+ * model builders add their variables as columns of the solver, reserve rows with their bounds and
+ * store coefficients as (row, column, value) triplets in any order. build() then sorts the
+ * triplets by row and passes all rows to the solver with a single addRows() call.
+ * <p>
+ * Row indices returned by the buffer are the indices the rows get in the solver, so they can be
+ * used for bound changes and duals once build() was called. Several model builders can share one
+ * buffer, so that rows of one builder can use columns of another (e.g. first-stage variables in
+ * second-stage rows of the deterministic equivalent).
+ */
+public class LPMatrixBuffer {
+    private LPSolver lpSolver;
+    private final int firstRow; // solver index of the first buffered row.
+
+    private double[] lbs;
+    private double[] ubs;
+    private int numRows;
+
+    private int[] nzRows;
+    private int[] nzColumns;
+    private double[] nzValues;
+    private int numNonZeros;
+
+    public LPMatrixBuffer(LPSolver lpSolver) {
+        this.lpSolver = lpSolver;
+        firstRow = lpSolver.getNumRows();
+        lbs = new double[64];
+        ubs = new double[64];
+        numRows = 0;
+        nzRows = new int[256];
+        nzColumns = new int[256];
+        nzValues = new double[256];
+        numNonZeros = 0;
+    }
+
+    /**
+     * Reserves rows lb <= a x <= ub whose coefficients are added later with addNonZero().
+     *
+     * @return index of the first reserved row, the remaining rows follow contiguously.
+     */
+    public int addRows(int num, double lb, double ub) {
+        if (numRows + num > lbs.length) {
+            final int capacity = Math.max(2 * lbs.length, numRows + num);
+            lbs = Arrays.copyOf(lbs, capacity);
+            ubs = Arrays.copyOf(ubs, capacity);
+        }
+
+        Arrays.fill(lbs, numRows, numRows + num, lb);
+        Arrays.fill(ubs, numRows, numRows + num, ub);
+        final int first = firstRow + numRows;
+        numRows += num;
+        return first;
+    }
+
+    public int addRow(double lb, double ub) {
+        return addRows(1, lb, ub);
+    }
+
+    /**
+     * Changes the upper bound of a row reserved with addRows() before the matrix is built.
+     */
+    public void setUB(int row, double ub) {
+        ubs[row - firstRow] = ub;
+    }
+
+    /**
+     * Sets the coefficient of a solver column in a row. Each (row, column) pair may only be set once.
+     */
+    public void addNonZero(int row, int column, double value) {
+        if (value == 0.0)
+            return;
+
+        if (numNonZeros == nzRows.length) {
+            final int capacity = 2 * numNonZeros;
+            nzRows = Arrays.copyOf(nzRows, capacity);
+            nzColumns = Arrays.copyOf(nzColumns, capacity);
+            nzValues = Arrays.copyOf(nzValues, capacity);
+        }
+
+        nzRows[numNonZeros] = row - firstRow;
+        nzColumns[numNonZeros] = column;
+        nzValues[numNonZeros] = value;
+        ++numNonZeros;
+    }
+
+    /**
+     * Adds the buffered rows to the solver and releases the buffers.
+     *
+     * @throws OptException if the solver causes an issue
+     */
+    public void build() throws OptException {
+        // bucket the triplets by row.
+        int[] rowSizes = new int[numRows];
+        for (int k = 0; k < numNonZeros; ++k)
+            ++rowSizes[nzRows[k]];
+
+        int[][] ind = new int[numRows][];
+        double[][] val = new double[numRows][];
+        for (int i = 0; i < numRows; ++i) {
+            ind[i] = new int[rowSizes[i]];
+            val[i] = new double[rowSizes[i]];
+        }
+
+        Arrays.fill(rowSizes, 0);
+        for (int k = 0; k < numNonZeros; ++k) {
+            final int row = nzRows[k];
+            final int pos = rowSizes[row]++;
+            ind[row][pos] = nzColumns[k];
+            val[row][pos] = nzValues[k];
+        }
+
+        if (numRows > 0)
+            lpSolver.addRows(Arrays.copyOf(lbs, numRows), Arrays.copyOf(ubs, numRows), ind, val);
+
+        lpSolver = null;
+        lbs = null;
+        ubs = null;
+        nzRows = null;
+        nzColumns = null;
+        nzValues = null;
+    }
+}
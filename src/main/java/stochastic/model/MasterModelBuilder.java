@@ -1,10 +1,10 @@
 package stochastic.model;
 
-import ilog.concert.*;
-import ilog.cplex.IloCplex;
 import stochastic.domain.Leg;
 import stochastic.domain.Tail;
+import stochastic.lp.LPSolver;
 import stochastic.registry.Parameters;
+import stochastic.utility.OptException;
 
 import java.util.ArrayList;
 
@@ -13,45 +13,50 @@ public class MasterModelBuilder {
     private ArrayList<Tail> tails;
     private int budget;
 
-    private IloCplex cplex;
-    private IloNumVar[] x; // x[i] = #minutes of reschedule of flight i.
+    private LPSolver lpSolver;
+    private LPMatrixBuffer matrixBuffer;
+    private int xColumn; // x[i] = #minutes of reschedule of flight i, column index of x[0] in the solver.
+    private int routingRow; // row index of the first original routing constraint.
+    private int budgetRow;
 
-    public MasterModelBuilder(ArrayList<Leg> legs, ArrayList<Tail> tails, int budget, IloCplex cplex) {
+    public MasterModelBuilder(ArrayList<Leg> legs, ArrayList<Tail> tails, int budget,
+                              LPSolver lpSolver, LPMatrixBuffer matrixBuffer) {
         this.legs = legs;
         this.tails = tails;
         this.budget = budget;
-        this.cplex = cplex;
-        x = new IloIntVar[legs.size()];
+        this.lpSolver = lpSolver;
+        this.matrixBuffer = matrixBuffer;
     }
 
-    public void buildVariables() throws IloException {
-        for (int j = 0; j < legs.size(); j++) {
-            x[j] = cplex.numVar(0, Parameters.getFlightRescheduleBound(), IloNumVarType.Int);
-            if (Parameters.isSetCplexNames()) {
-                x[j].setName("x_" + legs.get(j).getId());
-            }
-        }
-    }
-
-    public IloLinearNumExpr getObjExpr() throws IloException {
+    /**
+     * Adds the integer reschedule variables x with their reschedule costs as objective.
+     *
+     * @throws OptException if the solver causes an issue
+     */
+    public void buildVariables() throws OptException {
         // Ensure that reschedule costing is cheaper than delay costing. Otherwise, there is no difference between
         // planning (first stage) and recourse (second stage).
 
-        IloLinearNumExpr cons = cplex.linearNumExpr();
-        for (int j = 0; j < legs.size(); j++) {
-            cons.addTerm(x[j], legs.get(j).getRescheduleCostPerMin());
-        }
+        double[] costs = new double[legs.size()];
+        for (int j = 0; j < legs.size(); j++)
+            costs[j] = legs.get(j).getRescheduleCostPerMin();
+
+        xColumn = lpSolver.addColumns(legs.size(), 0, Parameters.getFlightRescheduleBound(), costs);
 
-        return cons;
+        int[] columns = new int[legs.size()];
+        for (int j = 0; j < legs.size(); j++)
+            columns[j] = xColumn + j;
+        lpSolver.setInteger(columns);
     }
 
-    public void constructFirstStage() throws IloException {
+    public void constructFirstStage() {
         // addDurationCoverConstraints();
         addOriginalRoutingConstraints();
         addBudgetConstraint();
     }
 
-    private void addOriginalRoutingConstraints() throws IloException {
+    private void addOriginalRoutingConstraints() {
+        routingRow = -1;
         for (Tail tail : tails) {
             ArrayList<Leg> tailLegs = tail.getOrigSchedule();
             if (tailLegs.size() <= 1)
@@ -63,40 +68,60 @@ public class MasterModelBuilder {
                 int currLegIndex = currLeg.getIndex();
                 int nextLegIndex = nextLeg.getIndex();
 
-                IloLinearNumExpr cons = cplex.linearNumExpr();
-                cons.addTerm(x[currLegIndex], 1);
-                cons.addTerm(x[nextLegIndex], -1);
-
                 int rhs = (int) (nextLeg.getDepTime() - currLeg.getArrTime());
                 rhs -= currLeg.getTurnTimeInMin();
-                IloRange r = cplex.addLe(cons, (double) rhs);
-                if (Parameters.isSetCplexNames())
-                    r.setName("connect_" + currLeg.getId() + "_" + nextLeg.getId());
+                final int row = matrixBuffer.addRow(-Double.MAX_VALUE, rhs);
+                if (routingRow < 0)
+                    routingRow = row;
+
+                matrixBuffer.addNonZero(row, xColumn + currLegIndex, 1);
+                matrixBuffer.addNonZero(row, xColumn + nextLegIndex, -1);
             }
         }
     }
 
-    private void addBudgetConstraint() throws IloException {
-        IloLinearNumExpr budgetExpr = cplex.linearNumExpr();
+    private void addBudgetConstraint() {
+        budgetRow = matrixBuffer.addRow(-Double.MAX_VALUE, budget);
         for (int j = 0; j < legs.size(); ++j)
-            budgetExpr.addTerm(x[j], 1);
+            matrixBuffer.addNonZero(budgetRow, xColumn + j, 1);
+    }
+
+    /**
+     * Sets names of first stage variables and constraints, which is only needed to make exported
+     * LP files readable.
+     *
+     * @throws OptException if the solver causes an issue
+     */
+    public void setNames() throws OptException {
+        for (int j = 0; j < legs.size(); j++)
+            lpSolver.setColumnName(xColumn + j, "x_" + legs.get(j).getId());
+
+        // routing constraints were added in this order by addOriginalRoutingConstraints().
+        int row = routingRow;
+        for (Tail tail : tails) {
+            ArrayList<Leg> tailLegs = tail.getOrigSchedule();
+            for (int i = 0; i < tailLegs.size() - 1; ++i)
+                lpSolver.setRowName(row++,
+                    "connect_" + tailLegs.get(i).getId() + "_" + tailLegs.get(i + 1).getId());
+        }
 
-        IloRange budgetConstraint = cplex.addLe(budgetExpr, budget);
-        if (Parameters.isSetCplexNames())
-            budgetConstraint.setName("reschedule_time_budget");
+        lpSolver.setRowName(budgetRow, "reschedule_time_budget");
     }
 
-    public IloNumVar[] getX() {
-        return x;
+    /**
+     * @return column index of the first stage variable of legs[0] in the solver, variables of the
+     * other legs follow contiguously.
+     */
+    public int getXColumn() {
+        return xColumn;
     }
 
-    public double[] getxValues() throws IloException {
-        return cplex.getValues(x);
+    public double[] getxValues() throws OptException {
+        return lpSolver.getValues(xColumn, legs.size());
     }
 
-    public void clearCplexObjects() {
-        for (int i = 0; i < x.length; ++i)
-            x[i] = null;
-        x = null;
+    public void clear() {
+        lpSolver = null;
+        matrixBuffer = null;
     }
 }
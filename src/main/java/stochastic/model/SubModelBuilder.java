@@ -1,17 +1,28 @@
 package stochastic.model;
 
-import ilog.concert.*;
-import ilog.cplex.IloCplex;
 import stochastic.domain.Leg;
 import stochastic.domain.Tail;
+import stochastic.lp.LPSolver;
 import stochastic.network.Path;
+import stochastic.network.PathStore;
 import stochastic.registry.Parameters;
+import stochastic.utility.Constants;
+import stochastic.utility.OptException;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 
 public class SubModelBuilder {
+    /**
+     * Builds the second-stage model of a scenario.
+     * <p>
+     * Variables are added to the solver in bulk and the constraints are stored in an
+     * LPMatrixBuffer that may be shared with other builders. The model is complete once the buffer
+     * was built. Names are only set by setNames(), i.e. when the model is exported.
+     */
+    private static final int STORE_BATCH_SIZE = 4096; // path columns added to the solver at once.
+
     private String prefix;
     private ArrayList<Leg> legs;
     private int numLegs;
@@ -19,271 +30,553 @@ public class SubModelBuilder {
     private int numTails;
     private HashMap<Integer, ArrayList<Path>> paths;
 
-    private IloCplex cplex;
-    private IloNumVar[][] y; // y[i][j] = 1 if path j is selected for tails.get(i) is selected, 0 else.
-    private IloNumVar[] z; // z[i] >= 0 is the total delay of leg i.
-    private IloNumVar v;
+    private LPSolver lpSolver;
+    private LPMatrixBuffer matrixBuffer;
+
+    // Column indices in the solver.
+    private int[][] y; // y[i][j] = 1 if path j is selected for tails.get(i) is selected, 0 else, bounded by 1.
+    private int zColumn; // z[i] >= 0 is the total delay of leg i, columns are contiguous.
+    private int vColumn;
 
-    private IloRange[] legCoverConstraints;
-    private IloRange[] onePathPerTailConstraints;
-    private IloRange[] legDelayLinkConstraints;
-    private IloRange[][] boundConstraints;
-    private IloRange riskConstraint;
+    // Row indices of the first constraint of each block in the solver.
+    private int tailRow;
+    private int legRow;
+    private int delayRow;
+    private int riskRow;
 
-    private IloLinearNumExpr[] tailCoverExprs;
-    private IloLinearNumExpr[] legCoverExprs;
-    private IloLinearNumExpr[] delayExprs;
     private double[] delayRHS;
 
+    /**
+     * Builds a model without path lists, whose path variables are added from a PathStore with
+     * addPathVarsFromStore(). Methods that read path lists cannot be used with such models.
+     */
     public SubModelBuilder(int scenarioNum, ArrayList<Leg> legs, ArrayList<Tail> tails,
-                           HashMap<Integer, ArrayList<Path>> paths, IloCplex cplex)
-        throws IloException {
+                           LPSolver lpSolver, LPMatrixBuffer matrixBuffer) {
+        this(scenarioNum, legs, tails, null, lpSolver, matrixBuffer);
+    }
+
+    public SubModelBuilder(int scenarioNum, ArrayList<Leg> legs, ArrayList<Tail> tails,
+                           HashMap<Integer, ArrayList<Path>> paths, LPSolver lpSolver,
+                           LPMatrixBuffer matrixBuffer) {
         prefix = "s" + scenarioNum + "_";
         this.legs = legs;
         numLegs = legs.size();
         this.tails = tails;
         numTails = tails.size();
         this.paths = paths;
-        this.cplex = cplex;
+        this.lpSolver = lpSolver;
+        this.matrixBuffer = matrixBuffer;
 
         // initialize containers
-        y = new IloNumVar[numTails][];
+        y = new int[numTails][];
         for (int i = 0; i < numTails; i++)
-            y[i] = new IloNumVar[paths.get(tails.get(i).getId()).size()];
-
-        z = new IloNumVar[numLegs];
+            y[i] = paths != null ? new int[paths.get(tails.get(i).getId()).size()] : new int[0];
 
-        tailCoverExprs = new IloLinearNumExpr[numTails];
-        legCoverExprs = new IloLinearNumExpr[numLegs];
-        delayExprs = new IloLinearNumExpr[numLegs];
         delayRHS = new double[numLegs];
         Arrays.fill(delayRHS, 0.0);
 
-        legCoverConstraints = new IloRange[numLegs]; // leg coverage
-        onePathPerTailConstraints = new IloRange[numTails]; // tail coverage
-        legDelayLinkConstraints = new IloRange[numLegs]; // delay constraints
-        boundConstraints = new IloRange[numTails][];
-        for (int i = 0; i < numTails; i++) {
-            tailCoverExprs[i] = cplex.linearNumExpr();
-            boundConstraints[i] = new IloRange[paths.get(tails.get(i).getId()).size()];
-        }
+        // reserve rows, coefficients are added while building variables.
+        tailRow = matrixBuffer.addRows(numTails, 1.0, 1.0); // tail coverage
+        legRow = matrixBuffer.addRows(numLegs, 1.0, 1.0); // leg coverage
+        delayRow = matrixBuffer.addRows(numLegs, -Double.MAX_VALUE, 0.0); // delay constraints
+        riskRow = -1;
+        vColumn = -1;
     }
 
-    public void buildObjective(IloLinearNumExpr objExpr, Double probability) throws IloException {
+    /**
+     * Adds the delay variables z (and v for the expected excess) with their objective costs.
+     *
+     * @param probability scenario probability to scale costs with, null for the unscaled costs.
+     * @throws OptException if the solver causes an issue
+     */
+    public void buildObjective(Double probability) throws OptException {
+        double[] objCoefs = new double[numLegs];
         for (int i = 0; i < numLegs; i++) {
-            Leg leg = legs.get(i);
-            z[i] = cplex.numVar(0, Double.MAX_VALUE);
-            if (Parameters.isSetCplexNames())
-                z[i].setName(prefix + "d_" + leg.getId());
-
-            legCoverExprs[i] = cplex.linearNumExpr();
-            delayExprs[i] = cplex.linearNumExpr();
-            delayExprs[i].addTerm(z[i], -1.0);
-
-            if (probability != null)
-                objExpr.addTerm(z[i], probability * leg.getDelayCostPerMin());
-            else
-                objExpr.addTerm(z[i], leg.getDelayCostPerMin());
+            final double delayCost = legs.get(i).getDelayCostPerMin();
+            objCoefs[i] = probability != null ? probability * delayCost : delayCost;
         }
+        zColumn = lpSolver.addColumns(numLegs, 0, Double.MAX_VALUE, objCoefs);
+        for (int i = 0; i < numLegs; i++)
+            matrixBuffer.addNonZero(delayRow + i, zColumn + i, -1.0);
 
         if (Parameters.isExpectedExcess()) {
-            v = cplex.numVar(0, Double.MAX_VALUE);
-            if (Parameters.isSetCplexNames())
-                v.setName(prefix + "v");
+            double cost = Parameters.getRiskAversion();
             if (probability != null)
-                objExpr.addTerm(v, probability * Parameters.getRiskAversion());
-            else
-                objExpr.addTerm(v, Parameters.getRiskAversion());
+                cost *= probability;
+            vColumn = lpSolver.addColumns(1, 0, Double.MAX_VALUE, new double[]{cost});
         }
     }
 
-    public void addPathVarsToConstraints() throws IloException {
+    public void addPathVarsToConstraints() throws OptException {
+        int numPaths = 0;
+        for (int[] tailVars : y)
+            numPaths += tailVars.length;
+
+        final int yColumn = lpSolver.addColumns(numPaths, 0, 1, null);
+
+        int pathIndex = 0;
         for (int i = 0; i < numTails; i++) {
-            for (int j = 0; j < y[i].length; j++) {
-                y[i][j] = cplex.numVar(0, Double.MAX_VALUE);
-                if (Parameters.isSetCplexNames())
-                    y[i][j].setName(prefix + "y_" + tails.get(i).getId() + "_" + j);
+            Tail tail = tails.get(i);
+            ArrayList<Path> tailPaths = paths.get(tail.getId());
+            for (int j = 0; j < y[i].length; j++, pathIndex++) {
+                final int column = yColumn + pathIndex;
+                y[i][j] = column;
+                matrixBuffer.addNonZero(tailRow + tail.getIndex(), column, 1.0);
+
+                Path path = tailPaths.get(j);
+                for (int k = 0; k < path.getNumLegs(); ++k) {
+                    final int legIndex = path.getLegIndex(k);
+                    matrixBuffer.addNonZero(legRow + legIndex, column, 1.0);
+
+                    final int propagatedDelay = path.getPropagatedDelay(k);
+                    if (propagatedDelay > 0)
+                        matrixBuffer.addNonZero(delayRow + legIndex, column, propagatedDelay);
+                }
+            }
+        }
+    }
 
-                Tail tail = tails.get(i);
-                tailCoverExprs[tail.getIndex()].addTerm(y[i][j], 1.0);
+    /**
+     * Adds variables for all paths of a store, with delays propagated for the given primary
+     * delays, as columns of the existing constraints. Paths are read and added in batches, so
+     * neither paths nor coefficients of the whole model are kept in memory.
+     * <p>
+     * The model must have been built without path lists and its matrix buffer must have been
+     * built.
+     *
+     * @param pathStore     store with paths of the tails of the model in the same order.
+     * @param primaryDelays primary delays of the scenario of the model.
+     * @throws OptException if the solver causes an issue
+     */
+    public void addPathVarsFromStore(PathStore pathStore, int[] primaryDelays)
+        throws OptException {
+        PathColumnBatch batch = new PathColumnBatch();
+        for (int i = 0; i < numTails; ++i) {
+            y[i] = new int[pathStore.getNumPaths(i)];
+            batch.startTail(i);
+            pathStore.forEachPath(i, primaryDelays, batch);
+            batch.flush();
+        }
+    }
 
-                Path path = paths.get(tail.getId()).get(j);
-                ArrayList<Leg> pathLegs = path.getLegs();
-                ArrayList<Integer> propagatedDelays = path.getPropagatedDelays();
+    /**
+     * Collects columns of paths read from a PathStore and adds them to the solver in batches.
+     */
+    private class PathColumnBatch implements PathStore.PathVisitor {
+        private final int[][] ind = new int[STORE_BATCH_SIZE][];
+        private final double[][] val = new double[STORE_BATCH_SIZE][];
+        private final int[] rows = new int[1 + 2 * numLegs];
+        private final double[] values = new double[rows.length];
+        private int tailIndex;
+        private int numBatched;
+        private int numAdded; // paths of the tail added to the solver.
+
+        void startTail(int tailIndex) {
+            this.tailIndex = tailIndex;
+            numBatched = 0;
+            numAdded = 0;
+        }
 
-                for (int k = 0; k < pathLegs.size(); ++k) {
-                    Leg pathLeg = pathLegs.get(k);
-                    legCoverExprs[pathLeg.getIndex()].addTerm(y[i][j], 1.0);
+        @Override
+        public void visit(Tail tail, int[] legIndices, int[] propagatedDelays, int numPathLegs)
+            throws OptException {
+            int numNonZeros = 0;
+            rows[numNonZeros] = tailRow + tail.getIndex();
+            values[numNonZeros++] = 1.0;
+            for (int k = 0; k < numPathLegs; ++k) {
+                rows[numNonZeros] = legRow + legIndices[k];
+                values[numNonZeros++] = 1.0;
+                if (propagatedDelays[k] > 0) {
+                    rows[numNonZeros] = delayRow + legIndices[k];
+                    values[numNonZeros++] = propagatedDelays[k];
+                }
+            }
+            sortByRow(numNonZeros);
+            ind[numBatched] = Arrays.copyOf(rows, numNonZeros);
+            val[numBatched] = Arrays.copyOf(values, numNonZeros);
+            if (++numBatched == STORE_BATCH_SIZE)
+                flush();
+        }
 
-                    Integer propagatedDelay = propagatedDelays.get(k);
-                    if (propagatedDelay > 0)
-                        delayExprs[pathLeg.getIndex()].addTerm(y[i][j], propagatedDelay);
+        /**
+         * Sorts the coefficients of a column by row, the order columns get when the matrix buffer
+         * adds rows. The solver then gets the same model as when it is built from path lists.
+         */
+        private void sortByRow(int numNonZeros) {
+            for (int k = 1; k < numNonZeros; ++k) {
+                final int row = rows[k];
+                final double value = values[k];
+                int l = k - 1;
+                for (; l >= 0 && rows[l] > row; --l) {
+                    rows[l + 1] = rows[l];
+                    values[l + 1] = values[l];
                 }
+                rows[l + 1] = row;
+                values[l + 1] = value;
             }
         }
+
+        void flush() throws OptException {
+            if (numBatched == 0)
+                return;
+
+            final int first = numBatched == STORE_BATCH_SIZE
+                ? lpSolver.addColumns(0, 1, ind, val)
+                : lpSolver.addColumns(0, 1, Arrays.copyOf(ind, numBatched),
+                    Arrays.copyOf(val, numBatched));
+            for (int j = 0; j < numBatched; ++j)
+                y[tailIndex][numAdded + j] = first + j;
+            numAdded += numBatched;
+            numBatched = 0;
+        }
     }
 
     /**
      * Updates the second stage model using fixed values of the first stage variables (x[i][j]).
      *
      * @param reschedules first-stage reschedule solution value for each leg
-     * @throws IloException if cplex causes an issue
      */
-    public void updateModelWithRescheduleValues(int[] reschedules) throws IloException {
+    public void updateModelWithRescheduleValues(int[] reschedules) {
         for (int i = 0; i < numLegs; i++)
-            if (reschedules[i] > 0)
+            if (reschedules[i] > 0) {
                 delayRHS[i] += reschedules[i];
+                matrixBuffer.setUB(delayRow + i, delayRHS[i]);
+            }
 
         if (Parameters.isExpectedExcess()) {
             double rhs = Parameters.getExcessTarget();
-            IloLinearNumExpr riskExpr = cplex.linearNumExpr();
-
-            for (int i = 0; i < numLegs; ++i) {
-                riskExpr.addTerm(z[i], legs.get(i).getDelayCostPerMin());
+            for (int i = 0; i < numLegs; ++i)
                 if (reschedules[i] > 0)
                     rhs -= reschedules[i] * legs.get(i).getRescheduleCostPerMin();
-            }
 
-            riskExpr.addTerm(v, -1);
-            riskConstraint = cplex.addLe(riskExpr, rhs);
-            if (Parameters.isSetCplexNames())
-                riskConstraint.setName(prefix + "risk");
+            addRiskRow(rhs);
         }
     }
 
     /**
-     * This function adds CPLEX first stage variables to second stage model constraints.
+     * Updates right-hand sides of a model built with updateModelWithRescheduleValues() for new
+     * first stage reschedule values, i.e. those of delay link constraints and the risk constraint.
      *
-     * @param x CPLEX variables for reschedules to select for each leg
-     * @throws IloException if cplex causes an issue
+     * @param reschedules first-stage reschedule solution value for each leg
+     * @throws OptException if the solver causes an issue
      */
-    public void updateModelWithFirstStageVars(IloNumVar[] x) throws IloException {
-        for (int i = 0; i < x.length; ++i)
-            delayExprs[i].addTerm(x[i], -1);
+    public void updateRescheduleValues(int[] reschedules) throws OptException {
+        for (int i = 0; i < numLegs; i++) {
+            final double rhs = reschedules[i] > 0 ? reschedules[i] : 0.0;
+            if (rhs != delayRHS[i]) {
+                delayRHS[i] = rhs;
+                lpSolver.setRowUB(delayRow + i, rhs);
+            }
+        }
 
         if (Parameters.isExpectedExcess()) {
-            IloLinearNumExpr riskExpr = cplex.linearNumExpr();
-            for (int i = 0; i < x.length; ++i)
-                riskExpr.addTerm(x[i], legs.get(i).getRescheduleCostPerMin());
+            double rhs = Parameters.getExcessTarget();
+            for (int i = 0; i < numLegs; ++i)
+                if (reschedules[i] > 0)
+                    rhs -= reschedules[i] * legs.get(i).getRescheduleCostPerMin();
+            lpSolver.setRowUB(riskRow, rhs);
+        }
+    }
 
-            for (int i = 0; i < numLegs; i++)
-                riskExpr.addTerm(z[i], legs.get(i).getDelayCostPerMin());
+    /**
+     * This function adds first stage variables to second stage model constraints.
+     *
+     * @param xColumn column index of the first stage variable of legs[0] in the solver, the
+     *                variables of the other legs must follow contiguously.
+     */
+    public void updateModelWithFirstStageVars(int xColumn) {
+        for (int i = 0; i < numLegs; ++i)
+            matrixBuffer.addNonZero(delayRow + i, xColumn + i, -1.0);
 
-            riskExpr.addTerm(v, -1);
-            riskConstraint = cplex.addLe(riskExpr, Parameters.getExcessTarget());
-            if (Parameters.isSetCplexNames())
-                riskConstraint.setName(prefix + "risk");
+        if (Parameters.isExpectedExcess()) {
+            addRiskRow(Parameters.getExcessTarget());
+            for (int i = 0; i < numLegs; ++i)
+                matrixBuffer.addNonZero(riskRow, xColumn + i,
+                    legs.get(i).getRescheduleCostPerMin());
         }
     }
 
-    public void addConstraintsToModel() throws IloException {
-        for (int i = 0; i < numTails; ++i) {
-            onePathPerTailConstraints[i] = cplex.addEq(tailCoverExprs[i], 1.0);
-            if (Parameters.isSetCplexNames())
-                onePathPerTailConstraints[i].setName(
-                    prefix + "tail_" + i + "_" + tails.get(i).getId());
+    private void addRiskRow(double rhs) {
+        riskRow = matrixBuffer.addRow(-Double.MAX_VALUE, rhs);
+        for (int i = 0; i < numLegs; ++i)
+            matrixBuffer.addNonZero(riskRow, zColumn + i, legs.get(i).getDelayCostPerMin());
+        matrixBuffer.addNonZero(riskRow, vColumn, -1.0);
+    }
+
+    /**
+     * Sets names of all variables and constraints of the model, which is only needed to make
+     * exported LP files readable.
+     *
+     * @throws OptException if the solver causes an issue
+     */
+    public void setNames() throws OptException {
+        for (int i = 0; i < numLegs; i++) {
+            final int legId = legs.get(i).getId();
+            lpSolver.setColumnName(zColumn + i, prefix + "d_" + legId);
+            lpSolver.setRowName(legRow + i, prefix + "leg_" + i + "_" + legId);
+            lpSolver.setRowName(delayRow + i, prefix + "delay_" + i + "_" + legId);
         }
 
-        for (int i = 0; i < numLegs; ++i) {
-            legCoverConstraints[i] = cplex.addEq(legCoverExprs[i], 1.0);
-            if (Parameters.isSetCplexNames())
-                legCoverConstraints[i].setName(prefix + "leg_" + i + "_" + legs.get(i).getId());
+        for (int i = 0; i < numTails; i++) {
+            final int tailId = tails.get(i).getId();
+            lpSolver.setRowName(tailRow + i, prefix + "tail_" + i + "_" + tailId);
+            for (int j = 0; j < y[i].length; j++)
+                lpSolver.setColumnName(y[i][j], prefix + "y_" + tailId + "_" + j);
         }
 
-        for (int i = 0; i < numLegs; ++i) {
-            legDelayLinkConstraints[i] = cplex.addLe(delayExprs[i], delayRHS[i]);
-            if (Parameters.isSetCplexNames())
-                legDelayLinkConstraints[i].setName(
-                    prefix + "delay_" + i + "_" + legs.get(i).getId());
+        if (vColumn >= 0)
+            lpSolver.setColumnName(vColumn, prefix + "v");
+        if (riskRow >= 0)
+            lpSolver.setRowName(riskRow, prefix + "risk");
+    }
+
+    /**
+     * Adds variables for paths appended to the path lists since the model was built (or last
+     * updated) as new columns of the existing constraints.
+     * <p>
+     * The rest of the model is kept as it is, so the solver can re-solve it starting from the basis
+     * of the previous solution instead of building and solving the whole model from scratch.
+     *
+     * @return number of added columns.
+     * @throws OptException if the solver causes an issue
+     */
+    public int addNewPathVars() throws OptException {
+        int numAdded = 0;
+        for (int i = 0; i < numTails; ++i) {
+            Tail tail = tails.get(i);
+            ArrayList<Path> tailPaths = paths.get(tail.getId());
+            final int numOldPaths = y[i].length;
+            if (tailPaths.size() == numOldPaths)
+                continue;
+
+            y[i] = Arrays.copyOf(y[i], tailPaths.size());
+            for (int j = numOldPaths; j < tailPaths.size(); ++j) {
+                Path path = tailPaths.get(j);
+                int[] rows = new int[1 + 2 * path.getNumLegs()];
+                double[] values = new double[rows.length];
+                int numNonZeros = 0;
+                rows[numNonZeros] = tailRow + tail.getIndex();
+                values[numNonZeros++] = 1.0;
+                for (int k = 0; k < path.getNumLegs(); ++k) {
+                    final int legIndex = path.getLegIndex(k);
+                    rows[numNonZeros] = legRow + legIndex;
+                    values[numNonZeros++] = 1.0;
+
+                    final int propagatedDelay = path.getPropagatedDelay(k);
+                    if (propagatedDelay > 0) {
+                        rows[numNonZeros] = delayRow + legIndex;
+                        values[numNonZeros++] = propagatedDelay;
+                    }
+                }
+
+                y[i][j] = lpSolver.addColumn(0, 1, 0, Arrays.copyOf(rows, numNonZeros),
+                    Arrays.copyOf(values, numNonZeros));
+                ++numAdded;
+            }
         }
+        return numAdded;
+    }
 
-        for (int i = 0; i < numTails; i++) {
-            for (int j = 0; j < y[i].length; j++) {
-                boundConstraints[i][j] = cplex.addLe(y[i][j], 1);
-                if (Parameters.isSetCplexNames())
-                    boundConstraints[i][j].setName(
-                        prefix + "bound_" + tails.get(i).getId() + "_" + j);
+    /**
+     * Removes columns of paths that were removed from the path lists given to the constructor.
+     *
+     * @param removedPaths removedPaths[i] holds the positions the removed paths of tails.get(i)
+     *                     had in their list, in increasing order.
+     * @return number of removed columns.
+     * @throws OptException if the solver causes an issue
+     */
+    public int removePathVars(int[][] removedPaths) throws OptException {
+        int numRemoved = 0;
+        for (int[] tailPaths : removedPaths)
+            numRemoved += tailPaths.length;
+        if (numRemoved == 0)
+            return 0;
+
+        int[] columns = new int[numRemoved];
+        numRemoved = 0;
+        for (int i = 0; i < numTails; ++i) {
+            for (int j : removedPaths[i])
+                columns[numRemoved++] = y[i][j];
+
+            // keep the columns of the remaining paths in list order.
+            int[] tailColumns = new int[y[i].length - removedPaths[i].length];
+            int next = 0;
+            int k = 0;
+            for (int j = 0; j < y[i].length; ++j) {
+                if (k < removedPaths[i].length && removedPaths[i][k] == j)
+                    ++k;
+                else
+                    tailColumns[next++] = y[i][j];
             }
+            y[i] = tailColumns;
         }
+        Arrays.sort(columns);
+        lpSolver.removeColumns(columns);
+
+        // the solver moves remaining columns down by the number of removed columns before them.
+        for (int[] tailColumns : y)
+            for (int j = 0; j < tailColumns.length; ++j)
+                tailColumns[j] = shiftColumn(tailColumns[j], columns);
+        zColumn = shiftColumn(zColumn, columns);
+        if (vColumn >= 0)
+            vColumn = shiftColumn(vColumn, columns);
+        return numRemoved;
     }
 
-    public void changePathVarsToInts() throws IloException {
+    private static int shiftColumn(int column, int[] removedColumns) {
+        final int position = Arrays.binarySearch(removedColumns, column);
+        return column - (-position - 1);
+    }
+
+    public void changePathVarsToInts() throws OptException {
         for (int i = 0; i < tails.size(); ++i)
-            cplex.add(cplex.conversion(y[i], IloNumVarType.Int));
+            lpSolver.setInteger(y[i]);
     }
 
-    public double[] getzValues() throws IloException {
-        return cplex.getValues(z);
+    public double[] getzValues() throws OptException {
+        return lpSolver.getValues(zColumn, numLegs);
     }
 
-    public double[][] getyValues() throws IloException {
+    public double[][] getyValues() throws OptException {
+        // columns of paths added by addNewPathVars() are not contiguous, so read all values once.
+        double[] values = lpSolver.getValues(0, lpSolver.getNumColumns());
         double[][] yValues = new double[tails.size()][];
-        for (int i = 0; i < tails.size(); ++i)
-            yValues[i] = cplex.getValues(y[i]);
-
+        for (int i = 0; i < tails.size(); ++i) {
+            yValues[i] = new double[y[i].length];
+            for (int j = 0; j < y[i].length; ++j)
+                yValues[i][j] = values[y[i][j]];
+        }
         return yValues;
     }
 
-    public double[] getDualsLeg() throws IloException {
-        return cplex.getDuals(legCoverConstraints);
+    public double[] getDualsLeg() throws OptException {
+        return lpSolver.getDuals(legRow, numLegs);
     }
 
-    public double[] getDualsTail() throws IloException {
-        return cplex.getDuals(onePathPerTailConstraints);
+    public double[] getDualsTail() throws OptException {
+        return lpSolver.getDuals(tailRow, numTails);
     }
 
-    public double[] getDualsDelay() throws IloException {
-        return cplex.getDuals(legDelayLinkConstraints);
+    public double[] getDualsDelay() throws OptException {
+        return lpSolver.getDuals(delayRow, numLegs);
     }
 
-    public double[][] getDualsBound() throws IloException {
-        double[][] dualsBound = new double[numTails][];
-        for (int i = 0; i < boundConstraints.length; i++)
-            dualsBound[i] = cplex.getDuals(boundConstraints[i]);
-
-        return dualsBound;
+    /**
+     * Computes the sum of duals of the path variable bounds y <= 1 from the duals of the rows.
+     * <p>
+     * Path variables have no objective cost, so the reduced cost of a path is the negated sum of
+     * the duals of its rows. The bound of a path can only have a non-zero dual if the path is at
+     * its upper bound. The dual is then equal to the reduced cost, which is negative. Paths that
+     * are basic or at their lower bound have a reduced cost of zero or more and contribute
+     * nothing. So, the sum is the one of negative reduced costs, which is what explicit y <= 1
+     * rows would give as the sum of their duals, without querying or storing a dual per path.
+     *
+     * @param dualsTail duals of tail cover constraints from getDualsTail()
+     * @param dualsLeg duals of leg cover constraints from getDualsLeg()
+     * @param dualsDelay duals of delay link constraints from getDualsDelay()
+     * @return sum of non-zero bound duals.
+     */
+    public double getDualsBoundSum(double[] dualsTail, double[] dualsLeg, double[] dualsDelay) {
+        double dualsBoundSum = 0;
+        for (int i = 0; i < numTails; i++) {
+            Tail tail = tails.get(i);
+            ArrayList<Path> tailPaths = paths.get(tail.getId());
+            for (int j = 0; j < y[i].length; j++) {
+                final double reducedCost = getReducedCost(tailPaths.get(j),
+                    dualsTail[tail.getIndex()], dualsLeg, dualsDelay);
+                if (reducedCost <= -Constants.EPS)
+                    dualsBoundSum += reducedCost;
+            }
+        }
+        return dualsBoundSum;
     }
 
-    public double getDualRisk() throws IloException {
-        return cplex.getDual(riskConstraint);
+    /**
+     * Computes the sum of duals of the path variable bounds like getDualsBoundSum() for a model
+     * whose path variables were added by addPathVarsFromStore().
+     *
+     * @param pathStore     store the path variables were added from.
+     * @param primaryDelays primary delays the path variables were added with.
+     * @param dualsTail     duals of tail cover constraints from getDualsTail()
+     * @param dualsLeg      duals of leg cover constraints from getDualsLeg()
+     * @param dualsDelay    duals of delay link constraints from getDualsDelay()
+     * @return sum of non-zero bound duals.
+     * @throws OptException if the store cannot be read
+     */
+    public double getDualsBoundSum(PathStore pathStore, int[] primaryDelays, double[] dualsTail,
+                                   double[] dualsLeg, double[] dualsDelay) throws OptException {
+        double[] dualsBoundSum = {0};
+        for (int i = 0; i < numTails; i++)
+            pathStore.forEachPath(i, primaryDelays, (tail, legIndices, propagatedDelays,
+                                                     numPathLegs) -> {
+                double reducedCost = -dualsTail[tail.getIndex()];
+                for (int k = 0; k < numPathLegs; ++k) {
+                    reducedCost -= dualsLeg[legIndices[k]];
+                    if (propagatedDelays[k] > 0)
+                        reducedCost -= propagatedDelays[k] * dualsDelay[legIndices[k]];
+                }
+                if (reducedCost <= -Constants.EPS)
+                    dualsBoundSum[0] += reducedCost;
+            });
+        return dualsBoundSum[0];
     }
 
-    public void clearCplexObjects() {
-        for (int i = 0; i < y.length; ++i) {
-            Arrays.fill(y[i], null);
-            y[i] = null;
+    /**
+     * Computes tail duals for pricing, with which no path of the model has a negative reduced
+     * cost.
+     * <p>
+     * A path with a negative reduced cost is at its upper bound (see getDualsBoundSum()), so it is
+     * the only path of its tail with a non-zero value. Adding its reduced cost to the dual of the
+     * tail cover constraint and moving the bound dual to zero gives another optimal dual solution,
+     * as the dual objective stays the same and the reduced costs of the other paths of the tail
+     * only grow. Pricing with it does not generate paths that are already in the model, and any
+     * path it finds improves the model.
+     *
+     * @param dualsTail duals of tail cover constraints from getDualsTail()
+     * @param dualsLeg duals of leg cover constraints from getDualsLeg()
+     * @param dualsDelay duals of delay link constraints from getDualsDelay()
+     * @return shifted tail duals.
+     */
+    public double[] getPricingDualsTail(double[] dualsTail, double[] dualsLeg,
+                                        double[] dualsDelay) {
+        double[] pricingDuals = dualsTail.clone();
+        for (int i = 0; i < numTails; i++) {
+            Tail tail = tails.get(i);
+            ArrayList<Path> tailPaths = paths.get(tail.getId());
+            double minReducedCost = 0;
+            for (int j = 0; j < y[i].length; j++)
+                minReducedCost = Math.min(minReducedCost, getReducedCost(tailPaths.get(j),
+                    dualsTail[tail.getIndex()], dualsLeg, dualsDelay));
+            pricingDuals[tail.getIndex()] += minReducedCost;
         }
-        y = null;
-
-        Arrays.fill(z, null);
-        z = null;
-
-        v = null;
-
-        Arrays.fill(legCoverConstraints, null);
-        legCoverConstraints = null;
-
-        Arrays.fill(onePathPerTailConstraints, null);
-        onePathPerTailConstraints = null;
-
-        Arrays.fill(legDelayLinkConstraints, null);
-        legDelayLinkConstraints = null;
+        return pricingDuals;
+    }
 
-        for (int i = 0; i < boundConstraints.length; ++i) {
-            Arrays.fill(boundConstraints[i], null);
-            boundConstraints[i] = null;
+    /**
+     * Path variables have no objective cost, so the reduced cost of a path is the negated sum of
+     * the duals of its rows.
+     */
+    private static double getReducedCost(Path path, double dualTail, double[] dualsLeg,
+                                         double[] dualsDelay) {
+        double reducedCost = -dualTail;
+        for (int k = 0; k < path.getNumLegs(); ++k) {
+            final int legIndex = path.getLegIndex(k);
+            reducedCost -= dualsLeg[legIndex];
+
+            final int propagatedDelay = path.getPropagatedDelay(k);
+            if (propagatedDelay > 0)
+                reducedCost -= propagatedDelay * dualsDelay[legIndex];
         }
-        boundConstraints = null;
-
-        riskConstraint = null;
-
-        Arrays.fill(tailCoverExprs, null);
-        tailCoverExprs = null;
+        return reducedCost;
+    }
 
-        Arrays.fill(legCoverExprs, null);
-        legCoverExprs = null;
+    public double getDualRisk() throws OptException {
+        return lpSolver.getDuals(riskRow, 1)[0];
+    }
 
-        Arrays.fill(delayExprs, null);
-        delayExprs = null;
+    public void clear() {
+        y = null;
+        lpSolver = null;
+        matrixBuffer = null;
     }
 }
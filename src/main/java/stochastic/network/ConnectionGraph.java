@@ -0,0 +1,105 @@
+package stochastic.network;
+
+/**
+ * Leg connection graph stored in compressed sparse row (CSR) form.
+ * <p>
+ * Vertices are indices of the leg list used to build the graph. Outgoing edges of vertex i are
+ * the positions e in [offsets[i], offsets[i + 1]). For each such edge, targets[e] is the index
+ * of the connecting leg and slacks[e] is the connection slack in minutes as given by
+ * SolverUtility.getSlackInMin(). Targets of each vertex are sorted in increasing order.
+ * <p>
+ * Hot loops should read the arrays directly instead of going through per-edge accessors.
+ * <p>
+ * The graph also holds a topological order of its vertices, which is computed once when the graph
+ * is built and can be used to process legs such that every connection goes forward.
+ */
+public class ConnectionGraph {
+    private final int numVertices;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] slacks;
+    private int[] topologicalOrder;
+    private boolean acyclic;
+
+    ConnectionGraph(int[] offsets, int[] targets, int[] slacks) {
+        this.numVertices = offsets.length - 1;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.slacks = slacks;
+        buildTopologicalOrder();
+    }
+
+    /**
+     * Builds a topological order of vertices with Kahn's algorithm.
+     * <p>
+     * Connections always go forward in time, so the graph should be a DAG. If it has a cycle
+     * (which can only happen with inconsistent leg data), vertices on or after the cycle are
+     * appended in index order and the graph is marked as cyclic.
+     */
+    private void buildTopologicalOrder() {
+        int[] inDegrees = new int[numVertices];
+        for (int target : targets)
+            ++inDegrees[target];
+
+        topologicalOrder = new int[numVertices];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < numVertices; ++i)
+            if (inDegrees[i] == 0)
+                topologicalOrder[tail++] = i;
+
+        while (head < tail) {
+            final int vertex = topologicalOrder[head++];
+            for (int e = offsets[vertex]; e < offsets[vertex + 1]; ++e)
+                if (--inDegrees[targets[e]] == 0)
+                    topologicalOrder[tail++] = targets[e];
+        }
+
+        acyclic = tail == numVertices;
+        if (!acyclic) {
+            for (int i = 0; i < numVertices; ++i)
+                if (inDegrees[i] > 0)
+                    topologicalOrder[tail++] = i;
+        }
+    }
+
+    public int getNumVertices() {
+        return numVertices;
+    }
+
+    public int getNumEdges() {
+        return offsets[numVertices];
+    }
+
+    public int getOutDegree(int vertex) {
+        return offsets[vertex + 1] - offsets[vertex];
+    }
+
+    /**
+     * @return offsets[i] is the position of the first outgoing edge of vertex i, offsets[n] is
+     * the number of edges.
+     */
+    public int[] getOffsets() {
+        return offsets;
+    }
+
+    public int[] getTargets() {
+        return targets;
+    }
+
+    public int[] getSlacks() {
+        return slacks;
+    }
+
+    /**
+     * @return vertices ordered such that targets of every edge come after its source (valid only
+     * if the graph is acyclic).
+     */
+    public int[] getTopologicalOrder() {
+        return topologicalOrder;
+    }
+
+    public boolean isAcyclic() {
+        return acyclic;
+    }
+}
@@ -0,0 +1,309 @@
+package stochastic.network;
+
+import stochastic.domain.Leg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+
+/**
+ * Builds a ConnectionGraph without comparing every pair of legs.
+ * <p>
+ * Legs are grouped by departure airport into an index sorted by departure time. The connections
+ * of a leg are then exactly the departures from its arrival airport starting at the first one
+ * that leaves at or after (arrival time + turn time), which is found with a binary search. This
+ * makes the build O(n log n + m log d) for n legs, m connections and maximum out-degree d instead
+ * of O(n^2), and the resulting graph is identical to the one built by pairwise Leg.canConnectTo()
+ * checks.
+ * <p>
+ * Leg times are captured when the builder is created, so graphs for reschedule vectors can be
+ * derived later (see buildRescheduled()) even while leg objects are temporarily rescheduled.
+ */
+class ConnectionGraphBuilder {
+    private final int numLegs;
+    private final long[] depTimes; // depTimes[i] is the departure time of legs[i].
+    private final long[] readyTimes; // readyTimes[i] is arrival time + turn time of legs[i].
+    private final int[] depPortIds;
+    private final int[] arrPortIds;
+
+    // Departure index: legs departing from airport p are depPortLegs[depOffsets[p]...depOffsets[p+1]),
+    // sorted by departure time.
+    private int[] depOffsets;
+    private int[] depPortLegs;
+    private long[] depPortTimes;
+
+    // Arrival index: legs arriving at airport p are arrPortLegs[arrOffsets[p]...arrOffsets[p+1]),
+    // sorted by ready time.
+    private int[] arrOffsets;
+    private int[] arrPortLegs;
+    private long[] arrPortTimes;
+
+    ConnectionGraphBuilder(ArrayList<Leg> legs) {
+        numLegs = legs.size();
+        depTimes = new long[numLegs];
+        readyTimes = new long[numLegs];
+        depPortIds = new int[numLegs];
+        arrPortIds = new int[numLegs];
+
+        HashMap<Integer, Integer> portIds = new HashMap<>();
+        for (int i = 0; i < numLegs; ++i) {
+            Leg leg = legs.get(i);
+            depTimes[i] = leg.getDepTime();
+            readyTimes[i] = leg.getArrTime() + leg.getTurnTimeInMin();
+            depPortIds[i] = getPortId(portIds, leg.getDepPort());
+            arrPortIds[i] = getPortId(portIds, leg.getArrPort());
+        }
+
+        final int numPorts = portIds.size();
+        depOffsets = new int[numPorts + 1];
+        depPortLegs = new int[numLegs];
+        depPortTimes = new long[numLegs];
+        buildPortIndex(depPortIds, depTimes, depOffsets, depPortLegs, depPortTimes);
+
+        arrOffsets = new int[numPorts + 1];
+        arrPortLegs = new int[numLegs];
+        arrPortTimes = new long[numLegs];
+        buildPortIndex(arrPortIds, readyTimes, arrOffsets, arrPortLegs, arrPortTimes);
+    }
+
+    ConnectionGraph build() {
+        // First pass: find the first feasible departure of each leg and count connections.
+        int[] firstDeparture = new int[numLegs];
+        int[] lastDeparture = new int[numLegs];
+        int[] offsets = new int[numLegs + 1];
+        for (int i = 0; i < numLegs; ++i) {
+            final int portId = arrPortIds[i];
+            firstDeparture[i] = findFirst(depOffsets[portId], depOffsets[portId + 1],
+                depPortTimes, readyTimes[i]);
+            lastDeparture[i] = depOffsets[portId + 1];
+
+            int degree = lastDeparture[i] - firstDeparture[i];
+            if (depPortIds[i] == portId && depTimes[i] >= readyTimes[i])
+                --degree; // a leg never connects to itself.
+            offsets[i + 1] = offsets[i] + degree;
+        }
+
+        // Second pass: copy connections and sort them by leg index.
+        final int numEdges = offsets[numLegs];
+        int[] targets = new int[numEdges];
+        int[] slacks = new int[numEdges];
+        for (int i = 0; i < numLegs; ++i) {
+            int e = offsets[i];
+            for (int k = firstDeparture[i]; k < lastDeparture[i]; ++k) {
+                if (depPortLegs[k] != i)
+                    targets[e++] = depPortLegs[k];
+            }
+            Arrays.sort(targets, offsets[i], offsets[i + 1]);
+
+            for (e = offsets[i]; e < offsets[i + 1]; ++e)
+                slacks[e] = (int) (depTimes[targets[e]] - readyTimes[i]);
+        }
+
+        return new ConnectionGraph(offsets, targets, slacks);
+    }
+
+    /**
+     * Derives the connection graph obtained by shifting each leg i by reschedules[i] minutes from
+     * the graph built with original leg times.
+     * <p>
+     * Only rows of rescheduled legs and of legs that connect to rescheduled legs are rebuilt,
+     * using the departure and arrival indices; all other rows are copied from the base graph. The
+     * work beyond copying is proportional to the connections of rescheduled legs.
+     *
+     * @param base        graph built with original leg times (i.e. by build()).
+     * @param reschedules reschedules[i] is the shift in minutes of legs[i].
+     * @return new graph, or base itself if no leg is rescheduled.
+     */
+    ConnectionGraph buildRescheduled(ConnectionGraph base, int[] reschedules) {
+        boolean[] rescheduled = new boolean[numLegs];
+        int maxShift = 0;
+        boolean anyRescheduled = false;
+        for (int i = 0; i < numLegs; ++i) {
+            if (reschedules[i] != 0) {
+                rescheduled[i] = true;
+                anyRescheduled = true;
+                maxShift = Math.max(maxShift, reschedules[i]);
+            }
+        }
+        if (!anyRescheduled)
+            return base;
+
+        // Collect connections from legs that are not rescheduled into rescheduled legs, grouped
+        // by source leg. Legs that had or now have such a connection get their rows rebuilt.
+        boolean[] touched = new boolean[numLegs];
+        int[] inCounts = new int[numLegs + 1];
+        EdgeList inEdges = new EdgeList();
+        for (int j = 0; j < numLegs; ++j) {
+            if (!rescheduled[j])
+                continue;
+
+            final int portId = depPortIds[j];
+            final long newDepTime = depTimes[j] + reschedules[j];
+            final long scanLimit = depTimes[j] + Math.max(0, reschedules[j]);
+            for (int k = arrOffsets[portId]; k < arrOffsets[portId + 1]; ++k) {
+                if (arrPortTimes[k] > scanLimit)
+                    break;
+
+                final int i = arrPortLegs[k];
+                if (rescheduled[i])
+                    continue;
+
+                touched[i] = true;
+                if (readyTimes[i] <= newDepTime) {
+                    inEdges.add(i, j);
+                    ++inCounts[i + 1];
+                }
+            }
+        }
+
+        // Group collected connections by source leg with a counting sort.
+        for (int i = 0; i < numLegs; ++i)
+            inCounts[i + 1] += inCounts[i];
+        int[] inTargets = new int[inEdges.size];
+        int[] next = Arrays.copyOf(inCounts, numLegs);
+        for (int k = 0; k < inEdges.size; ++k)
+            inTargets[next[inEdges.sources[k]]++] = inEdges.targets[k];
+
+        final int[] baseOffsets = base.getOffsets();
+        final int[] baseTargets = base.getTargets();
+        final int[] baseSlacks = base.getSlacks();
+        int[] offsets = new int[numLegs + 1];
+        EdgeList edges = new EdgeList(baseTargets.length);
+        for (int i = 0; i < numLegs; ++i) {
+            offsets[i] = edges.size;
+            if (rescheduled[i]) {
+                // Rebuild the row from departures that can still be feasible after shifting.
+                final int portId = arrPortIds[i];
+                final long newReadyTime = readyTimes[i] + reschedules[i];
+                final int first = findFirst(depOffsets[portId], depOffsets[portId + 1],
+                    depPortTimes, newReadyTime - maxShift);
+                for (int k = first; k < depOffsets[portId + 1]; ++k) {
+                    final int j = depPortLegs[k];
+                    if (j != i && depPortTimes[k] + reschedules[j] >= newReadyTime)
+                        edges.add(i, j);
+                }
+            } else if (touched[i]) {
+                // Keep connections to legs that are not rescheduled and add the collected ones.
+                for (int e = baseOffsets[i]; e < baseOffsets[i + 1]; ++e) {
+                    if (!rescheduled[baseTargets[e]])
+                        edges.add(i, baseTargets[e]);
+                }
+                for (int k = inCounts[i]; k < inCounts[i + 1]; ++k)
+                    edges.add(i, inTargets[k]);
+            } else {
+                edges.addAll(i, baseTargets, baseSlacks, baseOffsets[i], baseOffsets[i + 1]);
+                continue;
+            }
+
+            Arrays.sort(edges.targets, offsets[i], edges.size);
+            for (int e = offsets[i]; e < edges.size; ++e) {
+                final int j = edges.targets[e];
+                edges.slacks[e] = (int) ((depTimes[j] + reschedules[j])
+                    - (readyTimes[i] + reschedules[i]));
+            }
+        }
+        offsets[numLegs] = edges.size;
+
+        return new ConnectionGraph(offsets, Arrays.copyOf(edges.targets, edges.size),
+            Arrays.copyOf(edges.slacks, edges.size));
+    }
+
+    private static int getPortId(HashMap<Integer, Integer> portIds, Integer port) {
+        Integer portId = portIds.get(port);
+        if (portId == null) {
+            portId = portIds.size();
+            portIds.put(port, portId);
+        }
+        return portId;
+    }
+
+    /**
+     * Groups leg indices by airport with a counting sort over legs ordered by the given times.
+     */
+    private void buildPortIndex(int[] portIdsOfLegs, long[] times, int[] offsets, int[] portLegs,
+                                long[] portTimes) {
+        final int numPorts = offsets.length - 1;
+        for (int i = 0; i < numLegs; ++i)
+            ++offsets[portIdsOfLegs[i] + 1];
+        for (int p = 0; p < numPorts; ++p)
+            offsets[p + 1] += offsets[p];
+
+        Integer[] byTime = new Integer[numLegs];
+        for (int i = 0; i < numLegs; ++i)
+            byTime[i] = i;
+        Arrays.sort(byTime, Comparator.comparingLong(i -> times[i]));
+
+        int[] next = Arrays.copyOf(offsets, numPorts);
+        for (Integer legIndex : byTime) {
+            final int pos = next[portIdsOfLegs[legIndex]]++;
+            portLegs[pos] = legIndex;
+            portTimes[pos] = times[legIndex];
+        }
+    }
+
+    /**
+     * Finds the first position in [lo, hi) of the given sorted times with a time at or after the
+     * given time.
+     *
+     * @return position in [lo, hi].
+     */
+    private static int findFirst(int lo, int hi, long[] times, long time) {
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (times[mid] < time)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Growable edge storage used while building rescheduled graphs.
+     */
+    private static class EdgeList {
+        private int[] sources;
+        private int[] targets;
+        private int[] slacks;
+        private int size;
+
+        EdgeList() {
+            this(16);
+        }
+
+        EdgeList(int capacity) {
+            capacity = Math.max(capacity, 16);
+            sources = new int[capacity];
+            targets = new int[capacity];
+            slacks = new int[capacity];
+            size = 0;
+        }
+
+        void add(int source, int target) {
+            ensureCapacity(size + 1);
+            sources[size] = source;
+            targets[size] = target;
+            ++size;
+        }
+
+        void addAll(int source, int[] fromTargets, int[] fromSlacks, int begin, int end) {
+            final int num = end - begin;
+            ensureCapacity(size + num);
+            Arrays.fill(sources, size, size + num, source);
+            System.arraycopy(fromTargets, begin, targets, size, num);
+            System.arraycopy(fromSlacks, begin, slacks, size, num);
+            size += num;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= targets.length)
+                return;
+
+            final int newCapacity = Math.max(capacity, 2 * targets.length);
+            sources = Arrays.copyOf(sources, newCapacity);
+            targets = Arrays.copyOf(targets, newCapacity);
+            slacks = Arrays.copyOf(slacks, newCapacity);
+        }
+    }
+}
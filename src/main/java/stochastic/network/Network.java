@@ -6,8 +6,6 @@ import stochastic.domain.Leg;
 import stochastic.domain.Tail;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
 
 public class Network {
     /**
@@ -19,35 +17,73 @@ public class Network {
     private final static Logger logger = LogManager.getLogger(Network.class);
 
     private final ArrayList<Leg> legs;
-    private HashMap<Integer, ArrayList<Integer>> adjacencyList; // keys and values are indices of leg list.
+    private final ConnectionGraphBuilder graphBuilder;
+    private final ConnectionGraph connectionGraph;
+    private final PathCounter pathCounter; // keeps path counts per sink port between calls.
+    private PathTopology pathTopology; // enumerated on first use.
+    private PathStore pathStore; // enumerated on first use.
 
     public Network(ArrayList<Leg> legs) {
         this.legs = legs;
-        buildAdjacencyList();
+
+        // Builds leg connection graph by evaluating connections including delays.
+        logger.info("started building connection graph...");
+        graphBuilder = new ConnectionGraphBuilder(legs);
+        connectionGraph = graphBuilder.build();
+        pathCounter = new PathCounter(legs, connectionGraph);
+        if (!connectionGraph.isAcyclic())
+            logger.warn("connection graph has cycles, labeling may drop optimal paths.");
+        logger.info("completed building connection graph.");
+    }
+
+    private Network(Network base, ConnectionGraph connectionGraph) {
+        this.legs = base.legs;
+        this.graphBuilder = base.graphBuilder;
+        this.connectionGraph = connectionGraph;
+        this.pathCounter = new PathCounter(legs, connectionGraph);
+    }
+
+    /**
+     * Provides a view of this network in which each leg i departs and arrives reschedules[i]
+     * minutes later than in the schedule used to build this network.
+     * <p>
+     * The view shares legs with this network and is never modified. Its connections and slacks
+     * are derived from this network by updating only connections of rescheduled legs, so no
+     * full rebuild is needed. The leg objects themselves are not touched, so the view stays valid
+     * whether or not Leg.reschedule() has been applied to them.
+     *
+     * @param reschedules reschedules[i] is the reschedule in minutes of legs[i] (can be null).
+     * @return network with connections for the rescheduled times.
+     */
+    public Network getRescheduledNetwork(int[] reschedules) {
+        if (reschedules == null)
+            return this;
+
+        ConnectionGraph rescheduledGraph = graphBuilder.buildRescheduled(connectionGraph,
+            reschedules);
+        return rescheduledGraph == connectionGraph ? this : new Network(this, rescheduledGraph);
+    }
+
+    public ConnectionGraph getConnectionGraph() {
+        return connectionGraph;
     }
 
     public int getNumConnections() {
-        int numConnections = 0;
-        for (Map.Entry<Integer, ArrayList<Integer>> entry : adjacencyList.entrySet()) {
-            numConnections += entry.getValue().size();
-        }
-        return numConnections;
+        return connectionGraph.getNumEdges();
     }
 
     public long computeNumRoundTripsTo(Integer airportId) {
+        final int[] offsets = connectionGraph.getOffsets();
+        final int[] targets = connectionGraph.getTargets();
         long numTrips = 0;
         for (Leg leg : legs) {
             if (airportId != null && !leg.getDepPort().equals(airportId))
                 continue;
 
-            final Integer index = leg.getIndex();
-            if (!adjacencyList.containsKey(index))
-                continue;
-
-            ArrayList<Integer> neighborLegIndices = adjacencyList.get(index);
+            final int index = leg.getIndex();
             final Integer depPort = leg.getDepPort();
-            for (Integer neighborIndex : neighborLegIndices) {
-                Leg neighbor = legs.get(neighborIndex);
+            for (int e = offsets[index]; e < offsets[index + 1]; ++e) {
+                Leg neighbor = legs.get(targets[e]);
                 if (neighbor.getArrPort().equals(depPort))
                     ++numTrips;
             }
@@ -57,67 +93,99 @@ public class Network {
 
     public double computeDensity() {
         long numVertices = legs.size();
-        long numEdges = 0;
-        for (ArrayList<Integer> neighbors : adjacencyList.values()) {
-            numEdges += neighbors.size();
-        }
+        long numEdges = connectionGraph.getNumEdges();
         return (2.0 * (numEdges)) / (numVertices * (numVertices - 1));
     }
 
     public long countPathsForTails(ArrayList<Tail> tails) {
+        long[] numPaths = countPathsPerTail(tails);
         long totalNumPaths = 0;
-        for (Tail tail : tails) {
-            PathCounter pc = new PathCounter(tail, legs, adjacencyList);
-            long numPathsForTail = pc.countPathsForTail();
+        for (int i = 0; i < tails.size(); ++i) {
+            Tail tail = tails.get(i);
             logger.info("number of paths for tail " + tail.getId() + "(" + tail.getSourcePort() + " -> "
-                    + tail.getSinkPort() + "): " + numPathsForTail);
-            totalNumPaths += numPathsForTail;
+                    + tail.getSinkPort() + "): " + numPaths[i]);
+            totalNumPaths = PathCounter.saturatedAdd(totalNumPaths, numPaths[i]);
         }
         return totalNumPaths;
     }
 
-    public ArrayList<Path> enumeratePathsForTails(ArrayList<Tail> tails, int[] delays) {
-        ArrayList<Path> paths = new ArrayList<>();
-        for (Tail tail : tails) {
-            PathEnumerator pe = new PathEnumerator(tail, legs, delays, adjacencyList);
-            ArrayList<Path> tailPaths = pe.generatePaths();
-            paths.addAll(tailPaths);
-        }
-        Path.resetPathCounter();
-        return paths;
+    /**
+     * Counts paths of the given tails without enumerating them. Counts of sink ports are kept,
+     * so later calls only count paths to new sink ports.
+     *
+     * @param tails tails for which paths are counted.
+     * @return numbers of paths of tails in the given order, Long.MAX_VALUE if too many to count.
+     */
+    public long[] countPathsPerTail(ArrayList<Tail> tails) {
+        return pathCounter.countPathsForTails(tails);
     }
 
-    private void buildAdjacencyList() {
-        // Builds leg adjacency list by evaluating connections including delays.
-        logger.info("started building adjacency list...");
-        adjacencyList = new HashMap<>();
-        final int numLegs = legs.size();
-        for (int i = 0; i < numLegs - 1; ++i) {
-            Leg currLeg = legs.get(i);
-
-            for (int j = i + 1; j < numLegs; ++j) {
-                Leg nextLeg = legs.get(j);
-
-                if (currLeg.canConnectTo(nextLeg))
-                    addNeighbor(i, j);
-                if (nextLeg.canConnectTo(currLeg))
-                    addNeighbor(j, i);
-            }
+    /**
+     * Provides all paths of the given tails as leg sequences. They are enumerated on the first
+     * call and reused by later calls with the same tails, so scenarios only need to compute
+     * their propagated delays.
+     *
+     * @param tails tails for which paths are needed.
+     * @return scenario-independent paths of the tails.
+     */
+    public synchronized PathTopology getPathTopology(ArrayList<Tail> tails) {
+        if (pathTopology == null || !pathTopology.getTails().equals(tails)) {
+            pathTopology = PathTopology.enumerate(tails, legs, connectionGraph);
+            logger.info("enumerated " + pathTopology.getNumPaths() + " paths for "
+                + tails.size() + " tails");
         }
-        logger.info("completed building adjacency list.");
+        return pathTopology;
     }
 
-    public ArrayList<Integer> getNeighbors(int legIndex) {
-        return adjacencyList.getOrDefault(legIndex, null);
+    /**
+     * Passes all paths of the given tails to a consumer as they are enumerated, without keeping
+     * them.
+     *
+     * @param tails    tails for which paths are enumerated.
+     * @param consumer consumer of the paths.
+     */
+    public void enumeratePaths(ArrayList<Tail> tails, PathConsumer consumer) {
+        PathEnumerator.enumeratePaths(tails, legs, connectionGraph, consumer);
     }
 
-    private void addNeighbor(Integer legIndex, Integer neighborIndex) {
-        if (adjacencyList.containsKey(legIndex))
-            adjacencyList.get(legIndex).add(neighborIndex);
-        else {
-            ArrayList<Integer> neighbors = new ArrayList<>();
-            neighbors.add(neighborIndex);
-            adjacencyList.put(legIndex, neighbors);
+    /**
+     * Provides all paths of the given tails in a store outside the heap. They are enumerated on
+     * the first call and reused by later calls with the same tails, so scenarios only read them
+     * with their own primary delays. A store for other tails replaces the previous one, which is
+     * closed.
+     *
+     * @param tails        tails for which paths are needed.
+     * @param memoryBudget memory budget of a new store, see PathStore.
+     * @return scenario-independent paths of the tails.
+     * @throws java.io.UncheckedIOException if paths cannot be spilled to a file.
+     */
+    public synchronized PathStore getPathStore(ArrayList<Tail> tails, long memoryBudget) {
+        if (pathStore != null && pathStore.getTails().equals(tails))
+            return pathStore;
+
+        closePathStore();
+        PathStore store = new PathStore(tails, memoryBudget);
+        try {
+            PathEnumerator.enumeratePaths(tails, legs, connectionGraph, store);
+        } catch (RuntimeException re) {
+            store.close();
+            throw re;
         }
+        pathStore = store;
+        logger.info("stored " + pathStore.getNumPaths() + " paths for " + tails.size()
+            + " tails");
+        return pathStore;
+    }
+
+    /**
+     * Closes the store of getPathStore(), if any. A later call of getPathStore() enumerates paths
+     * again.
+     */
+    public synchronized void closePathStore() {
+        if (pathStore == null)
+            return;
+
+        pathStore.close();
+        pathStore = null;
     }
 }
@@ -5,24 +5,73 @@ import stochastic.domain.Tail;
 import stochastic.utility.OptException;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Represents a column for the model.
  * Holds the tail for which it was generated and a list of legs.
+ * <p>
+ * Paths are stored compactly as a range [offset, offset + numLegs) of a leg index array and a
+ * propagated delay array. These arrays can be pools shared by many paths, like the leg sequences
+ * of a PathTopology that are shared by paths of all scenarios. Leg objects are looked up by index
+ * in the leg list of the network, so hot code should use getLegIndex() and getPropagatedDelay()
+ * instead of getLegs() and getPropagatedDelays(), which build lists.
+ * <p>
+ * Paths built leg by leg with addLeg() keep their own arrays and their own leg list.
  */
 public class Path {
     private final Tail tail;
-    private final ArrayList<Leg> legs;
-    private final ArrayList<Integer> propagatedDelays;
-    private static int pathCounter = 0;
+    private final ArrayList<Leg> legs; // legs of the network, or legs of the path if ownsLegs.
+    private final boolean ownsLegs;
+    private int[] legIndices;
+    private int[] propagatedDelays;
+    private final int offset;
+    private int numLegs;
+    private static final AtomicInteger pathCounter = new AtomicInteger(0); // paths are built concurrently.
     private final int index;
 
     public Path(Tail tail) {
+        this(tail, new ArrayList<>(), true, new int[4], new int[4], 0, 0);
+    }
+
+    /**
+     * Builds a path with the given leg indices and propagated delays. The arrays are not copied.
+     *
+     * @param tail             tail of the path.
+     * @param legs             legs of the network, legs[i] must have index i.
+     * @param legIndices       indices of legs of the path in order of flying.
+     * @param propagatedDelays propagatedDelays[i] is the delay propagated to legIndices[i].
+     */
+    public Path(Tail tail, ArrayList<Leg> legs, int[] legIndices, int[] propagatedDelays) {
+        this(tail, legs, false, legIndices, propagatedDelays, 0, legIndices.length);
+    }
+
+    /**
+     * Builds a path that is a range of arrays shared with other paths. The arrays are not copied.
+     *
+     * @param tail             tail of the path.
+     * @param legs             legs of the network, legs[i] must have index i.
+     * @param legIndices       pool of leg indices.
+     * @param propagatedDelays pool of propagated delays aligned with legIndices.
+     * @param offset           position of the first leg of the path in the pools.
+     * @param numLegs          number of legs of the path.
+     */
+    public Path(Tail tail, ArrayList<Leg> legs, int[] legIndices, int[] propagatedDelays,
+                int offset, int numLegs) {
+        this(tail, legs, false, legIndices, propagatedDelays, offset, numLegs);
+    }
+
+    private Path(Tail tail, ArrayList<Leg> legs, boolean ownsLegs, int[] legIndices,
+                 int[] propagatedDelays, int offset, int numLegs) {
         this.tail = tail;
-        legs = new ArrayList<>();
-        propagatedDelays = new ArrayList<>();
-        index = pathCounter;
-        pathCounter++;
+        this.legs = legs;
+        this.ownsLegs = ownsLegs;
+        this.legIndices = legIndices;
+        this.propagatedDelays = propagatedDelays;
+        this.offset = offset;
+        this.numLegs = numLegs;
+        index = pathCounter.getAndIncrement();
     }
 
     @Override
@@ -30,63 +79,118 @@ public class Path {
         StringBuilder pathStr = new StringBuilder();
         pathStr.append(index);
         pathStr.append(": ");
-        if (legs.isEmpty()) {
+        if (numLegs == 0) {
             pathStr.append("empty");
         } else {
-            pathStr.append(legs.get(0).getId());
-            for (int i = 1; i < legs.size(); ++i) {
+            pathStr.append(getLeg(0).getId());
+            for (int i = 1; i < numLegs; ++i) {
                 pathStr.append(" -> ");
-                pathStr.append(legs.get(i).getId());
+                pathStr.append(getLeg(i).getId());
             }
         }
         return pathStr.toString();
     }
 
-    static void resetPathCounter() {
-        pathCounter = 0;
-    }
-
+    /**
+     * Appends a leg to a path built with Path(Tail).
+     */
     public void addLeg(Leg leg, Integer delayTimeInMin) {
-        legs.add(leg);
+        if (!ownsLegs)
+            throw new IllegalStateException("legs can only be added to paths built leg by leg");
 
         if (delayTimeInMin == null)
             delayTimeInMin = 0;
 
-        propagatedDelays.add(delayTimeInMin);
+        if (numLegs == legIndices.length) {
+            final int capacity = Math.max(4, 2 * numLegs);
+            legIndices = Arrays.copyOf(legIndices, capacity);
+            propagatedDelays = Arrays.copyOf(propagatedDelays, capacity);
+        }
+        legs.add(leg);
+        legIndices[numLegs] = leg.getIndex();
+        propagatedDelays[numLegs] = delayTimeInMin;
+        ++numLegs;
+    }
+
+    /**
+     * Provides a path with the same tail and legs and the given propagated delays. The new path
+     * has its own leg indices, and its own leg list if this path was built leg by leg, so adding
+     * legs to either path does not change the other.
+     *
+     * @param delays delays[i] is the delay propagated to the i-th leg of the path, the array is
+     *               not copied.
+     * @return path with the given delays.
+     */
+    public Path withPropagatedDelays(int[] delays) {
+        final int[] indices = Arrays.copyOfRange(legIndices, offset, offset + numLegs);
+        final ArrayList<Leg> pathLegs = ownsLegs ? new ArrayList<>(legs) : legs;
+        return new Path(tail, pathLegs, ownsLegs, indices, delays, 0, numLegs);
     }
 
     public Tail getTail() {
         return tail;
     }
 
+    public int getNumLegs() {
+        return numLegs;
+    }
+
+    public boolean isEmpty() {
+        return numLegs == 0;
+    }
+
+    public int getLegIndex(int i) {
+        return legIndices[offset + i];
+    }
+
+    public int getPropagatedDelay(int i) {
+        return propagatedDelays[offset + i];
+    }
+
+    public Leg getLeg(int i) {
+        return ownsLegs ? legs.get(i) : legs.get(legIndices[offset + i]);
+    }
+
+    /**
+     * @return a new list with the legs of the path.
+     */
     public ArrayList<Leg> getLegs() {
-        return legs;
+        ArrayList<Leg> pathLegs = new ArrayList<>(numLegs);
+        for (int i = 0; i < numLegs; ++i)
+            pathLegs.add(getLeg(i));
+        return pathLegs;
     }
 
     public int getIndex() {
         return index;
     }
 
+    /**
+     * @return a new list with the propagated delays of legs of the path.
+     */
     public ArrayList<Integer> getPropagatedDelays() {
-        return propagatedDelays;
+        ArrayList<Integer> delays = new ArrayList<>(numLegs);
+        for (int i = 0; i < numLegs; ++i)
+            delays.add(propagatedDelays[offset + i]);
+        return delays;
     }
 
     public void checkLegality() throws OptException {
-        if (legs.isEmpty())
+        if (numLegs == 0)
             throw new OptException("empty path for " + tail);
 
         // Check connection with source station.
-        if (!legs.get(0).getDepPort().equals(tail.getSourcePort()))
+        if (!getLeg(0).getDepPort().equals(tail.getSourcePort()))
             throw new OptException("source station mismatch for " + tail);
 
         // Check connection with sink station.
-        if (!legs.get(legs.size() - 1).getArrPort().equals(tail.getSinkPort()))
+        if (!getLeg(numLegs - 1).getArrPort().equals(tail.getSinkPort()))
             throw new OptException("sink station mismatch for " + tail);
 
         // Check connection between legs.
-        for (int i = 0; i < legs.size() - 1; ++i) {
-            Leg currLeg = legs.get(i);
-            Leg nextLeg = legs.get(i+1);
+        for (int i = 0; i < numLegs - 1; ++i) {
+            Leg currLeg = getLeg(i);
+            Leg nextLeg = getLeg(i + 1);
             if (!currLeg.canConnectTo(nextLeg))
                 throw new OptException("invalid leg connection on path for " + tail);
         }
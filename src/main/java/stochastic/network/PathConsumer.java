@@ -0,0 +1,29 @@
+package stochastic.network;
+
+import stochastic.domain.Tail;
+
+/**
+ * Receives paths one by one while they are enumerated, so that callers only keep what they need
+ * instead of a list of all paths.
+ */
+@FunctionalInterface
+public interface PathConsumer {
+    /**
+     * Receives a path found by enumeration. The arrays are reused for later paths, so
+     * implementations must copy what they keep.
+     *
+     * @param tail       tail of the path.
+     * @param legIndices legIndices[i] is the index of the i-th leg of the path.
+     * @param slacks     slacks[i] is the slack of the connection to the i-th leg (0 for the first).
+     * @param numLegs    number of legs of the path.
+     */
+    void accept(Tail tail, int[] legIndices, int[] slacks, int numLegs);
+
+    /**
+     * Called after all paths of a tail have been passed to accept().
+     *
+     * @param tail tail whose paths are complete.
+     */
+    default void endTail(Tail tail) {
+    }
+}
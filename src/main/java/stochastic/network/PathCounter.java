@@ -4,54 +4,81 @@ import stochastic.domain.Leg;
 import stochastic.domain.Tail;
 
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 class PathCounter {
-    private ArrayList<Leg> legs;
-    private Tail tail;
-    private int[] numPathsToSink;
-    private HashMap<Integer, ArrayList<Integer>> adjacencyList; // keys and values are indices of leg list.
+    /**
+     * Class used to count paths of tails without enumerating them.
+     * <p>
+     * For a sink port, the number of paths from each leg to the sink is computed with a DP over
+     * legs in reverse topological order: a leg has one path if it arrives at the sink, plus the
+     * paths of each leg it connects to. The counts only depend on the sink, so they are kept per
+     * sink port and shared by all tails ending there. Counts grow exponentially with the length of
+     * paths, so they saturate at Long.MAX_VALUE instead of overflowing.
+     */
+    private final ArrayList<Leg> legs;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] topologicalOrder;
+    private final ConcurrentHashMap<Integer, long[]> numPathsToSink; // indexed by sink port.
 
-    PathCounter(Tail tail, ArrayList<Leg> legs, HashMap<Integer, ArrayList<Integer>> adjacencyList) {
-        this.tail = tail;
+    PathCounter(ArrayList<Leg> legs, ConnectionGraph connectionGraph) {
         this.legs = legs;
-        numPathsToSink = new int[legs.size()];
-        Arrays.fill(numPathsToSink, -1);
-        this.adjacencyList = adjacencyList;
+        this.offsets = connectionGraph.getOffsets();
+        this.targets = connectionGraph.getTargets();
+        this.topologicalOrder = connectionGraph.getTopologicalOrder();
+        numPathsToSink = new ConcurrentHashMap<>();
     }
 
-    long countPathsForTail() {
-        long numPaths = 0;
-        for (Leg leg : legs) {
-            if (!tail.getSourcePort().equals(leg.getDepPort()))
-                continue;
-
-            Integer index = leg.getIndex();
-            if (numPathsToSink[index] < 0)
-                findNumPathsToSink(index);
-
-            numPaths += numPathsToSink[index];
-        }
+    /**
+     * Counts paths of each of the given tails, with counts of distinct sink ports computed in
+     * parallel.
+     *
+     * @param tails tails for which paths are counted.
+     * @return numbers of paths of tails in the given order.
+     */
+    long[] countPathsForTails(ArrayList<Tail> tails) {
+        tails.stream()
+            .map(Tail::getSinkPort)
+            .distinct()
+            .parallel()
+            .forEach(sinkPort -> numPathsToSink.computeIfAbsent(sinkPort, this::countPathsToSink));
 
+        long[] numPaths = new long[tails.size()];
+        for (int i = 0; i < tails.size(); ++i)
+            numPaths[i] = countPathsForTail(tails.get(i));
         return numPaths;
     }
 
-    private void findNumPathsToSink(Integer legIndex) {
-        int numPaths = 0;
-        if (legs.get(legIndex).getArrPort().equals(tail.getSinkPort()))
-            numPaths += 1;
+    long countPathsForTail(Tail tail) {
+        long[] pathsToSink = numPathsToSink.computeIfAbsent(tail.getSinkPort(),
+            this::countPathsToSink);
 
-        ArrayList<Integer> neighbors = adjacencyList.getOrDefault(legIndex, null);
-        if (neighbors != null) {
-            for (Integer neighborIndex : neighbors) {
-                if (numPathsToSink[neighborIndex] < 0)
-                    findNumPathsToSink(neighborIndex);
+        long numPaths = 0;
+        for (Leg leg : legs) {
+            if (tail.getSourcePort().equals(leg.getDepPort()))
+                numPaths = saturatedAdd(numPaths, pathsToSink[leg.getIndex()]);
+        }
+        return numPaths;
+    }
 
-                numPaths += numPathsToSink[neighborIndex];
-            }
+    private long[] countPathsToSink(Integer sinkPort) {
+        long[] pathsToSink = new long[legs.size()];
+        for (int i = topologicalOrder.length - 1; i >= 0; --i) {
+            final int legIndex = topologicalOrder[i];
+            long numPaths = legs.get(legIndex).getArrPort().equals(sinkPort) ? 1 : 0;
+            for (int e = offsets[legIndex]; e < offsets[legIndex + 1]; ++e)
+                numPaths = saturatedAdd(numPaths, pathsToSink[targets[e]]);
+            pathsToSink[legIndex] = numPaths;
         }
+        return pathsToSink;
+    }
 
-        numPathsToSink[legIndex] = numPaths;
+    /**
+     * @return a + b for non-negative a and b, or Long.MAX_VALUE if the sum overflows.
+     */
+    static long saturatedAdd(long a, long b) {
+        final long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
     }
 }
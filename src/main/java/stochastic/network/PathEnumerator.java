@@ -2,48 +2,73 @@ package stochastic.network;
 
 import stochastic.domain.Leg;
 import stochastic.domain.Tail;
-import stochastic.solver.SolverUtility;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 
 class PathEnumerator {
     /**
      * Class used to enumerate all paths for a particular tail.
+     * <p>
+     * Paths are enumerated as leg sequences independent of delays and passed to a PathConsumer
+     * as soon as they are found. The DFS uses an explicit stack, so memory used by the
+     * enumeration itself is linear in the number of legs regardless of the number of paths.
      */
-    private Tail tail;
-    private ArrayList<Leg> legs;
-    private int[] primaryDelays;
-    private HashMap<Integer, ArrayList<Integer>> adjacencyList;
-
-    private ArrayList<Path> paths;
-
-    private ArrayList<Integer> currentPath;
-    private boolean[] onPath;
+    private final Tail tail;
+    private final ArrayList<Leg> legs;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] slacks;
 
     /**
-     * delayTimes[i] the delay of legs[i] on the current path stored in "currentPath". It is the
-     * sum of delay propagated to it by upstream legs and its own random primary delay.
+     * Stack of the DFS. currentPath[i] is the index of the i-th leg of the path being built,
+     * currentSlacks[i] the slack of the connection to it and nextEdges[i] the next of its
+     * outgoing edges to explore. Only the first pathLength entries are used.
      */
-    private ArrayList<Integer> propagatedDelays;
+    private final int[] currentPath;
+    private final int[] currentSlacks;
+    private final int[] nextEdges;
+    private int pathLength;
+    private final boolean[] onPath;
 
-    PathEnumerator(
-        Tail tail, ArrayList<Leg> legs, int[] primaryDelays,
-        HashMap<Integer, ArrayList<Integer>> adjacencyList) {
+    PathEnumerator(Tail tail, ArrayList<Leg> legs, ConnectionGraph connectionGraph) {
         this.tail = tail;
         this.legs = legs;
-        this.primaryDelays = primaryDelays;
-        this.adjacencyList = adjacencyList;
-
-        paths = new ArrayList<>();
-        currentPath = new ArrayList<>();
-        propagatedDelays = new ArrayList<>();
+        this.offsets = connectionGraph.getOffsets();
+        this.targets = connectionGraph.getTargets();
+        this.slacks = connectionGraph.getSlacks();
+
+        // a path visits each leg at most once.
+        currentPath = new int[legs.size()];
+        currentSlacks = new int[legs.size()];
+        nextEdges = new int[legs.size()];
+        pathLength = 0;
         onPath = new boolean[legs.size()];
-        for (int i = 0; i < legs.size(); ++i)
-            onPath[i] = false;
     }
 
-    ArrayList<Path> generatePaths() {
+    /**
+     * Enumerates paths of each of the given tails into a consumer.
+     *
+     * @param tails           tails for which paths are enumerated.
+     * @param legs            legs that are vertices of the graph.
+     * @param connectionGraph connection graph of legs.
+     * @param consumer        consumer that receives paths tail by tail.
+     */
+    static void enumeratePaths(ArrayList<Tail> tails, ArrayList<Leg> legs,
+                               ConnectionGraph connectionGraph, PathConsumer consumer) {
+        for (Tail tail : tails) {
+            PathEnumerator pe = new PathEnumerator(tail, legs, connectionGraph);
+            pe.enumeratePaths(consumer);
+            consumer.endTail(tail);
+        }
+    }
+
+    /**
+     * Passes leg sequences of all paths of the tail to the given consumer, in DFS pre-order from
+     * source legs in index order.
+     *
+     * @param consumer consumer of the paths.
+     */
+    void enumeratePaths(PathConsumer consumer) {
         for (int i = 0; i < legs.size(); ++i) {
             Leg leg = legs.get(i);
 
@@ -51,56 +76,40 @@ class PathEnumerator {
                 continue;
 
             // generate paths starting from leg.
-            depthFirstSearch(i, 0);
+            push(i, 0, consumer);
+            while (pathLength > 0) {
+                final int top = pathLength - 1;
+                final int legIndex = currentPath[top];
+                if (nextEdges[top] == offsets[legIndex + 1]) {
+                    // all neighbors explored, backtrack.
+                    onPath[legIndex] = false;
+                    --pathLength;
+                    continue;
+                }
+
+                final int e = nextEdges[top]++;
+                if (!onPath[targets[e]])
+                    push(targets[e], slacks[e], consumer);
+            }
         }
-        return paths;
     }
 
     /**
-     * Uses DFS to recursively build and store paths including delay times on each path.
-     * Delay incurred by a leg when added to a path is the sum of
-     * - delay propagated to it by the previous leg
-     * - its own random primary delay
+     * Adds a leg to the current path and passes the path to the consumer if it can end there.
      *
      * @param legIndex index of leg in "legs" member to add to the current path
-     * @param propagatedDelay delay time incurred by leg when added to the current path
+     * @param slack slack of the connection from the previous leg on the current path
+     * @param consumer consumer of the paths
      */
-    private void depthFirstSearch(Integer legIndex, Integer propagatedDelay) {
-        // add index to current path
-        currentPath.add(legIndex);
+    private void push(int legIndex, int slack, PathConsumer consumer) {
+        currentPath[pathLength] = legIndex;
+        currentSlacks[pathLength] = slack;
+        nextEdges[pathLength] = offsets[legIndex];
+        ++pathLength;
         onPath[legIndex] = true;
-        propagatedDelays.add(propagatedDelay);
 
         // if the last leg on the path can connect to the sink node, store the current path
-        Leg leg = legs.get(legIndex);
-        if (leg.getArrPort().equals(tail.getSinkPort()))
-            storeCurrentPath();
-
-        // dive to current node's neighbors
-        if (adjacencyList.containsKey(legIndex)) {
-            ArrayList<Integer> neighbors = adjacencyList.get(legIndex);
-            for (Integer neighborIndex : neighbors) {
-                if (onPath[neighborIndex])
-                    continue;
-
-                Leg neighborLeg = legs.get(neighborIndex);
-                final int propagatedDelayToNext = SolverUtility.getPropagatedDelay(
-                    leg, neighborLeg, propagatedDelay + primaryDelays[legIndex]);
-                depthFirstSearch(neighborIndex, propagatedDelayToNext);
-            }
-        }
-
-        currentPath.remove(currentPath.size() - 1);
-        propagatedDelays.remove(propagatedDelays.size() - 1);
-        onPath[legIndex] = false;
-    }
-
-    private void storeCurrentPath() {
-        Path path = new Path(tail);
-        for (int i = 0; i < currentPath.size(); ++i) {
-            Leg leg = legs.get(currentPath.get(i));
-            path.addLeg(leg, propagatedDelays.get(i));
-        }
-        paths.add(path);
+        if (legs.get(legIndex).getArrPort().equals(tail.getSinkPort()))
+            consumer.accept(tail, currentPath, currentSlacks, pathLength);
     }
 }
@@ -0,0 +1,223 @@
+package stochastic.network;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import stochastic.domain.Tail;
+import stochastic.utility.OptException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stores enumerated paths outside the Java heap, for path sets that do not fit into it.
+ * <p>
+ * Paths are received as a PathConsumer and stored as records of ints: the number of legs n, the
+ * index of the first leg, then the connection slack and index of each of the remaining n - 1 legs.
+ * Records are appended to fixed-size segments held in direct byte buffers. Once the direct
+ * segments of all stores of the process would exceed the memory budget, or the JVM refuses to
+ * allocate more direct memory, new segments are mapped from a temporary file instead, so the
+ * operating system pages them out as needed.
+ * <p>
+ * Paths are read back tail by tail with propagated delays of a scenario computed while reading,
+ * so no delays are stored. Once all paths were stored, paths can be read by several threads at
+ * once. Call close() to release the temporary file.
+ */
+public class PathStore implements PathConsumer, AutoCloseable {
+    private final static Logger logger = LogManager.getLogger(PathStore.class);
+    private static final int DEFAULT_SEGMENT_SHIFT = 24; // 64 MB segments.
+    private static final AtomicLong totalDirectBytes = new AtomicLong(0); // of all open stores.
+
+    private final ArrayList<Tail> tails;
+    private final long memoryBudget; // bytes of direct segments.
+    private final int segmentShift;
+    private final int segmentMask;
+
+    private final ArrayList<IntBuffer> segments;
+    private long size; // number of stored ints.
+    private long numDirectBytes;
+    private long numSpilledBytes;
+    private java.nio.file.Path spillFile;
+    private FileChannel spillChannel;
+
+    private final long[] tailStarts; // records of tails[k] start at position tailStarts[k].
+    private final int[] numTailPaths;
+    private int numTails;
+    private long numPaths;
+    private int maxNumLegs;
+
+    /**
+     * Receives a path read from the store. The arrays are reused for later paths.
+     */
+    @FunctionalInterface
+    public interface PathVisitor {
+        void visit(Tail tail, int[] legIndices, int[] propagatedDelays, int numLegs)
+            throws OptException;
+    }
+
+    /**
+     * @param tails        tails whose paths will be stored, paths must be received in this order.
+     * @param memoryBudget maximum number of bytes kept in direct memory by all stores of the
+     *                     process before spilling to a file.
+     */
+    public PathStore(ArrayList<Tail> tails, long memoryBudget) {
+        this(tails, memoryBudget, DEFAULT_SEGMENT_SHIFT);
+    }
+
+    PathStore(ArrayList<Tail> tails, long memoryBudget, int segmentShift) {
+        this.tails = tails;
+        this.memoryBudget = memoryBudget;
+        this.segmentShift = segmentShift;
+        segmentMask = (1 << segmentShift) - 1;
+        segments = new ArrayList<>();
+        size = 0;
+        numDirectBytes = 0;
+        numSpilledBytes = 0;
+        tailStarts = new long[tails.size() + 1];
+        numTailPaths = new int[tails.size()];
+        numTails = 0;
+        numPaths = 0;
+        maxNumLegs = 0;
+    }
+
+    @Override
+    public void accept(Tail tail, int[] legIndices, int[] slacks, int numLegs) {
+        append(numLegs);
+        append(legIndices[0]);
+        for (int i = 1; i < numLegs; ++i) {
+            append(slacks[i]);
+            append(legIndices[i]);
+        }
+        ++numTailPaths[numTails];
+        ++numPaths;
+        maxNumLegs = Math.max(maxNumLegs, numLegs);
+    }
+
+    @Override
+    public void endTail(Tail tail) {
+        tailStarts[++numTails] = size;
+    }
+
+    private void append(int value) {
+        if (size == ((long) segments.size() << segmentShift))
+            addSegment();
+        segments.get((int) (size >>> segmentShift)).put((int) (size & segmentMask), value);
+        ++size;
+    }
+
+    private int get(long position) {
+        return segments.get((int) (position >>> segmentShift)).get((int) (position & segmentMask));
+    }
+
+    private void addSegment() {
+        final long segmentBytes = 4L << segmentShift;
+        if (totalDirectBytes.addAndGet(segmentBytes) <= memoryBudget) {
+            try {
+                segments.add(ByteBuffer.allocateDirect((int) segmentBytes)
+                    .order(ByteOrder.nativeOrder()).asIntBuffer());
+                numDirectBytes += segmentBytes;
+                return;
+            } catch (OutOfMemoryError oe) {
+                // the JVM limit on direct memory can be below the budget.
+                logger.warn("unable to allocate direct memory for paths: " + oe.getMessage());
+            }
+        }
+        totalDirectBytes.addAndGet(-segmentBytes);
+
+        try {
+            if (spillChannel == null) {
+                spillFile = Files.createTempFile("paths", ".bin");
+                spillFile.toFile().deleteOnExit();
+                spillChannel = FileChannel.open(spillFile, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+                logger.warn("paths exceed memory budget of " + memoryBudget
+                    + " bytes, spilling to " + spillFile);
+            }
+            segments.add(spillChannel.map(FileChannel.MapMode.READ_WRITE, numSpilledBytes,
+                segmentBytes).order(ByteOrder.nativeOrder()).asIntBuffer());
+            numSpilledBytes += segmentBytes;
+        } catch (IOException ie) {
+            logger.error(ie);
+            throw new UncheckedIOException("unable to spill paths to file", ie);
+        }
+    }
+
+    public ArrayList<Tail> getTails() {
+        return tails;
+    }
+
+    public long getNumPaths() {
+        return numPaths;
+    }
+
+    /**
+     * @param tailIndex index of the tail in the list given to the constructor.
+     * @return number of stored paths of the tail.
+     */
+    public int getNumPaths(int tailIndex) {
+        return numTailPaths[tailIndex];
+    }
+
+    public boolean isSpilled() {
+        return spillChannel != null;
+    }
+
+    /**
+     * Reads the paths of a tail in the order they were stored and passes them to a visitor with
+     * propagated delays of the given scenario. Delays are propagated like in
+     * PathTopology.computePropagatedDelays().
+     *
+     * @param tailIndex     index of the tail in the list given to the constructor.
+     * @param primaryDelays primaryDelays[i] is the primary delay of the leg with index i.
+     * @param visitor       visitor of the paths.
+     * @throws OptException if the visitor fails.
+     */
+    public void forEachPath(int tailIndex, int[] primaryDelays, PathVisitor visitor)
+        throws OptException {
+        Tail tail = tails.get(tailIndex);
+        int[] legIndices = new int[maxNumLegs];
+        int[] propagatedDelays = new int[maxNumLegs];
+
+        long position = tailStarts[tailIndex];
+        for (int p = 0; p < numTailPaths[tailIndex]; ++p) {
+            final int numLegs = get(position++);
+            legIndices[0] = get(position++);
+            propagatedDelays[0] = 0;
+            for (int i = 1; i < numLegs; ++i) {
+                final int slack = get(position++);
+                final int totalDelay = propagatedDelays[i - 1] + primaryDelays[legIndices[i - 1]];
+                propagatedDelays[i] = Math.max(0, totalDelay - slack);
+                legIndices[i] = get(position++);
+            }
+            visitor.visit(tail, legIndices, propagatedDelays, numLegs);
+        }
+    }
+
+    /**
+     * Releases the segments and deletes the spill file, if any.
+     */
+    @Override
+    public void close() {
+        segments.clear();
+        totalDirectBytes.addAndGet(-numDirectBytes);
+        numDirectBytes = 0;
+        if (spillChannel == null)
+            return;
+
+        try {
+            spillChannel.close();
+            Files.deleteIfExists(spillFile);
+        } catch (IOException ie) {
+            // mapped segments may keep the file open until they are collected.
+            logger.warn("unable to delete " + spillFile + ": " + ie.getMessage());
+        }
+        spillChannel = null;
+    }
+}
@@ -0,0 +1,157 @@
+package stochastic.network;
+
+import stochastic.domain.Leg;
+import stochastic.domain.Tail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Scenario-independent store of all paths of a list of tails in a connection network.
+ * <p>
+ * Only primary delays differ between scenarios, so the leg sequences of paths are enumerated
+ * once and propagated delays are computed for each scenario over the stored sequences. Paths are
+ * stored in compressed form: paths of tails[k] are the positions p in
+ * [tailOffsets[k], tailOffsets[k + 1]), and legs of path p are the positions i in
+ * [pathOffsets[p], pathOffsets[p + 1]). For each such position, legIndices[i] is the index of the
+ * leg and slacks[i] the slack of the connection from the previous leg of the path (0 for the
+ * first leg).
+ * <p>
+ * Propagated delays of a scenario are stored in an array aligned with legIndices.
+ */
+public class PathTopology {
+    private final ArrayList<Tail> tails;
+    private final ArrayList<Leg> legs;
+    private final int[] tailOffsets;
+    private final int[] pathOffsets;
+    private final int[] legIndices;
+    private final int[] slacks;
+
+    private PathTopology(Builder builder) {
+        tails = builder.tails;
+        legs = builder.legs;
+        tailOffsets = Arrays.copyOf(builder.tailOffsets, builder.numTails + 1);
+        pathOffsets = Arrays.copyOf(builder.pathOffsets, builder.numPaths + 1);
+        legIndices = Arrays.copyOf(builder.legIndices, builder.numPositions);
+        slacks = Arrays.copyOf(builder.slacks, builder.numPositions);
+    }
+
+    /**
+     * Enumerates paths of all tails with a DFS over the connection graph.
+     *
+     * @param tails           tails for which paths are enumerated.
+     * @param legs            legs that are vertices of the graph.
+     * @param connectionGraph connection graph of legs.
+     * @return topology with the enumerated paths.
+     */
+    static PathTopology enumerate(ArrayList<Tail> tails, ArrayList<Leg> legs,
+                                  ConnectionGraph connectionGraph) {
+        Builder builder = new Builder(tails, legs);
+        PathEnumerator.enumeratePaths(tails, legs, connectionGraph, builder);
+        return builder.build();
+    }
+
+    public ArrayList<Tail> getTails() {
+        return tails;
+    }
+
+    public int getNumPaths() {
+        return pathOffsets.length - 1;
+    }
+
+    /**
+     * Computes propagated delays of all stored paths for a scenario.
+     * <p>
+     * The delay propagated to a leg is max(0, d + p - s), where d and p are the propagated and
+     * primary delays of the previous leg of the path and s is the connection slack. The first leg
+     * of a path has no propagated delay.
+     *
+     * @param primaryDelays primaryDelays[i] is the primary delay of legs[i].
+     * @return propagated delays aligned with the stored leg sequences.
+     */
+    public int[] computePropagatedDelays(int[] primaryDelays) {
+        int[] propagatedDelays = new int[legIndices.length];
+        for (int p = 0; p < pathOffsets.length - 1; ++p) {
+            int totalDelay = 0;
+            for (int i = pathOffsets[p]; i < pathOffsets[p + 1]; ++i) {
+                final int propagatedDelay = i == pathOffsets[p]
+                    ? 0
+                    : Math.max(0, totalDelay - slacks[i]);
+                propagatedDelays[i] = propagatedDelay;
+                totalDelay = propagatedDelay + primaryDelays[legIndices[i]];
+            }
+        }
+        return propagatedDelays;
+    }
+
+    /**
+     * Builds path objects of all stored paths. Paths share the stored leg sequences and the given
+     * delay array, so neither may be modified afterwards.
+     *
+     * @param propagatedDelays propagated delays of a scenario from computePropagatedDelays().
+     * @return map from tail id to paths of the tail in enumeration order.
+     */
+    public HashMap<Integer, ArrayList<Path>> buildTailPaths(int[] propagatedDelays) {
+        HashMap<Integer, ArrayList<Path>> tailPaths = new HashMap<>();
+        for (int k = 0; k < tails.size(); ++k) {
+            Tail tail = tails.get(k);
+            ArrayList<Path> paths = new ArrayList<>(tailOffsets[k + 1] - tailOffsets[k]);
+            for (int p = tailOffsets[k]; p < tailOffsets[k + 1]; ++p) {
+                paths.add(new Path(tail, legs, legIndices, propagatedDelays, pathOffsets[p],
+                    pathOffsets[p + 1] - pathOffsets[p]));
+            }
+            tailPaths.put(tail.getId(), paths);
+        }
+        return tailPaths;
+    }
+
+    /**
+     * Collects enumerated paths tail by tail, growing its arrays as needed.
+     */
+    static class Builder implements PathConsumer {
+        private final ArrayList<Tail> tails;
+        private final ArrayList<Leg> legs;
+        private int[] tailOffsets;
+        private int[] pathOffsets = new int[64];
+        private int[] legIndices = new int[256];
+        private int[] slacks = new int[256];
+        private int numTails = 0;
+        private int numPaths = 0;
+        private int numPositions = 0;
+
+        Builder(ArrayList<Tail> tails, ArrayList<Leg> legs) {
+            this.tails = tails;
+            this.legs = legs;
+            tailOffsets = new int[tails.size() + 1];
+        }
+
+        @Override
+        public void accept(Tail tail, int[] pathLegs, int[] pathSlacks, int numLegs) {
+            if (numPositions + numLegs > legIndices.length) {
+                final int capacity = Math.max(2 * legIndices.length, numPositions + numLegs);
+                legIndices = Arrays.copyOf(legIndices, capacity);
+                slacks = Arrays.copyOf(slacks, capacity);
+            }
+            if (numPaths + 2 > pathOffsets.length)
+                pathOffsets = Arrays.copyOf(pathOffsets, 2 * pathOffsets.length);
+
+            System.arraycopy(pathLegs, 0, legIndices, numPositions, numLegs);
+            System.arraycopy(pathSlacks, 0, slacks, numPositions, numLegs);
+            numPositions += numLegs;
+            pathOffsets[++numPaths] = numPositions;
+        }
+
+        /**
+         * Ends the paths of the current tail, later paths belong to the next tail.
+         */
+        @Override
+        public void endTail(Tail tail) {
+            tailOffsets[++numTails] = numPaths;
+        }
+
+        PathTopology build() {
+            return new PathTopology(this);
+        }
+    }
+}
@@ -1,11 +1,12 @@
 package stochastic.output;
 
-import ilog.concert.IloException;
-import ilog.cplex.IloCplex;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import stochastic.delay.Scenario;
 import stochastic.domain.Leg;
+import stochastic.lp.CplexLPSolver;
+import stochastic.lp.LPSolver;
+import stochastic.network.Network;
 import stochastic.registry.DataRegistry;
 import stochastic.registry.Parameters;
 import stochastic.solver.PathCache;
@@ -33,7 +34,7 @@ import java.util.stream.Collectors;
 public class QualityChecker {
     private final static Logger logger = LogManager.getLogger(QualityChecker.class);
     private final DataRegistry dataRegistry;
-    private IloCplex cplex;
+    private LPSolver lpSolver; // CPLEX, as quality checks solve second-stage MIPs.
     private final int[] zeroReschedules;
     private final Scenario[] testScenarios;
 
@@ -45,31 +46,33 @@ public class QualityChecker {
     }
 
     private void initCplex() throws OptException {
-        try {
-            this.cplex = new IloCplex();
-            if (Parameters.disableCplexOutput())
-                cplex.setOut(null);
-        } catch (IloException ex) {
-            throw new OptException("error initializing CPLEX for quality checks");
-        }
+        lpSolver = new CplexLPSolver(Parameters.disableCplexOutput());
     }
 
     private void endCplex() {
-        cplex.end();
-        cplex = null;
+        lpSolver.end();
+        lpSolver = null;
     }
 
     public TestKPISet collectAverageTestStatsForBatchRun(
             RescheduleSolution rescheduleSolution) throws OptException {
         initCplex();
         logger.info("starting test runs for " + rescheduleSolution.getName());
+
+        // Connections change with reschedules, so derive them once for all test scenarios.
+        Network network = dataRegistry.getNetwork().getRescheduledNetwork(
+            rescheduleSolution.getReschedules());
+
         TestKPISet[] kpis = new TestKPISet[testScenarios.length];
         for (int j = 0; j < testScenarios.length; ++j) {
             logger.info("starting scenario " + j + " out of " + testScenarios.length);
             DelaySolution delaySolution = getDelaySolution(testScenarios[j], j,
-                rescheduleSolution.getName(), rescheduleSolution.getReschedules());
+                rescheduleSolution.getName(), rescheduleSolution.getReschedules(), network);
             kpis[j] = delaySolution.getTestKPISet();
         }
+        if (network != dataRegistry.getNetwork())
+            network.closePathStore();
+
         TestKPISet averageKPISet = new TestKPISet();
         averageKPISet.storeAverageKPIs(kpis);
         logger.info("completed test runs for " + rescheduleSolution.getName());
@@ -79,7 +82,7 @@ public class QualityChecker {
     }
 
     private DelaySolution getDelaySolution(Scenario scen, int scenarioNum, String slnName,
-                                           int[] proposedReschedules) {
+                                           int[] proposedReschedules, Network network) {
         if (proposedReschedules != null) {
             for (Leg leg :dataRegistry.getLegs())
                 leg.reschedule(proposedReschedules[leg.getIndex()]);
@@ -88,12 +91,13 @@ public class QualityChecker {
         // solve routing MIP and collect solution
         int[] delays = scen.getPrimaryDelays();
         PathCache pathCache = new PathCache();
-        pathCache.setCachedPaths(SolverUtility.getOriginalPaths(dataRegistry.getIdTailMap(),
+        pathCache.setCachedPaths(SolverUtility.getOriginalPaths(
                 dataRegistry.getTailOrigPathMap(), delays));
 
         SubSolverRunnable ssr = new SubSolverRunnable(dataRegistry, 0, scenarioNum,
             scen.getProbability(), zeroReschedules, delays, pathCache);
-        ssr.setCplex(cplex);
+        ssr.setLPSolver(lpSolver);
+        ssr.setNetwork(network);
         ssr.setFilePrefix(slnName);
         ssr.setSolveForQuality(true);
 
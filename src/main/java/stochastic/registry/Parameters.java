@@ -34,7 +34,18 @@ public class Parameters {
 
     private static Enums.ColumnGenStrategy columnGenStrategy;
     private static int numReducedCostPaths; // number of reduced cost paths to collect in second stage.
+    private static int hybridEnumerationLimit; // max paths of a tail enumerated by HYBRID.
     private static boolean useColumnCaching;
+    private static int numCachedSubModels; // second-stage models kept across Benders iterations.
+    private static int columnPoolCapacity; // paths kept per tail and scenario, 0 for no limit.
+    private static Enums.ColumnSharingPolicy columnSharingPolicy;
+    private static int numSharedPathsPerTail; // paths imported per tail, scenario and iteration.
+    private static boolean shareSourceLabels; // price tails with the same source port together.
+    private static double partialPricingFraction = 1.0; // tails priced per column gen iteration.
+    private static double stabilizationAlpha; // dual smoothing factor in [0, 1), 0 disables it.
+    private static double stabilizationBoxWidth; // dual box half-width, 0 disables it.
+    private static Enums.LPSolverType secondStageSolverType;
+    private static int pathStoreMemoryInMB; // memory for enumerated DEP paths before spilling to disk.
 
     private static boolean debugVerbose; // generates additional logging, writes lP files and solutions.
     private static boolean setCplexNames; // adds names to model variables and constraints.
@@ -42,6 +53,7 @@ public class Parameters {
 
     private static boolean runSecondStageInParallel = false;
     private static int numThreadsForSecondStage = 1;
+    private static int numThreadsForPricing = 1; // threads shared by pricing of all scenarios.
 
     // Parameters to check 2-stage solution quality
     private static boolean checkSolutionQuality;
@@ -204,6 +216,14 @@ public class Parameters {
         return numReducedCostPaths;
     }
 
+    public static void setHybridEnumerationLimit(int hybridEnumerationLimit) {
+        Parameters.hybridEnumerationLimit = hybridEnumerationLimit;
+    }
+
+    public static int getHybridEnumerationLimit() {
+        return hybridEnumerationLimit;
+    }
+
     public static void setUseColumnCaching(boolean useColumnCaching) {
         Parameters.useColumnCaching = useColumnCaching;
     }
@@ -212,6 +232,86 @@ public class Parameters {
         return useColumnCaching;
     }
 
+    public static void setNumCachedSubModels(int numCachedSubModels) {
+        Parameters.numCachedSubModels = numCachedSubModels;
+    }
+
+    public static int getNumCachedSubModels() {
+        return numCachedSubModels;
+    }
+
+    public static void setColumnPoolCapacity(int columnPoolCapacity) {
+        Parameters.columnPoolCapacity = columnPoolCapacity;
+    }
+
+    public static int getColumnPoolCapacity() {
+        return columnPoolCapacity;
+    }
+
+    public static void setColumnSharingPolicy(Enums.ColumnSharingPolicy columnSharingPolicy) {
+        Parameters.columnSharingPolicy = columnSharingPolicy;
+    }
+
+    public static Enums.ColumnSharingPolicy getColumnSharingPolicy() {
+        return columnSharingPolicy;
+    }
+
+    public static void setNumSharedPathsPerTail(int numSharedPathsPerTail) {
+        Parameters.numSharedPathsPerTail = numSharedPathsPerTail;
+    }
+
+    public static int getNumSharedPathsPerTail() {
+        return numSharedPathsPerTail;
+    }
+
+    public static void setShareSourceLabels(boolean shareSourceLabels) {
+        Parameters.shareSourceLabels = shareSourceLabels;
+    }
+
+    public static boolean isShareSourceLabels() {
+        return shareSourceLabels;
+    }
+
+    public static void setPartialPricingFraction(double partialPricingFraction) {
+        Parameters.partialPricingFraction = partialPricingFraction;
+    }
+
+    public static double getPartialPricingFraction() {
+        return partialPricingFraction;
+    }
+
+    public static void setStabilizationAlpha(double stabilizationAlpha) {
+        Parameters.stabilizationAlpha = stabilizationAlpha;
+    }
+
+    public static double getStabilizationAlpha() {
+        return stabilizationAlpha;
+    }
+
+    public static void setStabilizationBoxWidth(double stabilizationBoxWidth) {
+        Parameters.stabilizationBoxWidth = stabilizationBoxWidth;
+    }
+
+    public static double getStabilizationBoxWidth() {
+        return stabilizationBoxWidth;
+    }
+
+    public static void setSecondStageSolverType(Enums.LPSolverType secondStageSolverType) {
+        Parameters.secondStageSolverType = secondStageSolverType;
+    }
+
+    public static Enums.LPSolverType getSecondStageSolverType() {
+        return secondStageSolverType;
+    }
+
+    public static void setPathStoreMemoryInMB(int pathStoreMemoryInMB) {
+        Parameters.pathStoreMemoryInMB = pathStoreMemoryInMB;
+    }
+
+    public static int getPathStoreMemoryInMB() {
+        return pathStoreMemoryInMB;
+    }
+
     public static void setDebugVerbose(boolean debugVerbose) {
         Parameters.debugVerbose = debugVerbose;
     }
@@ -252,6 +352,14 @@ public class Parameters {
         return numThreadsForSecondStage;
     }
 
+    public static void setNumThreadsForPricing(int numThreadsForPricing) {
+        Parameters.numThreadsForPricing = numThreadsForPricing;
+    }
+
+    public static int getNumThreadsForPricing() {
+        return numThreadsForPricing;
+    }
+
     public static void setCheckSolutionQuality(boolean checkSolutionQuality) {
         Parameters.checkSolutionQuality = checkSolutionQuality;
     }
@@ -305,8 +413,20 @@ public class Parameters {
         results.put("flightPickStrategy", flightPickStrategy.name());
         results.put("bendersMultiCut", bendersMultiCut);
         results.put("columnGenStrategy", columnGenStrategy.name());
+        results.put("hybridEnumerationLimit", hybridEnumerationLimit);
         results.put("useColumnCaching", useColumnCaching);
+        results.put("numCachedSubModels", numCachedSubModels);
+        results.put("columnPoolCapacity", columnPoolCapacity);
+        results.put("columnSharingPolicy", columnSharingPolicy.name());
+        results.put("numSharedPathsPerTail", numSharedPathsPerTail);
+        results.put("shareSourceLabels", shareSourceLabels);
+        results.put("partialPricingFraction", partialPricingFraction);
+        results.put("stabilizationAlpha", stabilizationAlpha);
+        results.put("stabilizationBoxWidth", stabilizationBoxWidth);
+        results.put("secondStageSolver", secondStageSolverType.name());
+        results.put("pathStoreMemoryInMB", pathStoreMemoryInMB);
         results.put("numThreads", numThreadsForSecondStage);
+        results.put("numPricingThreads", numThreadsForPricing);
         results.put("numTestScenarios", numTestScenarios);
         return results;
     }
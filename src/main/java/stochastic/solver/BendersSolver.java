@@ -1,17 +1,17 @@
 package stochastic.solver;
 
-import ilog.concert.IloException;
-import ilog.cplex.IloCplex;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import stochastic.delay.Scenario;
 import stochastic.domain.Leg;
+import stochastic.lp.LPSolver;
 import stochastic.network.Path;
 import stochastic.output.RescheduleSolution;
 import stochastic.registry.DataRegistry;
 import stochastic.registry.Parameters;
 import stochastic.utility.CSVHelper;
 import stochastic.utility.Constants;
+import stochastic.utility.Enums;
 import stochastic.utility.OptException;
 
 import java.io.BufferedWriter;
@@ -34,11 +34,14 @@ public class BendersSolver {
     private BufferedWriter slnWriter;
 
     private MasterSolver masterSolver;
-    private IloCplex subCplex;
+    private LPSolver subSolver;
     private int iteration;
     private double lowerBound;
     private double upperBound;
     private PathCache[] secondStageCaches;
+    private SubModelCache subModelCache; // second-stage models kept across iterations.
+    private SharedPathPool sharedPathPool; // paths shared across scenarios.
+    private ColumnGenController[] columnGenControllers; // pricing strategies of scenarios.
 
     private RescheduleSolution finalRescheduleSolution;
     private int numBendersCuts;
@@ -78,7 +81,7 @@ public class BendersSolver {
         return percentGap;
     }
 
-    public void solve(RescheduleSolution warmStartSolution) throws IloException, IOException, OptException {
+    public void solve(RescheduleSolution warmStartSolution) throws IOException, OptException {
         if (Parameters.isDebugVerbose())
             writeCsvHeaders();
 
@@ -99,9 +102,22 @@ public class BendersSolver {
 
         cacheOnPlanPathsForSecondStage();
 
-        subCplex = new IloCplex();
-        if (Parameters.disableCplexOutput())
-            subCplex.setOut(null);
+        subSolver = SolverUtility.createSecondStageSolver(Parameters.disableCplexOutput());
+
+        if (Parameters.getNumCachedSubModels() > 0
+                && Parameters.getColumnGenStrategy() != Enums.ColumnGenStrategy.FULL_ENUMERATION)
+            subModelCache = new SubModelCache(Parameters.getNumCachedSubModels());
+
+        if (Parameters.getColumnSharingPolicy() != Enums.ColumnSharingPolicy.NONE
+                && Parameters.getColumnGenStrategy() != Enums.ColumnGenStrategy.FULL_ENUMERATION)
+            sharedPathPool = new SharedPathPool();
+
+        if (Parameters.getColumnGenStrategy() == Enums.ColumnGenStrategy.ADAPTIVE) {
+            columnGenControllers = new ColumnGenController[secondStageCaches.length];
+            for (int i = 0; i < columnGenControllers.length; ++i)
+                columnGenControllers[i] = new ColumnGenController(
+                    Parameters.getNumReducedCostPaths());
+        }
 
         if (Parameters.isRunSecondStageInParallel())
             SubSolverWrapper.initActorManager();
@@ -113,6 +129,13 @@ public class BendersSolver {
         if (Parameters.isRunSecondStageInParallel())
             SubSolverWrapper.clearActorManager();
 
+        if (subModelCache != null) {
+            subModelCache.clear();
+            subModelCache = null;
+        }
+        sharedPathPool = null;
+        columnGenControllers = null;
+
         Instant end = Instant.now();
 
         solutionTime = Duration.between(start, end).toMillis() / 1000.0;
@@ -120,8 +143,8 @@ public class BendersSolver {
 
         storeFinalSolution();
 
-        subCplex.end();
-        subCplex = null;
+        subSolver.end();
+        subSolver = null;
 
         masterSolver.end();
         masterSolver = null;
@@ -141,21 +164,24 @@ public class BendersSolver {
         for (int i = 0; i < scenarios.length; ++i) {
             secondStageCaches[i] = new PathCache();
             HashMap<Integer, ArrayList<Path>> originalPaths = SolverUtility.getOriginalPaths(
-                dataRegistry.getIdTailMap(), dataRegistry.getTailOrigPathMap(),
-                scenarios[i].getPrimaryDelays());
+                dataRegistry.getTailOrigPathMap(), scenarios[i].getPrimaryDelays());
             secondStageCaches[i].setCachedPaths(originalPaths);
         }
     }
 
-    private void runBendersIteration() throws IloException, IOException, OptException {
+    private void runBendersIteration() throws IOException, OptException {
         ++iteration;
         SubSolverWrapper ssWrapper = new SubSolverWrapper(dataRegistry,
             masterSolver.getReschedules(), iteration, masterSolver.getRescheduleCost(),
-            secondStageCaches);
+            secondStageCaches, subModelCache, sharedPathPool, columnGenControllers);
 
         BendersData bendersData = Parameters.isRunSecondStageInParallel()
             ? ssWrapper.solveParallel()
-            : ssWrapper.solveSequential(subCplex);
+            : ssWrapper.solveSequential(subSolver);
+
+        // paths published by scenarios are shared from the next iteration on.
+        if (sharedPathPool != null)
+            sharedPathPool.commit();
 
         double[] thetaValues = masterSolver.getThetaValues();
         double[] xValues = masterSolver.getxValues();
@@ -0,0 +1,117 @@
+package stochastic.solver;
+
+import stochastic.utility.Enums;
+
+/**
+ * Chooses the pricing strategy of each column generation iteration of a scenario for the ADAPTIVE
+ * column generation strategy.
+ * <p>
+ * Pricing strategies form a ladder from cheap to thorough:
+ * <p>
+ * FIRST_PATHS with n paths, FIRST_PATHS with 4n paths, BEST_PATHS with 4n paths, ALL_PATHS,
+ * <p>
+ * where n is numReducedCostPaths. Column generation starts on a cheap level and moves up one
+ * level when it tails off: the RMP objective decreased by less than a relative STALL_TOLERANCE in
+ * NUM_STALLED_ITERATIONS consecutive iterations, and re-solving the RMP took longer than pricing
+ * on the current level. Few columns per iteration then mostly cause RMP re-solves without
+ * progress, which more columns per iteration save. If pricing takes longer, more thorough pricing
+ * would cost more than it saves, so the level is kept. Iterations before the objective first
+ * decreases are not counted: while the RMP still fills its initial pool, more columns per
+ * iteration make each re-solve slower without ending this phase sooner. Every level prices
+ * exactly, as pricing only stops early once paths were found, so an iteration without paths
+ * proves optimality on any level.
+ * <p>
+ * One controller is kept per scenario across Benders iterations. A solve starts on the level the
+ * previous solve of the scenario ended on if it had to move up, and one level lower otherwise, so
+ * cheaper levels are tried again when they may suffice.
+ */
+class ColumnGenController {
+    private static final double STALL_TOLERANCE = 1e-3;
+    private static final int NUM_STALLED_ITERATIONS = 3;
+    private static final int PATH_MULTIPLIER = 4;
+
+    private static final Enums.ColumnGenStrategy[] LEVELS = {
+        Enums.ColumnGenStrategy.FIRST_PATHS,
+        Enums.ColumnGenStrategy.FIRST_PATHS,
+        Enums.ColumnGenStrategy.BEST_PATHS,
+        Enums.ColumnGenStrategy.ALL_PATHS};
+
+    private final int numReducedCostPaths; // paths of the first level.
+    private int startLevel; // level of the next solve.
+    private int level;
+    private boolean movedUp; // true if the current solve moved up from its start level.
+    private int numStalled; // consecutive stalled iterations on the current level.
+    private double prevObjValue;
+    private boolean improved; // true once the objective decreased in the current solve.
+    private long lpTime; // nanoseconds spent on the current level solving the RMP.
+    private long pricingTime; // nanoseconds spent on the current level pricing.
+
+    ColumnGenController(int numReducedCostPaths) {
+        this.numReducedCostPaths = numReducedCostPaths;
+        startLevel = 0;
+        start();
+    }
+
+    /**
+     * Starts a new column generation solve of the scenario.
+     */
+    void start() {
+        level = startLevel;
+        movedUp = false;
+        numStalled = 0;
+        prevObjValue = Double.NaN;
+        improved = false;
+        lpTime = 0;
+        pricingTime = 0;
+    }
+
+    /**
+     * Updates the level after a column generation iteration.
+     *
+     * @param objValue        objective value of the RMP, which does not increase between
+     *                        iterations.
+     * @param iterLPTime      nanoseconds spent solving the RMP in the iteration.
+     * @param iterPricingTime nanoseconds spent pricing in the iteration.
+     */
+    void update(double objValue, long iterLPTime, long iterPricingTime) {
+        lpTime += iterLPTime;
+        pricingTime += iterPricingTime;
+        if (!Double.isNaN(prevObjValue)) {
+            final double decrease = prevObjValue - objValue;
+            if (decrease >= STALL_TOLERANCE * Math.max(1.0, Math.abs(prevObjValue))) {
+                improved = true;
+                numStalled = 0;
+            } else if (improved)
+                ++numStalled;
+
+            if (numStalled >= NUM_STALLED_ITERATIONS && level < LEVELS.length - 1
+                    && lpTime > pricingTime) {
+                ++level;
+                movedUp = true;
+                numStalled = 0;
+                lpTime = 0;
+                pricingTime = 0;
+            }
+        }
+        prevObjValue = objValue;
+    }
+
+    /**
+     * Ends the current solve and chooses the start level of the next one.
+     */
+    void finish() {
+        startLevel = movedUp ? level : Math.max(0, level - 1);
+    }
+
+    Enums.ColumnGenStrategy getStrategy() {
+        return LEVELS[level];
+    }
+
+    int getNumReducedCostPaths() {
+        return level == 0 ? numReducedCostPaths : PATH_MULTIPLIER * numReducedCostPaths;
+    }
+
+    int getLevel() {
+        return level;
+    }
+}
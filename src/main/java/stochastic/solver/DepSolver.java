@@ -1,27 +1,27 @@
 package stochastic.solver;
 
-import ilog.concert.IloException;
-import ilog.concert.IloLinearNumExpr;
-import ilog.cplex.IloCplex;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import stochastic.delay.Scenario;
 import stochastic.domain.Leg;
 import stochastic.domain.Tail;
+import stochastic.lp.CplexLPSolver;
+import stochastic.lp.LPSolver;
 import stochastic.main.ModelStats;
+import stochastic.model.LPMatrixBuffer;
 import stochastic.model.MasterModelBuilder;
 import stochastic.model.SubModelBuilder;
-import stochastic.network.Path;
+import stochastic.network.PathStore;
 import stochastic.output.RescheduleSolution;
 import stochastic.registry.DataRegistry;
 import stochastic.registry.Parameters;
 import stochastic.utility.Constants;
 import stochastic.utility.OptException;
 
+import java.io.UncheckedIOException;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.HashMap;
 
 public class DepSolver {
     private final static Logger logger = LogManager.getLogger(DepSolver.class);
@@ -34,93 +34,103 @@ public class DepSolver {
     }
 
     public void solve(DataRegistry dataRegistry) throws OptException {
+        logger.info("starting DEP...");
+        LPSolver lpSolver = new CplexLPSolver(Parameters.disableCplexOutput());
+        // lpSolver.setMIPGap(Constants.CPLEX_MIP_GAP);
+
+        // master model
+        ArrayList<Leg> legs = dataRegistry.getLegs();
+        ArrayList<Tail> tails = dataRegistry.getTails();
+        LPMatrixBuffer matrixBuffer = new LPMatrixBuffer(lpSolver);
+        MasterModelBuilder masterModelBuilder = new MasterModelBuilder(legs, tails,
+            dataRegistry.getRescheduleTimeBudget(), lpSolver, matrixBuffer);
+
+        masterModelBuilder.buildVariables();
+        masterModelBuilder.constructFirstStage();
+        logger.info("added terms from master problem");
+
+        // sub models
+        Scenario[] scenarios = dataRegistry.getDelayScenarios();
+        SubModelBuilder[] subModelBuilders = new SubModelBuilder[scenarios.length];
+
+        for (int i = 0; i < scenarios.length; ++i) {
+            SubModelBuilder subModelBuilder = new SubModelBuilder(i, legs, tails, lpSolver,
+                matrixBuffer);
+            subModelBuilder.buildObjective(scenarios[i].getProbability());
+            subModelBuilder.updateModelWithFirstStageVars(masterModelBuilder.getXColumn());
+            subModelBuilders[i] = subModelBuilder;
+        }
+
+        matrixBuffer.build();
+        logger.info("added constraint matrix to DEP");
+
+        // Paths are enumerated once and only their delays differ between scenarios. They can
+        // outgrow the heap, so they are kept in a store that spills to disk and streamed into the
+        // solver scenario by scenario. The store is shared with Benders solves of the network.
+        final long pathMemory = Parameters.getPathStoreMemoryInMB() * 1024L * 1024L;
+        PathStore pathStore;
         try {
-            logger.info("starting DEP...");
-            IloCplex cplex = new IloCplex();
-            // cplex.setParam(IloCplex.Param.MIP.Tolerances.MIPGap, Constants.CPLEX_MIP_GAP);
-            if (Parameters.disableCplexOutput())
-                cplex.setOut(null);
-
-            // master model
-            ArrayList<Leg> legs = dataRegistry.getLegs();
-            ArrayList<Tail> tails = dataRegistry.getTails();
-            MasterModelBuilder masterModelBuilder = new MasterModelBuilder(legs, tails,
-                dataRegistry.getRescheduleTimeBudget(), cplex);
-
-            masterModelBuilder.buildVariables();
-
-            IloLinearNumExpr objExpr = masterModelBuilder.getObjExpr();
-            masterModelBuilder.constructFirstStage();
-            logger.info("added terms from master problem");
-
-            // sub models
-            Scenario[] scenarios = dataRegistry.getDelayScenarios();
-            SubModelBuilder[] subModelBuilders = new SubModelBuilder[scenarios.length];
-            for (int i = 0; i < scenarios.length; ++i) {
-                Scenario s = scenarios[i];
-                ArrayList<Path> allPaths = dataRegistry.getNetwork().enumeratePathsForTails(
-                    tails, s.getPrimaryDelays());
-
-                HashMap<Integer, ArrayList<Path>> tailPathsMap = SolverUtility.getPathsForFullEnum(
-                    allPaths);
-
-                SubModelBuilder subModelBuilder = new SubModelBuilder(i, legs, tails, tailPathsMap,
-                    cplex);
-                subModelBuilder.buildObjective(objExpr, s.getProbability());
-                subModelBuilder.addPathVarsToConstraints();
-                subModelBuilder.updateModelWithFirstStageVars(masterModelBuilder.getX());
-                subModelBuilder.addConstraintsToModel();
-                subModelBuilders[i] = subModelBuilder;
-                logger.info("added terms for scenario " + (i + 1) + " of " + scenarios.length);
+            pathStore = dataRegistry.getNetwork().getPathStore(tails, pathMemory);
+        } catch (UncheckedIOException ue) {
+            throw new OptException("unable to store enumerated paths for DEP");
+        }
+        logger.info("enumerated " + pathStore.getNumPaths() + " paths for DEP");
+
+        for (int i = 0; i < scenarios.length; ++i) {
+            subModelBuilders[i].addPathVarsFromStore(pathStore, scenarios[i].getPrimaryDelays());
+            logger.info("added paths for scenario " + (i + 1) + " of " + scenarios.length);
+        }
+
+        // solving
+        logger.info("starting to solve DEP");
+        if (Parameters.isDebugVerbose()) {
+            if (Parameters.isSetCplexNames()) {
+                masterModelBuilder.setNames();
+                for (SubModelBuilder subModelBuilder : subModelBuilders)
+                    subModelBuilder.setNames();
             }
+            lpSolver.exportModel("logs/dep.lp");
+        }
+
+        Instant start = Instant.now();
+        LPSolver.Status status = lpSolver.solve(LPSolver.Algorithm.AUTO);
+        solutionTimeInSeconds = Duration.between(start, Instant.now()).toMillis() / 1000.0;
+        logger.info("DEP solution time (seconds): " + solutionTimeInSeconds);
+        if (status != LPSolver.Status.OPTIMAL) {
+            logger.error("DEP status: " + status);
+            throw new OptException("optimal solution not found for DEP model");
+        }
 
-            // solving
-            logger.info("starting to solve DEP");
-            cplex.addMinimize(objExpr);
-            if (Parameters.isDebugVerbose())
-                cplex.exportModel("logs/dep.lp");
-
-            Instant start = Instant.now();
-            cplex.solve();
-            solutionTimeInSeconds = Duration.between(start, Instant.now()).toMillis() / 1000.0;
-            logger.info("DEP solution time (seconds): " + solutionTimeInSeconds);
-
-            // collect model stats
-            objValue = cplex.getObjValue();
-            logger.info("DEP objective: " + objValue);
-            modelStats = new ModelStats(cplex.getNrows(), cplex.getNcols(), cplex.getNNZs(),
-                objValue);
-
-            if (Parameters.isDebugVerbose())
-                cplex.writeSolution("logs/dep_solution.xml");
-
-            int[] reschedules = new int[legs.size()];
-            double[] xValues = masterModelBuilder.getxValues();
-            double rescheduleCost = 0;
-            for (int i = 0; i < xValues.length; ++i) {
-                if (xValues[i] >= Constants.EPS) {
-                    reschedules[i] = (int) Math.round(xValues[i]);
-                    rescheduleCost += legs.get(i).getRescheduleCostPerMin() * reschedules[i];
-                } else {
-                    reschedules[i] = 0;
-                }
+        // collect model stats
+        objValue = lpSolver.getObjValue();
+        logger.info("DEP objective: " + objValue);
+        modelStats = new ModelStats(lpSolver.getNumRows(), lpSolver.getNumColumns(),
+            lpSolver.getNumNonZeros(), objValue);
+
+        if (Parameters.isDebugVerbose())
+            lpSolver.writeSolution("logs/dep_solution.xml");
+
+        int[] reschedules = new int[legs.size()];
+        double[] xValues = masterModelBuilder.getxValues();
+        double rescheduleCost = 0;
+        for (int i = 0; i < xValues.length; ++i) {
+            if (xValues[i] >= Constants.EPS) {
+                reschedules[i] = (int) Math.round(xValues[i]);
+                rescheduleCost += legs.get(i).getRescheduleCostPerMin() * reschedules[i];
+            } else {
+                reschedules[i] = 0;
             }
+        }
 
-            logger.info("DEP reschedule cost: " + rescheduleCost);
-            depSolution = new RescheduleSolution("dep", rescheduleCost, reschedules);
+        logger.info("DEP reschedule cost: " + rescheduleCost);
+        depSolution = new RescheduleSolution("dep", rescheduleCost, reschedules);
 
-            masterModelBuilder.clearCplexObjects();
-            for (SubModelBuilder subModelBuilder : subModelBuilders)
-                subModelBuilder.clearCplexObjects();
-            cplex.clearModel();
-            cplex.endModel();
-            cplex.end();
+        masterModelBuilder.clear();
+        for (SubModelBuilder subModelBuilder : subModelBuilders)
+            subModelBuilder.clear();
+        lpSolver.end();
 
-            logger.info("completed DEP");
-        } catch (IloException ex) {
-            logger.error(ex);
-            throw new OptException("cplex error solving DEP model");
-        }
+        logger.info("completed DEP");
     }
 
     public ModelStats getModelStats() {
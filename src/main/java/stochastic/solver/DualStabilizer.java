@@ -0,0 +1,178 @@
+package stochastic.solver;
+
+import stochastic.network.Path;
+
+/**
+ * Stabilizes the duals used to price columns of the second-stage column generation procedure.
+ * <p>
+ * Raw RMP duals oscillate strongly between column generation iterations. Instead of pricing with
+ * the RMP duals (pi_out), pricing uses the separation point
+ * <p>
+ * pi_sep = alpha * pi_center + (1 - alpha) * pi_out,
+ * <p>
+ * which is then restricted to a box of half-width boxWidth around pi_center (Wentges smoothing
+ * with a box step). The stability center pi_center is the last separation point for which pricing
+ * found no column at all, i.e. a dual feasible point of the full master problem.
+ * <p>
+ * A mispricing happens when no column found at pi_sep has a negative reduced cost with respect to
+ * pi_out. The RMP is then not re-solved. Instead, the k-th consecutive mispricing prices again
+ * with alpha_k = max(0, 1 - k * (1 - alpha)) and a box widened k times, which reaches exact pricing
+ * at pi_out after a bounded number of mispricings. So, optimality is only ever declared by exact
+ * pricing. The base alpha adapts automatically: it grows after improving iterations and shrinks
+ * after mispricings.
+ */
+class DualStabilizer {
+    private static final double MAX_ALPHA = 0.9;
+    private static final double ALPHA_STEP = 0.1;
+
+    private double alpha; // base smoothing factor.
+    private double boxWidth; // half-width of the box around the center, 0 to disable the box.
+    private int numMispricings; // consecutive mispricings in the current iteration.
+
+    // Duals of the latest RMP solution (pi_out).
+    private double[] tailDuals;
+    private double[] legDuals;
+    private double[] delayDuals;
+
+    // Stability center (pi_center).
+    private double[] centerTailDuals;
+    private double[] centerLegDuals;
+    private double[] centerDelayDuals;
+
+    // Separation point used for pricing (pi_sep).
+    private double[] sepTailDuals;
+    private double[] sepLegDuals;
+    private double[] sepDelayDuals;
+    private boolean exact;
+
+    // Statistics
+    private int numIterations;
+    private int numTotalMispricings;
+
+    DualStabilizer(double alpha, double boxWidth) {
+        this.alpha = Math.min(Math.max(alpha, 0.0), MAX_ALPHA);
+        this.boxWidth = boxWidth;
+        this.numIterations = 0;
+        this.numTotalMispricings = 0;
+    }
+
+    /**
+     * Updates the RMP duals after the RMP was solved and builds the first separation point.
+     */
+    void update(double[] tailDuals, double[] legDuals, double[] delayDuals) {
+        this.tailDuals = tailDuals;
+        this.legDuals = legDuals;
+        this.delayDuals = delayDuals;
+
+        ++numIterations;
+        numMispricings = 0;
+        if (centerTailDuals == null) {
+            // the first RMP solution is the initial center and is priced exactly.
+            centerTailDuals = tailDuals.clone();
+            centerLegDuals = legDuals.clone();
+            centerDelayDuals = delayDuals.clone();
+            exact = true;
+            sepTailDuals = tailDuals;
+            sepLegDuals = legDuals;
+            sepDelayDuals = delayDuals;
+            return;
+        }
+        buildSeparationPoint();
+    }
+
+    /**
+     * Records that some columns priced at the separation point have negative reduced costs with
+     * respect to the RMP duals. The base alpha is increased as smoothing was not too strong.
+     */
+    void recordImprovement() {
+        alpha = Math.min(MAX_ALPHA, alpha + (1 - alpha) * ALPHA_STEP);
+    }
+
+    /**
+     * Records a mispricing and moves the separation point towards the RMP duals.
+     *
+     * @param noColumns true if pricing found no column at all at the separation point, which makes
+     *                  the separation point the new stability center.
+     */
+    void recordMispricing(boolean noColumns) {
+        if (noColumns) {
+            centerTailDuals = sepTailDuals.clone();
+            centerLegDuals = sepLegDuals.clone();
+            centerDelayDuals = sepDelayDuals.clone();
+        }
+
+        ++numMispricings;
+        ++numTotalMispricings;
+        alpha = Math.max(0.0, alpha - ALPHA_STEP);
+        buildSeparationPoint();
+    }
+
+    /**
+     * Computes the reduced cost of the given path with respect to the RMP duals.
+     */
+    double getReducedCost(Path path) {
+        double reducedCost = -tailDuals[path.getTail().getIndex()];
+        for (int i = 0; i < path.getNumLegs(); ++i) {
+            final int legIndex = path.getLegIndex(i);
+            reducedCost -= legDuals[legIndex] + path.getPropagatedDelay(i) * delayDuals[legIndex];
+        }
+        return reducedCost;
+    }
+
+    private void buildSeparationPoint() {
+        final double sepAlpha = Math.max(0.0, 1 - (numMispricings + 1) * (1 - alpha));
+        exact = sepAlpha <= 0.0;
+        if (exact) {
+            sepTailDuals = tailDuals;
+            sepLegDuals = legDuals;
+            sepDelayDuals = delayDuals;
+            return;
+        }
+
+        final double width = boxWidth * (numMispricings + 1);
+        sepTailDuals = smooth(centerTailDuals, tailDuals, sepAlpha, width);
+        sepLegDuals = smooth(centerLegDuals, legDuals, sepAlpha, width);
+        sepDelayDuals = smooth(centerDelayDuals, delayDuals, sepAlpha, width);
+    }
+
+    private static double[] smooth(double[] center, double[] out, double alpha, double width) {
+        double[] sep = new double[out.length];
+        for (int i = 0; i < out.length; ++i) {
+            sep[i] = alpha * center[i] + (1 - alpha) * out[i];
+            if (width > 0)
+                sep[i] = Math.min(center[i] + width, Math.max(center[i] - width, sep[i]));
+        }
+        return sep;
+    }
+
+    /**
+     * @return true if the separation point is the RMP dual solution.
+     */
+    boolean isExact() {
+        return exact;
+    }
+
+    double[] getTailDuals() {
+        return sepTailDuals;
+    }
+
+    double[] getLegDuals() {
+        return sepLegDuals;
+    }
+
+    double[] getDelayDuals() {
+        return sepDelayDuals;
+    }
+
+    double getAlpha() {
+        return alpha;
+    }
+
+    int getNumIterations() {
+        return numIterations;
+    }
+
+    int getNumMispricings() {
+        return numTotalMispricings;
+    }
+}
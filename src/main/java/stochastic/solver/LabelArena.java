@@ -0,0 +1,116 @@
+package stochastic.solver;
+
+import java.util.Arrays;
+
+/**
+ * Struct-of-arrays storage for labels of the label setting algorithm in PricingProblemSolver.
+ * <p>
+ * A label is identified by its position in the arena. Its vertex, predecessor (NO_PREDECESSOR for
+ * labels created at the source), propagated delay and reduced cost are stored in parallel primitive
+ * arrays, so creating a label allocates no object. Arrays only grow and the arena is reset before
+ * every pricing call, so once it has warmed up, labeling runs without allocations.
+ * <p>
+ * The arena also holds the Pareto fronts of labels waiting at each vertex. As it is mutable
+ * working memory, an arena must be used by one pricing call at a time.
+ */
+class LabelArena {
+    static final int NO_PREDECESSOR = -1;
+
+    private int[] vertices;
+    private int[] predecessors;
+    private int[] propagatedDelays; // sum of primary and propagated delay on the label's vertex.
+    private double[] reducedCosts;
+    private int size;
+
+    private LabelFront[] fronts; // fronts[i] holds non-dominated labels waiting at vertex i.
+    private double[] completionBounds; // per-vertex bounds used for pruning by the current call.
+
+    LabelArena() {
+        this(1024);
+    }
+
+    LabelArena(int capacity) {
+        capacity = Math.max(capacity, 16);
+        vertices = new int[capacity];
+        predecessors = new int[capacity];
+        propagatedDelays = new int[capacity];
+        reducedCosts = new double[capacity];
+        size = 0;
+        fronts = new LabelFront[0];
+        completionBounds = new double[0];
+    }
+
+    /**
+     * Removes all labels and prepares empty fronts and bound storage for the given number of
+     * vertices.
+     *
+     * @param numVertices number of vertices of the graph to be labeled.
+     */
+    void reset(int numVertices) {
+        size = 0;
+        final int numFronts = fronts.length;
+        for (int i = 0; i < Math.min(numFronts, numVertices); ++i)
+            fronts[i].clear();
+
+        if (numFronts < numVertices) {
+            fronts = Arrays.copyOf(fronts, numVertices);
+            for (int i = numFronts; i < numVertices; ++i)
+                fronts[i] = new LabelFront(this);
+        }
+
+        if (completionBounds.length < numVertices)
+            completionBounds = new double[numVertices];
+    }
+
+    /**
+     * Stores a new label.
+     *
+     * @return position of the new label.
+     */
+    int add(int vertex, int predecessor, int propagatedDelay, double reducedCost) {
+        if (size == vertices.length) {
+            final int capacity = 2 * size;
+            vertices = Arrays.copyOf(vertices, capacity);
+            predecessors = Arrays.copyOf(predecessors, capacity);
+            propagatedDelays = Arrays.copyOf(propagatedDelays, capacity);
+            reducedCosts = Arrays.copyOf(reducedCosts, capacity);
+        }
+
+        vertices[size] = vertex;
+        predecessors[size] = predecessor;
+        propagatedDelays[size] = propagatedDelay;
+        reducedCosts[size] = reducedCost;
+        return size++;
+    }
+
+    LabelFront getFront(int vertex) {
+        return fronts[vertex];
+    }
+
+    /**
+     * @return storage for one value per vertex, with undefined contents after reset().
+     */
+    double[] getCompletionBounds() {
+        return completionBounds;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int getVertex(int label) {
+        return vertices[label];
+    }
+
+    int getPredecessor(int label) {
+        return predecessors[label];
+    }
+
+    int getPropagatedDelay(int label) {
+        return propagatedDelays[label];
+    }
+
+    double getReducedCost(int label) {
+        return reducedCosts[label];
+    }
+}
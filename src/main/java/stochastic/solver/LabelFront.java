@@ -0,0 +1,126 @@
+package stochastic.solver;
+
+import java.util.Arrays;
+
+/**
+ * Pareto front of labels ending at the same vertex, keyed on (propagated delay, reduced cost).
+ * <p>
+ * Labels are positions in a LabelArena. They are kept sorted by increasing propagated delay. As no
+ * label in the front dominates another (see isDominated()), reduced costs strictly decrease along
+ * the front. So, the label with the lowest reduced cost among those with at most a given delay is
+ * the last one with such a delay, which makes dominance checks a binary search. Labels dominated
+ * by a new label form a contiguous run at its insertion position and are evicted when it is added.
+ */
+class LabelFront {
+    private final LabelArena arena;
+    private int[] labels;
+    private int size;
+
+    LabelFront(LabelArena arena) {
+        this.arena = arena;
+        this.labels = new int[4];
+        this.size = 0;
+    }
+
+    /**
+     * Returns true if a label with the given values would be dominated by a label in the front,
+     * i.e. if the front has a label with at most the given delay and reduced cost. Labels with
+     * equal delays and reduced costs dominate each other, and only the first one is kept.
+     * <p>
+     * The dominance condition here is valid only if the graph is a DAG (Directed Acyclic Graph).
+     * Reason is the following:
+     * - Consider paths p1 = {1, 2, 3, 4} and p2 = {1, 4}.
+     * - Assume p2 is better in terms of both reduced cost and propagated delay in p1.
+     * - Consider any flight f that can be appended to p2.
+     * - If the graph is a DAG, f cannot be 1, 2, 3 or 4 (we know 2, 3 precede 4 and so cannot be after 4).
+     * - In this case, dominance works: {p2, f} will always be better than {p1, f}.
+     * - However, if cycles are allowed, this doesn't work.
+     * <p>
+     * Cyclic graph example:
+     * - Say you have two paths p1 = {1, 2, 3, 4} and p2 = {1, 4}.
+     * - Let p2 dominate p1. Then, any {p2, v} should be better than {p1, v} for v =/= 1, 2, 3, 4.
+     * - What about v in p1 \ p2? We want to prune p1 out and just use p2 at 4.
+     * - If {p2, v} dominates {p1, v}, we are ok as we will preserve p2.
+     * - Consider a simple case with 1 tail.
+     * - Say p3 = {1, 2, 3, 4, 5} is the optimal solution.
+     * - Say we have p2 = {1, 4} dominating p1.
+     * - At 4, p2 will dominate p1. So, p1 may be thrown away. We can only build {1, 4, 3, 2, 5}.
+     * - So, it is possible to throw out the optimal solution.
+     *
+     * @param propagatedDelay propagated delay of the candidate label.
+     * @param reducedCost     reduced cost of the candidate label.
+     * @return true if the candidate need not be created, false otherwise.
+     */
+    boolean isDominated(int propagatedDelay, double reducedCost) {
+        final int pos = findFirstWithDelayAbove(propagatedDelay);
+        return pos > 0 && arena.getReducedCost(labels[pos - 1]) <= reducedCost;
+    }
+
+    /**
+     * Adds the given label if it is not dominated and evicts all labels that it dominates.
+     *
+     * @param label position of the label in the arena.
+     * @return true if the label was added, false if it was dominated.
+     */
+    boolean add(int label) {
+        final int delay = arena.getPropagatedDelay(label);
+        final double reducedCost = arena.getReducedCost(label);
+        if (isDominated(delay, reducedCost))
+            return false;
+
+        // Labels with delay >= the new delay and reduced cost >= the new one are dominated. As
+        // reduced costs decrease along the front, they directly follow the insertion position.
+        final int begin = findFirstWithDelayAbove(delay - 1);
+        int end = begin;
+        while (end < size && arena.getReducedCost(labels[end]) >= reducedCost)
+            ++end;
+
+        if (end == begin) {
+            if (size == labels.length)
+                labels = Arrays.copyOf(labels, 2 * size);
+            System.arraycopy(labels, begin, labels, begin + 1, size - begin);
+            ++size;
+        } else {
+            System.arraycopy(labels, end, labels, begin + 1, size - end);
+            size -= end - begin - 1;
+        }
+        labels[begin] = label;
+        return true;
+    }
+
+    /**
+     * @return label at the given position, positions being ordered by increasing delay (and
+     * decreasing reduced cost).
+     */
+    int get(int pos) {
+        return labels[pos];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return position of the first label with a propagated delay strictly above the given one.
+     */
+    private int findFirstWithDelayAbove(int propagatedDelay) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (arena.getPropagatedDelay(labels[mid]) <= propagatedDelay)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,32 @@
+package stochastic.solver;
+
+import stochastic.network.Path;
+
+import java.util.Arrays;
+
+/**
+ * Leg sequence of a path. It identifies a path of a tail independently of the propagated delays,
+ * which depend on the delay scenario.
+ */
+class LegSequence {
+    private final int[] legIndices;
+    private final int hashCode;
+
+    LegSequence(Path path) {
+        legIndices = new int[path.getNumLegs()];
+        for (int i = 0; i < legIndices.length; ++i)
+            legIndices[i] = path.getLegIndex(i);
+        hashCode = Arrays.hashCode(legIndices);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof LegSequence
+            && Arrays.equals(legIndices, ((LegSequence) other).legIndices);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+}
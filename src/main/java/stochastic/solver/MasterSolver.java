@@ -1,14 +1,16 @@
 package stochastic.solver;
 
-import ilog.concert.*;
-import ilog.cplex.IloCplex;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import stochastic.domain.Leg;
 import stochastic.domain.Tail;
+import stochastic.lp.CplexLPSolver;
+import stochastic.lp.LPSolver;
+import stochastic.model.LPMatrixBuffer;
 import stochastic.model.MasterModelBuilder;
 import stochastic.registry.Parameters;
 import stochastic.utility.Constants;
+import stochastic.utility.OptException;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -21,10 +23,11 @@ public class MasterSolver {
     private ArrayList<Leg> legs;
     private int numScenarios;
 
-    // CPLEX variables
-    private IloCplex cplex;
-    private IloObjective obj;
-    private IloNumVar[] thetas;
+    // Solver data
+    private LPSolver lpSolver;
+    private int thetaColumn; // column index of the first theta variable.
+    private int numThetas;
+    private LPMatrixBuffer matrixBuffer;
     private MasterModelBuilder masterModelBuilder;
 
     private double objValue;
@@ -33,40 +36,38 @@ public class MasterSolver {
     private double rescheduleCost; // this is \sum_({p,f} c_f g_p x_{pf} and will be used for the Benders upper bound.
     private double[] thetaValues;
 
-    MasterSolver(ArrayList<Leg> legs, ArrayList<Tail> tails, int budget, int numScenarios) throws IloException {
+    MasterSolver(ArrayList<Leg> legs, ArrayList<Tail> tails, int budget, int numScenarios) throws OptException {
         this.legs = legs;
         this.numScenarios = numScenarios;
 
-        cplex = new IloCplex();
-        cplex.setParam(IloCplex.Param.MIP.Tolerances.MIPGap, Constants.CPLEX_MIP_GAP);
-        if (Parameters.disableCplexOutput())
-            cplex.setOut(null);
+        lpSolver = new CplexLPSolver(Parameters.disableCplexOutput());
+        lpSolver.setMIPGap(Constants.CPLEX_MIP_GAP);
 
-        masterModelBuilder = new MasterModelBuilder(legs, tails, budget, cplex);
+        matrixBuffer = new LPMatrixBuffer(lpSolver);
+        masterModelBuilder = new MasterModelBuilder(legs, tails, budget, lpSolver, matrixBuffer);
     }
 
-    void constructFirstStage() throws IloException {
+    void constructFirstStage() throws OptException {
         masterModelBuilder.buildVariables();
-        obj = cplex.addMinimize(masterModelBuilder.getObjExpr());
         masterModelBuilder.constructFirstStage();
+        matrixBuffer.build();
+        matrixBuffer = null;
     }
 
-    void addTheta() throws IloException {
-        if (Parameters.isBendersMultiCut()) {
-            thetas = new IloNumVar[numScenarios];
-            for (int i = 0; i < numScenarios; ++i) {
-                thetas[i] = cplex.numVar(-Double.MAX_VALUE, Double.MAX_VALUE);
-                if (Parameters.isSetCplexNames())
-                    thetas[i].setName("theta_" + i);
-            }
-        } else {
-            thetas = new IloNumVar[1];
-            thetas[0] = cplex.numVar(-Double.MAX_VALUE, Double.MAX_VALUE);
-            if (Parameters.isSetCplexNames())
-                thetas[0].setName("theta");
+    void addTheta() throws OptException {
+        numThetas = Parameters.isBendersMultiCut() ? numScenarios : 1;
+        double[] objCoefs = new double[numThetas];
+        Arrays.fill(objCoefs, 1.0);
+        thetaColumn = lpSolver.addColumns(numThetas, -Double.MAX_VALUE, Double.MAX_VALUE,
+            objCoefs);
+
+        if (Parameters.isSetCplexNames()) {
+            if (Parameters.isBendersMultiCut()) {
+                for (int i = 0; i < numThetas; ++i)
+                    lpSolver.setColumnName(thetaColumn + i, "theta_" + i);
+            } else
+                lpSolver.setColumnName(thetaColumn, "theta");
         }
-        for (IloNumVar theta : thetas)
-            cplex.setLinearCoef(obj, theta, 1);
     }
 
     void setInitialSolution(double rescheduleCost, int[] reschedules) {
@@ -84,10 +85,15 @@ public class MasterSolver {
         thetaValues = null;
     }
 
-    public void solve() throws IloException {
-        cplex.setParam(IloCplex.Param.MIP.Tolerances.MIPGap, 0.001);
-        cplex.solve();
-        objValue = cplex.getObjValue();
+    public void solve() throws OptException {
+        lpSolver.setMIPGap(0.001);
+        LPSolver.Status status = lpSolver.solve(LPSolver.Algorithm.AUTO);
+        if (status != LPSolver.Status.OPTIMAL) {
+            logger.error("master problem status: " + status);
+            throw new OptException("optimal solution not found for master problem");
+        }
+
+        objValue = lpSolver.getObjValue();
         logger.info("master objective: " + objValue);
         xValues = masterModelBuilder.getxValues();
         Arrays.fill(reschedules, 0);
@@ -99,38 +105,46 @@ public class MasterSolver {
                 rescheduleCost += legs.get(j).getRescheduleCostPerMin() * reschedules[j];
             }
 
-        thetaValues = cplex.getValues(thetas);
+        thetaValues = lpSolver.getValues(thetaColumn, numThetas);
     }
 
     double getRescheduleCost() {
         return rescheduleCost;
     }
 
-    void writeLPFile(String fName) throws IloException {
-        cplex.exportModel(fName);
+    void writeLPFile(String fName) throws OptException {
+        if (Parameters.isSetCplexNames())
+            masterModelBuilder.setNames();
+        lpSolver.exportModel(fName);
     }
 
-    void writeCPLEXSolution(String fName) throws IloException {
-        cplex.writeSolution(fName);
+    void writeCPLEXSolution(String fName) throws OptException {
+        lpSolver.writeSolution(fName);
     }
 
-    void addBendersCut(BendersCut cutData, int thetaIndex, int cutIndex) throws IloException {
-        IloLinearNumExpr cons = cplex.linearNumExpr();
-
+    void addBendersCut(BendersCut cutData, int thetaIndex, int cutIndex) throws OptException {
         double[] beta = cutData.getBeta();
-        IloNumVar[] x = masterModelBuilder.getX();
+        final int xColumn = masterModelBuilder.getXColumn();
 
+        int[] ind = new int[legs.size() + 1];
+        double[] val = new double[legs.size() + 1];
+        int numNonZeros = 0;
         for (int j = 0; j < legs.size(); j++)
-            if (Math.abs(beta[j]) >= Constants.EPS)
-                cons.addTerm(x[j], beta[j]);
+            if (Math.abs(beta[j]) >= Constants.EPS) {
+                ind[numNonZeros] = xColumn + j;
+                val[numNonZeros++] = beta[j];
+            }
 
-        cons.addTerm(thetas[thetaIndex], 1);
+        ind[numNonZeros] = thetaColumn + thetaIndex;
+        val[numNonZeros++] = 1;
 
         double alpha = cutData.getAlpha();
         double rhs = Math.abs(alpha) >= Constants.EPS ? alpha : 0.0;
-        IloRange r = cplex.addGe(cons, rhs);
+        final int row = lpSolver.addRows(new double[]{rhs}, new double[]{Double.MAX_VALUE},
+            new int[][]{Arrays.copyOf(ind, numNonZeros)},
+            new double[][]{Arrays.copyOf(val, numNonZeros)});
         if (Parameters.isSetCplexNames())
-            r.setName("benders_cut_" + cutIndex);
+            lpSolver.setRowName(row, "benders_cut_" + cutIndex);
     }
 
     double getObjValue() {
@@ -149,14 +163,10 @@ public class MasterSolver {
         return thetaValues;
     }
 
-    void end() throws IloException {
-        obj = null;
-        Arrays.fill(thetas, null);
-        thetas = null;
-        masterModelBuilder.clearCplexObjects();
+    void end() {
+        masterModelBuilder.clear();
         masterModelBuilder = null;
-        cplex.clearModel();
-        cplex.endModel();
-        cplex.end();
+        lpSolver.end();
+        lpSolver = null;
     }
 }
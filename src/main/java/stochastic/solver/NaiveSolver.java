@@ -1,17 +1,19 @@
 package stochastic.solver;
 
-import ilog.concert.*;
-import ilog.cplex.IloCplex;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import stochastic.delay.Scenario;
 import stochastic.domain.Leg;
 import stochastic.domain.Tail;
+import stochastic.lp.CplexLPSolver;
+import stochastic.lp.LPSolver;
 import stochastic.main.ModelStats;
+import stochastic.model.LPMatrixBuffer;
 import stochastic.output.RescheduleSolution;
 import stochastic.registry.DataRegistry;
 import stochastic.registry.Parameters;
 import stochastic.utility.Constants;
+import stochastic.utility.OptException;
 
 import java.time.Duration;
 import java.time.Instant;
@@ -33,10 +35,12 @@ public class NaiveSolver {
     private RescheduleSolution finalRescheduleSolution;
     private double solutionTime;
 
-    // CPLEX containers
-    private IloCplex cplex;
-    private IloNumVar[] x; // x[i] is a decision variable for reschedule amount of leg i.
-    private IloNumVar[] v; // v[i] is a decision variable for delay amount of leg i.
+    // Solver containers
+    private LPSolver lpSolver;
+    private LPMatrixBuffer matrixBuffer;
+    private int xColumn; // x[i] is a decision variable for reschedule amount of leg i, column of x[0].
+    private int vColumn; // v[i] is a decision variable for delay amount of leg i, column of v[0].
+    private ArrayList<String> rowNames; // names of buffered rows, only kept to export the model.
 
     public NaiveSolver(DataRegistry dataRegistry) {
         this.dataRegistry = dataRegistry;
@@ -59,7 +63,7 @@ public class NaiveSolver {
         return solutionTime;
     }
 
-    public void solve() throws IloException {
+    public void solve() throws OptException {
         buildAveragePrimaryDelays();
         solveModel();
     }
@@ -74,59 +78,66 @@ public class NaiveSolver {
         }
     }
 
-    private void solveModel() throws IloException {
-        cplex = new IloCplex();
-        cplex.setParam(IloCplex.Param.MIP.Tolerances.MIPGap, Constants.CPLEX_MIP_GAP);
-        if (Parameters.disableCplexOutput())
-            cplex.setOut(null);
+    private void solveModel() throws OptException {
+        lpSolver = new CplexLPSolver(Parameters.disableCplexOutput());
+        lpSolver.setMIPGap(Constants.CPLEX_MIP_GAP);
 
-        ArrayList<Leg> legs = dataRegistry.getLegs();
-        x = new IloIntVar[legs.size()];
-        v = new IloIntVar[legs.size()];
+        matrixBuffer = new LPMatrixBuffer(lpSolver);
+        rowNames = Parameters.isDebugVerbose() && Parameters.isSetCplexNames()
+            ? new ArrayList<>() : null;
 
-        addObjective();
+        buildVariables();
         for (Tail tail : dataRegistry.getTails()) {
             ArrayList<Leg> tailLegs = tail.getOrigSchedule();
             if (tailLegs.size() > 1)
                 addOriginalRoutingConstraints(tailLegs);
         }
         addBudgetConstraint();
+        matrixBuffer.build();
+        matrixBuffer = null;
 
         // Solve model and extract solution
-        if (Parameters.isDebugVerbose())
-            cplex.exportModel("logs/naive_model.lp");
+        if (Parameters.isDebugVerbose()) {
+            if (rowNames != null)
+                setNames();
+            lpSolver.exportModel("logs/naive_model.lp");
+        }
 
         Instant start = Instant.now();
-        cplex.solve();
+        LPSolver.Status status = lpSolver.solve(LPSolver.Algorithm.AUTO);
         solutionTime = Duration.between(start, Instant.now()).toMinutes() / 60.0;
+        if (status != LPSolver.Status.OPTIMAL) {
+            logger.error("naive model status: " + status);
+            throw new OptException("optimal solution not found for naive model");
+        }
 
         if (Parameters.isDebugVerbose())
-            cplex.writeSolution("logs/naive_solution.xml");
+            lpSolver.writeSolution("logs/naive_solution.xml");
 
         storeSolution();
-        cplex.clearModel();
-        cplex.endModel();
-        cplex.end();
+        lpSolver.end();
+        lpSolver = null;
     }
 
-    private void addObjective() throws IloException {
-        IloLinearNumExpr objExpr = cplex.linearNumExpr();
+    private void buildVariables() throws OptException {
+        double[] delayCosts = new double[legs.size()];
+        double[] rescheduleCosts = new double[legs.size()];
         for (int j = 0; j < legs.size(); ++j) {
-            Leg leg = legs.get(j);
-            v[j] = cplex.numVar(0, Double.MAX_VALUE);
-            if (Parameters.isSetCplexNames())
-                v[j].setName("v_" + leg.getId());
-            objExpr.addTerm(v[j], leg.getDelayCostPerMin());
-
-            x[j] = cplex.numVar(0, Parameters.getFlightRescheduleBound(), IloNumVarType.Int);
-            if (Parameters.isSetCplexNames())
-                x[j].setName("x_" + legs.get(j).getId());
-            objExpr.addTerm(x[j], leg.getRescheduleCostPerMin());
+            delayCosts[j] = legs.get(j).getDelayCostPerMin();
+            rescheduleCosts[j] = legs.get(j).getRescheduleCostPerMin();
         }
-        cplex.addMinimize(objExpr);
+
+        vColumn = lpSolver.addColumns(legs.size(), 0, Double.MAX_VALUE, delayCosts);
+        xColumn = lpSolver.addColumns(legs.size(), 0, Parameters.getFlightRescheduleBound(),
+            rescheduleCosts);
+
+        int[] xColumns = new int[legs.size()];
+        for (int j = 0; j < legs.size(); ++j)
+            xColumns[j] = xColumn + j;
+        lpSolver.setInteger(xColumns);
     }
 
-    private void addOriginalRoutingConstraints(ArrayList<Leg> originalRoute) throws IloException {
+    private void addOriginalRoutingConstraints(ArrayList<Leg> originalRoute) {
         double propagatedDelay = 0;
         for (int i = 0; i < originalRoute.size(); ++i) {
             Leg currLeg = originalRoute.get(i);
@@ -142,28 +153,22 @@ public class NaiveSolver {
         }
     }
 
-    private void addBudgetConstraint() throws IloException {
-        IloLinearNumExpr budgetExpr = cplex.linearNumExpr();
+    private void addBudgetConstraint() {
+        final int row = addRow(-Double.MAX_VALUE, dataRegistry.getRescheduleTimeBudget(),
+            "reschedule_time_budget");
         for (int j = 0; j < legs.size(); ++j)
-            budgetExpr.addTerm(x[j], 1);
-
-        IloRange cons = cplex.addLe(budgetExpr, dataRegistry.getRescheduleTimeBudget());
-        if (Parameters.isSetCplexNames())
-            cons.setName("reschedule_time_budget");
+            matrixBuffer.addNonZero(row, xColumn + j, 1);
     }
 
     /**
      * Adds constraints of the form x_i <= slack_{i,j} + x_j for each flight connection (i,j) in
      * the original routing.
      */
-    private void addConnectivityConstraint(
-            Leg currLeg, Leg nextLeg, int slack) throws IloException {
-        IloLinearNumExpr expr = cplex.linearNumExpr();
-        expr.addTerm(x[currLeg.getIndex()], 1);
-        expr.addTerm(x[nextLeg.getIndex()], -1);
-        IloRange cons = cplex.addLe(expr, slack);
-        if (Parameters.isSetCplexNames())
-            cons.setName("connect_" + currLeg.getId() + "_" + nextLeg.getId());
+    private void addConnectivityConstraint(Leg currLeg, Leg nextLeg, int slack) {
+        final int row = addRow(-Double.MAX_VALUE, slack,
+            "connect_" + currLeg.getId() + "_" + nextLeg.getId());
+        matrixBuffer.addNonZero(row, xColumn + currLeg.getIndex(), 1);
+        matrixBuffer.addNonZero(row, xColumn + nextLeg.getIndex(), -1);
     }
 
     /**
@@ -172,22 +177,37 @@ public class NaiveSolver {
      *   x_f is the reschedule time.
      *   v_f is the excess delay time to protect time connectivity.
      */
-    private void addPropagatedDelayConstraint(Leg leg, double propagatedDelay) throws IloException {
+    private void addPropagatedDelayConstraint(Leg leg, double propagatedDelay) {
         int legIndex = leg.getIndex();
-        IloLinearNumExpr linkExpr = cplex.linearNumExpr();
-        linkExpr.addTerm(v[legIndex], 1.0);
-        linkExpr.addTerm(x[legIndex], 1.0);
-        IloRange linkCons = cplex.addGe(linkExpr, propagatedDelay);
-        if (Parameters.isSetCplexNames())
-            linkCons.setName("delay_reschedule_link_" + leg.getId());
+        final int row = addRow(propagatedDelay, Double.MAX_VALUE,
+            "delay_reschedule_link_" + leg.getId());
+        matrixBuffer.addNonZero(row, vColumn + legIndex, 1.0);
+        matrixBuffer.addNonZero(row, xColumn + legIndex, 1.0);
+    }
+
+    private int addRow(double lb, double ub, String name) {
+        if (rowNames != null)
+            rowNames.add(name);
+        return matrixBuffer.addRow(lb, ub);
+    }
+
+    private void setNames() throws OptException {
+        for (int j = 0; j < legs.size(); ++j) {
+            lpSolver.setColumnName(vColumn + j, "v_" + legs.get(j).getId());
+            lpSolver.setColumnName(xColumn + j, "x_" + legs.get(j).getId());
+        }
+        // rows were the first ones added to the solver.
+        for (int i = 0; i < rowNames.size(); ++i)
+            lpSolver.setRowName(i, rowNames.get(i));
     }
 
-    private void storeSolution() throws IloException {
-        final double objValue = cplex.getObjValue();
+    private void storeSolution() throws OptException {
+        final double objValue = lpSolver.getObjValue();
         logger.info("naive model CPLEX objective: " + objValue);
-        modelStats = new ModelStats(cplex.getNrows(), cplex.getNcols(), cplex.getNNZs(), objValue);
+        modelStats = new ModelStats(lpSolver.getNumRows(), lpSolver.getNumColumns(),
+            lpSolver.getNumNonZeros(), objValue);
 
-        double[] vValues = cplex.getValues(v);
+        double[] vValues = lpSolver.getValues(vColumn, legs.size());
         double excessDelayPenalty = 0.0;
         for (int i = 0; i < legs.size(); ++i) {
             if (vValues[i] >= Constants.EPS)
@@ -195,7 +215,7 @@ public class NaiveSolver {
         }
         logger.info("naive model excess delay penalty: " + excessDelayPenalty);
 
-        double[] xValues = cplex.getValues(x);
+        double[] xValues = lpSolver.getValues(xColumn, legs.size());
         int[] reschedules = new int[legs.size()];
         double rescheduleCost = 0;
 
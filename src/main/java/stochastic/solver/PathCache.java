@@ -1,33 +1,220 @@
 package stochastic.solver;
 
+import stochastic.domain.Tail;
 import stochastic.network.Path;
+import stochastic.utility.Constants;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 
 public class PathCache {
     /**
-     * PathCache objects are used to store paths to use as initial solutions for second stage problems. These caches
-     * are updated with the solution of every Benders iteration and provide the updated paths to the next iteration.
+     * PathCache objects are the column pools of second-stage problems of a scenario. They start
+     * with the on-plan and empty paths of each tail, collect the paths generated by column
+     * generation and the best paths of every Benders iteration, and provide them to the next
+     * iteration.
+     * <p>
+     * Paths of a tail are unique by leg sequence. Each path has an age: the number of consecutive
+     * Benders iterations in which it was unused in the final second-stage solution. If a tail has
+     * more paths than a given capacity, the oldest ones are evicted. Paths used in the latest
+     * solution and the initial paths are never evicted. Evicted paths are generated again by
+     * pricing if needed, so column generation still ends with an optimal solution.
+     * <p>
+     * Tails can instead be enumerated: all their paths are added at once with
+     * addEnumeratedPaths(). Such paths are never evicted, and enumerated tails need neither
+     * pricing nor shared paths.
      */
     private HashMap<Integer, ArrayList<Path>> cachedPaths; // includes on-plan paths and empty paths
+    private HashMap<Integer, TailPool> tailPools;
+    private boolean hasEnumeratedPaths;
+
+    /**
+     * Bookkeeping of the paths of a tail, aligned with its list in cachedPaths.
+     */
+    private static class TailPool {
+        private final HashSet<LegSequence> legSequences = new HashSet<>();
+        private final ArrayList<Integer> ages = new ArrayList<>();
+        private int numInitialPaths;
+        private int numSharedPathsSeen; // paths of the tail in the SharedPathPool already imported or skipped.
+        private boolean enumerated; // all paths of the tail are in the pool.
+    }
 
     public PathCache() {
     }
 
     public void setCachedPaths(HashMap<Integer, ArrayList<Path>> cachedPaths) {
         this.cachedPaths = cachedPaths;
+        tailPools = new HashMap<>();
+        for (Map.Entry<Integer, ArrayList<Path>> entry : cachedPaths.entrySet()) {
+            TailPool tailPool = new TailPool();
+            for (Path path : entry.getValue()) {
+                tailPool.legSequences.add(new LegSequence(path));
+                tailPool.ages.add(0);
+            }
+            tailPool.numInitialPaths = entry.getValue().size();
+            tailPools.put(entry.getKey(), tailPool);
+        }
     }
 
     void addPaths(HashMap<Integer, Path> paths) {
-        for (Map.Entry<Integer, Path> entry : paths.entrySet()) {
-            if (cachedPaths.containsKey(entry.getKey()))
-                cachedPaths.get(entry.getKey()).add(entry.getValue());
-            else
-                cachedPaths.put(entry.getKey(), new ArrayList<>(Collections.singletonList(entry.getValue())));
+        for (Map.Entry<Integer, Path> entry : paths.entrySet())
+            addPaths(entry.getKey(), new ArrayList<>(Collections.singletonList(entry.getValue())));
+    }
+
+    /**
+     * Appends paths of a tail that are not in the cache yet.
+     *
+     * @param tailId id of the tail of the paths.
+     * @param paths  paths to add.
+     * @return number of added paths.
+     */
+    int addPaths(int tailId, ArrayList<Path> paths) {
+        ArrayList<Path> tailPaths = cachedPaths.computeIfAbsent(tailId, k -> new ArrayList<>());
+        TailPool tailPool = tailPools.computeIfAbsent(tailId, k -> new TailPool());
+
+        int numAdded = 0;
+        for (Path path : paths) {
+            if (tailPool.legSequences.add(new LegSequence(path))) {
+                tailPaths.add(path);
+                tailPool.ages.add(0);
+                ++numAdded;
+            }
+        }
+        return numAdded;
+    }
+
+    /**
+     * Adds all paths of some tails and marks these tails as enumerated.
+     *
+     * @param enumeratedPaths map from tail id to all paths of the tail, possibly empty.
+     * @return number of added paths, i.e. paths that were not in the cache yet.
+     */
+    int addEnumeratedPaths(HashMap<Integer, ArrayList<Path>> enumeratedPaths) {
+        int numAdded = 0;
+        for (Map.Entry<Integer, ArrayList<Path>> entry : enumeratedPaths.entrySet()) {
+            numAdded += addPaths(entry.getKey(), entry.getValue());
+            tailPools.get(entry.getKey()).enumerated = true;
+        }
+        hasEnumeratedPaths = true;
+        return numAdded;
+    }
+
+    /**
+     * @return true if addEnumeratedPaths() has been called, even if it enumerated no tail.
+     */
+    boolean hasEnumeratedPaths() {
+        return hasEnumeratedPaths;
+    }
+
+    boolean isEnumerated(int tailId) {
+        TailPool tailPool = tailPools.get(tailId);
+        return tailPool != null && tailPool.enumerated;
+    }
+
+    /**
+     * Imports paths published by other scenarios, with propagated delays recomputed for the
+     * scenario of this cache. Paths of a tail are considered in order of publication, and the
+     * ones beyond the limit are considered in later calls.
+     *
+     * @param sharedPathPool  pool with published paths.
+     * @param tails           tails of the problem.
+     * @param primaryDelays   primary delays of the scenario of this cache.
+     * @param maxPathsPerTail maximum number of paths to import for each tail.
+     * @return number of imported paths.
+     */
+    int importSharedPaths(SharedPathPool sharedPathPool, ArrayList<Tail> tails,
+                          int[] primaryDelays, int maxPathsPerTail) {
+        int numImported = 0;
+        for (Tail tail : tails) {
+            TailPool tailPool = tailPools.computeIfAbsent(tail.getId(), k -> new TailPool());
+            if (tailPool.enumerated)
+                continue;
+
+            ArrayList<Path> sharedPaths = sharedPathPool.getPaths(tail.getId(),
+                tailPool.numSharedPathsSeen);
+
+            int numTailImported = 0;
+            for (Path sharedPath : sharedPaths) {
+                if (numTailImported == maxPathsPerTail)
+                    break;
+
+                ++tailPool.numSharedPathsSeen;
+                if (tailPool.legSequences.contains(new LegSequence(sharedPath)))
+                    continue;
+
+                Path path = SolverUtility.buildPathWithDelays(sharedPath, primaryDelays);
+                numTailImported += addPaths(tail.getId(),
+                    new ArrayList<>(Collections.singletonList(path)));
+            }
+            numImported += numTailImported;
+        }
+        return numImported;
+    }
+
+    /**
+     * Updates ages of paths with the final second-stage solution of a Benders iteration.
+     *
+     * @param tails   tails of the problem.
+     * @param yValues yValues[i][j] is the value of the j-th cached path of tails[i].
+     */
+    void updateAges(ArrayList<Tail> tails, double[][] yValues) {
+        for (int i = 0; i < tails.size(); ++i) {
+            TailPool tailPool = tailPools.get(tails.get(i).getId());
+            if (tailPool == null)
+                continue;
+
+            for (int j = 0; j < yValues[i].length; ++j) {
+                final int age = yValues[i][j] >= Constants.EPS ? 0 : tailPool.ages.get(j) + 1;
+                tailPool.ages.set(j, age);
+            }
+        }
+    }
+
+    /**
+     * Evicts the oldest paths of tails with more than the given number of paths. Paths of
+     * enumerated tails are kept.
+     *
+     * @param tails    tails of the problem.
+     * @param capacity maximum number of paths to keep for each tail.
+     * @return positions the evicted paths of tails[i] had in their list at position i, in
+     * increasing order.
+     */
+    int[][] evictPaths(ArrayList<Tail> tails, int capacity) {
+        int[][] evictedPaths = new int[tails.size()][];
+        for (int i = 0; i < tails.size(); ++i) {
+            final int tailId = tails.get(i).getId();
+            ArrayList<Path> tailPaths = cachedPaths.get(tailId);
+            TailPool tailPool = tailPools.get(tailId);
+            if (tailPaths == null || tailPaths.size() <= capacity || tailPool.enumerated) {
+                evictedPaths[i] = new int[0];
+                continue;
+            }
+
+            ArrayList<Integer> candidates = new ArrayList<>();
+            for (int j = tailPool.numInitialPaths; j < tailPaths.size(); ++j)
+                if (tailPool.ages.get(j) > 0)
+                    candidates.add(j);
+
+            // oldest first, paths added earlier first among paths of the same age.
+            candidates.sort((a, b) -> Integer.compare(tailPool.ages.get(b), tailPool.ages.get(a)));
+            final int numEvicted = Math.min(candidates.size(), tailPaths.size() - capacity);
+            int[] evicted = new int[numEvicted];
+            for (int k = 0; k < numEvicted; ++k)
+                evicted[k] = candidates.get(k);
+            Arrays.sort(evicted);
+            evictedPaths[i] = evicted;
+
+            for (int k = numEvicted - 1; k >= 0; --k) {
+                Path path = tailPaths.remove(evicted[k]);
+                tailPool.legSequences.remove(new LegSequence(path));
+                tailPool.ages.remove(evicted[k]);
+            }
         }
+        return evictedPaths;
     }
 
     HashMap<Integer, ArrayList<Path>> getCachedPaths() {
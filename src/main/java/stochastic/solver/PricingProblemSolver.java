@@ -2,6 +2,7 @@ package stochastic.solver;
 
 import stochastic.domain.Leg;
 import stochastic.domain.Tail;
+import stochastic.network.ConnectionGraph;
 import stochastic.network.Network;
 import stochastic.network.Path;
 import stochastic.registry.Parameters;
@@ -9,21 +10,43 @@ import stochastic.utility.Constants;
 import stochastic.utility.Enums;
 
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.PriorityQueue;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
 class PricingProblemSolver {
     /**
      * PricingProblemSolver uses label setting and partial path pruning to generate routes for the second-stage
      * model.
+     * <p>
+     * As the connection network is a DAG, legs are processed in the topological order of the
+     * network. Labels waiting at a leg are kept in a Pareto front (see LabelFront), so dominated
+     * labels are rejected or evicted as soon as they are created and are never extended.
+     * <p>
+     * Labels live in a LabelArena that the caller can reuse across pricing calls. Path objects
+     * are built only for the sink labels that are returned.
+     * <p>
+     * Labels depend only on the source port, leg duals and primary delays: the tail dual is only
+     * subtracted at the sink and the sink port only selects the labels that are read. So, tails
+     * with the same source port can share one labeling pass (see labelFromSource()).
+     * <p>
+     * Before labeling, a backward pass computes for each leg a lower bound on the reduced cost
+     * still to be added on the way to a sink. Labels that cannot complete to a negative reduced
+     * cost path, including labels at legs that cannot reach a sink, are discarded when created.
      */
     private Enums.ColumnGenStrategy columnGenStrategy;
     private int numReducedCostPaths;
 
+    private Integer sourcePort;
     private Tail tail;
     private ArrayList<Leg> legs;
     private int numLegs;
-    private Network network;
+    private int[] edgeOffsets; // outgoing connections of legs[i] are in [edgeOffsets[i], edgeOffsets[i+1]).
+    private int[] edgeTargets;
+    private int[] edgeSlacks;
+    private int[] topologicalOrder;
+    private boolean acyclic;
     private int[] primaryDelays; // delays[i] = total departure delay of legs[i] (a_{rf} in paper)
 
     // Dual values fromm latest solution of Second Stage Restricted Master Problem.
@@ -32,31 +55,64 @@ class PricingProblemSolver {
     private double[] delayLinkDuals; // \pi in paper, <= 0
 
     // containers utilized during labeling procedure
-    private ArrayList<ArrayList<Label>> labels; // labels[i] are labels ending at legs[i].
-    private ArrayList<Label> sinkLabels; // labels ending at sink node.
-    private PriorityQueue<Label> unprocessedLabels;
+    private LabelArena arena; // holds all labels and the fronts of labels waiting at each leg.
+    private int[] sinkLabels; // arena positions of labels ending at sink node.
+    private int numSinkLabels;
+
+    // completionBounds[i] is a lower bound on the reduced cost of legs after legs[i] on a path to
+    // a sink. Labels with reduced cost + completion bound >= pruneThreshold are discarded.
+    private double[] completionBounds;
+    private double pruneThreshold;
 
     PricingProblemSolver(Tail tail, ArrayList<Leg> legs, Network network, int[] primaryDelays,
-                         double tailDual, double[] legCoverDuals, double[] delayLinkDuals) {
+                         double tailDual, double[] legCoverDuals, double[] delayLinkDuals,
+                         LabelArena arena) {
+        this(tail.getSourcePort(), legs, network, primaryDelays, legCoverDuals, delayLinkDuals,
+            arena);
+        this.tail = tail;
+        this.tailDual = tailDual;
+    }
+
+    /**
+     * Creates a solver that prices all tails starting at the given port with a single labeling
+     * pass. Call labelFromSource() once, then generatePathsForTail(tail, tailDual) for each tail.
+     */
+    PricingProblemSolver(Integer sourcePort, ArrayList<Leg> legs, Network network,
+                         int[] primaryDelays, double[] legCoverDuals, double[] delayLinkDuals,
+                         LabelArena arena) {
         this.columnGenStrategy = Parameters.getColumnGenStrategy();
         this.numReducedCostPaths = Parameters.getNumReducedCostPaths();
 
-        this.tail = tail;
+        this.sourcePort = sourcePort;
+        this.tail = null;
         this.legs = legs;
         this.numLegs = legs.size();
-        this.network = network;
+        ConnectionGraph connectionGraph = network.getConnectionGraph();
+        this.edgeOffsets = connectionGraph.getOffsets();
+        this.edgeTargets = connectionGraph.getTargets();
+        this.edgeSlacks = connectionGraph.getSlacks();
+        this.topologicalOrder = connectionGraph.getTopologicalOrder();
+        this.acyclic = connectionGraph.isAcyclic();
         this.primaryDelays = primaryDelays;
 
-        this.tailDual = tailDual;
         this.legCoverDuals = legCoverDuals;
         this.delayLinkDuals = delayLinkDuals;
 
-        this.labels = new ArrayList<>();
-        for (int i = 0; i < numLegs; ++i)
-            labels.add(new ArrayList<>());
+        this.arena = arena;
+        this.sinkLabels = new int[16];
+        this.numSinkLabels = 0;
+    }
 
-        this.unprocessedLabels = new PriorityQueue<>();
-        this.sinkLabels = new ArrayList<>();
+    /**
+     * Overrides the column generation strategy and number of paths given by Parameters.
+     *
+     * @param columnGenStrategy   one of ALL_PATHS, BEST_PATHS and FIRST_PATHS.
+     * @param numReducedCostPaths number of paths for BEST_PATHS and FIRST_PATHS.
+     */
+    void setColumnGenStrategy(Enums.ColumnGenStrategy columnGenStrategy,
+                              int numReducedCostPaths) {
+        this.columnGenStrategy = columnGenStrategy;
+        this.numReducedCostPaths = numReducedCostPaths;
     }
 
     /**
@@ -67,175 +123,284 @@ class PricingProblemSolver {
      * @return ArrayList with generated paths (possibly empty).
      */
     ArrayList<Path> generatePathsForTail() {
+        arena.reset(numLegs);
+        numSinkLabels = 0;
+        computeCompletionBounds(Collections.singleton(tail.getSinkPort()));
+        pruneThreshold = tailDual;
         initSourceLabels();
-        if (!limitReached())
-            runLabelSettingAlgorithm();
-
-        ArrayList<Path> paths = new ArrayList<>();
-        int numPaths = sinkLabels.size();
-        if (columnGenStrategy == Enums.ColumnGenStrategy.BEST_PATHS) {
-            sinkLabels.sort(Comparator.comparing(Label::getReducedCost));
-            numPaths = Math.min(numPaths, numReducedCostPaths);
+        runLabelSettingAlgorithm();
+        return buildPaths();
+    }
+
+    /**
+     * Runs the label setting algorithm from the source port without reading any sink labels. The
+     * labels left at each leg are used by generatePathsForTail(tail, tailDual).
+     * <p>
+     * Labels are pruned such that no negative reduced cost path of the given tails is lost, i.e.
+     * with bounds to the sink ports of all tails and against the largest tail dual.
+     *
+     * @param tails     tails that start at the source port of this solver.
+     * @param tailDuals tailDuals[tail.getIndex()] is the dual value of tail's cover constraint.
+     */
+    void labelFromSource(ArrayList<Tail> tails, double[] tailDuals) {
+        tail = null;
+        arena.reset(numLegs);
+
+        HashSet<Integer> sinkPorts = new HashSet<>();
+        pruneThreshold = -Double.MAX_VALUE;
+        for (Tail sourceTail : tails) {
+            sinkPorts.add(sourceTail.getSinkPort());
+            pruneThreshold = Math.max(pruneThreshold, tailDuals[sourceTail.getIndex()]);
         }
+        computeCompletionBounds(sinkPorts);
+        initSourceLabels();
+        runLabelSettingAlgorithm();
+    }
 
-        for (int i = 0; i < numPaths; ++i)
-            paths.add(buildPathFromLabel(sinkLabels.get(i)));
+    /**
+     * Builds paths for the given tail from the labels created by labelFromSource().
+     * <p>
+     * Sink labels are read in the same order as in generatePathsForTail(), so both provide the
+     * same paths.
+     *
+     * @param tail     tail that starts at the source port of this solver.
+     * @param tailDual dual value of the tail's cover constraint.
+     * @return ArrayList with generated paths (possibly empty).
+     */
+    ArrayList<Path> generatePathsForTail(Tail tail, double tailDual) {
+        this.tail = tail;
+        this.tailDual = tailDual;
+        numSinkLabels = 0;
 
+        for (int legIndex : topologicalOrder) {
+            LabelFront front = arena.getFront(legIndex);
+            if (front.isEmpty() || !legs.get(legIndex).getArrPort().equals(tail.getSinkPort()))
+                continue;
+
+            addSinkLabels(front);
+            if (limitReached())
+                break;
+        }
+        return buildPaths();
+    }
+
+    /**
+     * Builds paths from the collected sink labels, keeping only the best ones for BEST_PATHS.
+     */
+    private ArrayList<Path> buildPaths() {
+        final int numPaths = columnGenStrategy == Enums.ColumnGenStrategy.BEST_PATHS
+            ? selectBestSinkLabels()
+            : numSinkLabels;
+
+        ArrayList<Path> paths = new ArrayList<>(numPaths);
+        for (int i = 0; i < numPaths; ++i)
+            paths.add(buildPathFromLabel(sinkLabels[i]));
         return paths;
     }
 
     /**
-     * Builds a path by traversing predecessors until none can be found.
+     * Moves the numReducedCostPaths sink labels with the lowest reduced costs to the front of
+     * sinkLabels in increasing order of reduced cost. Labels with equal reduced costs keep their
+     * order. Each label is inserted into the sorted front, which is cheap as only few labels are
+     * kept.
+     *
+     * @return number of selected labels.
+     */
+    private int selectBestSinkLabels() {
+        final int numSelected = Math.max(0, Math.min(numSinkLabels, numReducedCostPaths));
+        if (numSelected == 0)
+            return 0;
+
+        int numKept = 0;
+        for (int i = 0; i < numSinkLabels; ++i) {
+            final int label = sinkLabels[i];
+            final double reducedCost = arena.getReducedCost(label);
+            if (numKept == numSelected
+                    && reducedCost >= arena.getReducedCost(sinkLabels[numKept - 1]))
+                continue;
+
+            // the front ends before position i, so shifting it does not overwrite unread labels.
+            int k = numKept < numSelected ? numKept++ : numKept - 1;
+            for (; k > 0 && arena.getReducedCost(sinkLabels[k - 1]) > reducedCost; --k)
+                sinkLabels[k] = sinkLabels[k - 1];
+            sinkLabels[k] = label;
+        }
+        return numSelected;
+    }
+
+    /**
+     * Builds a path by traversing predecessors until none can be found. The predecessors are
+     * counted first, so that leg indices and delays can be filled backwards without collecting
+     * the labels.
      *
-     * @param label The sink label from which we will do a backwards traversal to build the path.
+     * @param label The arena position of the sink label from which we will do a backwards
+     *              traversal to build the path.
      * @return the built Path object.
      */
-    private Path buildPathFromLabel(Label label) {
-        ArrayList<Leg> pathLegs = new ArrayList<>();
-        ArrayList<Integer> pathDelays = new ArrayList<>();
-
-        while (label != null) {
-            pathLegs.add(label.getLeg());
-            pathDelays.add(label.getPropagatedDelay());
-            label = label.getPredecessor();
+    private Path buildPathFromLabel(int label) {
+        int numPathLegs = 0;
+        for (int l = label; l != LabelArena.NO_PREDECESSOR; l = arena.getPredecessor(l))
+            ++numPathLegs;
+
+        int[] legIndices = new int[numPathLegs];
+        int[] propagatedDelays = new int[numPathLegs];
+        for (int i = numPathLegs - 1; i >= 0; --i) {
+            legIndices[i] = arena.getVertex(label);
+            propagatedDelays[i] = arena.getPropagatedDelay(label);
+            label = arena.getPredecessor(label);
+        }
+        return new Path(tail, legs, legIndices, propagatedDelays);
+    }
+
+    /**
+     * Computes completion bounds for paths that end at any of the given sink ports.
+     * <p>
+     * Legs are visited in reverse topological order. The bound of a leg that arrives at a sink
+     * port is at most 0 (the path can end there), and the bound through a connection to leg w is
+     * the bound of w plus the lowest possible reduced cost of w. As delay link duals are <= 0,
+     * delays can only increase reduced costs, so the reduced cost of w without delay is its lowest
+     * one. Legs that cannot reach a sink port get an infinite bound. If the network is cyclic, the
+     * reverse topological order is not valid and nothing is pruned.
+     *
+     * @param sinkPorts ports at which paths can end.
+     */
+    private void computeCompletionBounds(Set<Integer> sinkPorts) {
+        completionBounds = arena.getCompletionBounds();
+        if (!acyclic) {
+            Arrays.fill(completionBounds, 0, numLegs, Double.NEGATIVE_INFINITY);
+            return;
         }
 
-        Path path = new Path(tail);
-        for (int i = pathLegs.size() - 1; i >= 0; --i) {
-            path.addLeg(pathLegs.get(i), pathDelays.get(i));
+        for (int k = numLegs - 1; k >= 0; --k) {
+            final int legIndex = topologicalOrder[k];
+            double bound = sinkPorts.contains(legs.get(legIndex).getArrPort())
+                ? 0.0
+                : Double.POSITIVE_INFINITY;
+
+            for (int e = edgeOffsets[legIndex]; e < edgeOffsets[legIndex + 1]; ++e) {
+                final int nextIndex = edgeTargets[e];
+                if (completionBounds[nextIndex] == Double.POSITIVE_INFINITY)
+                    continue;
+
+                // a positive delay link dual (numerical noise) makes the leg cost unbounded below.
+                final double legBound = delayLinkDuals[nextIndex] <= 0
+                    ? -legCoverDuals[nextIndex]
+                    : Double.NEGATIVE_INFINITY;
+                bound = Math.min(bound, legBound + completionBounds[nextIndex]);
+            }
+            completionBounds[legIndex] = bound;
         }
-        return path;
+    }
+
+    /**
+     * Returns true if no path extending a label with the given reduced cost at the given leg can
+     * have a negative reduced cost. The comparison keeps a margin of EPS below the cut-off of
+     * addSinkLabels(), so rounding differences cannot discard a path that would be provided.
+     */
+    private boolean isPruned(int legIndex, double reducedCost) {
+        return reducedCost + completionBounds[legIndex] >= pruneThreshold;
     }
 
     /**
      * Runs the forward label setting algorithm to solve the pricing problem for the second-stage.
      * <p>
-     * Using the labels created in "initSourceLabels", this algorithm builds and adds feasible
-     * extensions for each unprocessed label until no more extensions are possible. A label is
-     * said to be unprocessed if we have not checked it for feasible extension. It is processed
-     * when we have built all of its possible feasible extensions. This is marked using the
-     * "processed" flag in the Label object. The initial labels and feasible extensions are stored
-     * in the "labels" member. Along the way, this also creates a set of * non-dominated labels
-     * that can connect to the tail's sink port (stored in "sinkLabels"). The non-dominated
-     * sink-labels can be used to build and provide paths with negative reduced cost. These paths
-     * can then in turn be added to the Restricted Master Problem (RMP) of the second-stage.
-     * We will reach optimality if we cannot find any sink label with a negative reduced cost.
+     * Using the labels created in "initSourceLabels", this algorithm visits legs in topological
+     * order. When a leg is visited, no more labels can be created at it, and the labels stored at
+     * its front in the arena are exactly the non-dominated ones. If a tail is being priced and the
+     * leg can connect to its sink port, these labels provide sink labels (stored in "sinkLabels").
+     * All labels are then extended along the outgoing connections of the leg and stay in the
+     * front, so that they can be read again for other tails. The
+     * non-dominated sink-labels can be used to build and provide paths with negative reduced
+     * cost. These paths can then in turn be added to the Restricted Master Problem (RMP) of the
+     * second-stage. We will reach optimality if we cannot find any sink label with a negative
+     * reduced cost.
      */
     private void runLabelSettingAlgorithm() {
-        while (!unprocessedLabels.isEmpty()) {
-            Label label = unprocessedLabels.remove();
-            final int legIndex = label.getVertex();
-            ArrayList<Integer> neighbors = network.getNeighbors(legIndex);
-            if (neighbors != null) {
-                generateFeasibleExtensions(label, neighbors);
+        for (int legIndex : topologicalOrder) {
+            LabelFront front = arena.getFront(legIndex);
+            if (front.isEmpty())
+                continue;
+
+            if (tail != null && legs.get(legIndex).getArrPort().equals(tail.getSinkPort())) {
+                addSinkLabels(front);
                 if (limitReached())
                     return;
             }
+
+            for (int i = 0; i < front.size(); ++i)
+                generateFeasibleExtensions(front.get(i));
         }
     }
 
     /**
-     * Creates initial labels for flights that can connect to the given tail's source port.
+     * Creates initial labels for flights that can connect to the source port.
      *
      * These labels will be used to build feasible extensions in "runLabelSettingAlgorithm()".
      */
     private void initSourceLabels() {
         for (int i = 0; i < numLegs; ++i) {
             Leg leg = legs.get(i);
-            if (!tail.getSourcePort().equals(leg.getDepPort()))
+            if (!sourcePort.equals(leg.getDepPort()))
                 continue;
 
             double reducedCost = getReducedCostForLeg(i, 0);
-            Label label = new Label(leg, null, 0, reducedCost);
-
-            ArrayList<Label> legLabels = labels.get(i);
-            if (!canAddTo(label, legLabels))
-                continue;
-
-            legLabels.add(label);
-            unprocessedLabels.add(label);
-
-            // reduced cost for path = (sum of flight reduced costs) - \alpha_t
-            if (!leg.getArrPort().equals(tail.getSinkPort()))
+            if (isPruned(i, reducedCost))
                 continue;
 
-            double pathReducedCost = label.getReducedCost() - tailDual;
-            if (pathReducedCost >= -Constants.EPS)
-                continue;
-
-            Label copy = new Label(label);
-            copy.setReducedCost(pathReducedCost);
-            if (canAddTo(copy, sinkLabels)) {
-                sinkLabels.add(copy);
-                if (limitReached())
-                    return;
-            }
+            arena.getFront(i).add(arena.add(i, LabelArena.NO_PREDECESSOR, 0, reducedCost));
         }
     }
 
     /**
-     * Generates and stores all feasible extensions of the given label.
+     * Stores copies of the given labels with negative path reduced costs as sink labels.
      *
-     * @param label     label to be extended.
-     * @param neighbors candidates for feasible extensions.
+     * @param front non-dominated labels ending at a leg that arrives at the sink port.
      */
-    private void generateFeasibleExtensions(Label label, ArrayList<Integer> neighbors) {
-        for (Integer nextIndex : neighbors) {
-            Label extension = extend(label, nextIndex);
-            if (!canAddTo(extension, labels.get(nextIndex)))
-                continue;
+    private void addSinkLabels(LabelFront front) {
+        for (int i = 0; i < front.size(); ++i) {
+            final int label = front.get(i);
 
-            labels.get(nextIndex).add(extension);
-            unprocessedLabels.add(extension);
-            Leg nextLeg = legs.get(nextIndex);
-            if (!nextLeg.getArrPort().equals(tail.getSinkPort()))
+            // reduced cost for path = (sum of flight reduced costs) - \alpha_t
+            double pathReducedCost = arena.getReducedCost(label) - tailDual;
+            if (pathReducedCost > -Constants.EPS)
                 continue;
 
-            double pathReducedCost = extension.getReducedCost() - tailDual;
-            if (pathReducedCost <= -Constants.EPS) {
-                Label copy = new Label(extension);
-                copy.setReducedCost(pathReducedCost);
-                if (canAddTo(copy, sinkLabels)) {
-                    sinkLabels.add(copy);
-                    if (limitReached())
-                        return;
-                }
-            }
+            if (numSinkLabels == sinkLabels.length)
+                sinkLabels = Arrays.copyOf(sinkLabels, 2 * numSinkLabels);
+            sinkLabels[numSinkLabels++] = arena.add(arena.getVertex(label),
+                arena.getPredecessor(label), arena.getPropagatedDelay(label), pathReducedCost);
+            if (limitReached())
+                return;
         }
     }
 
     /**
-     * Create a new label as a forward extension of label using the given legIndex.
+     * Generates all feasible extensions of the given label along outgoing connections of its
+     * vertex and stores the ones that are not dominated at their vertices.
+     * <p>
+     * Delay and reduced cost of an extension are checked against the completion bound and the
+     * target front before the extension is created, so pruned and dominated extensions are never
+     * stored.
      *
-     * @param label    label to be extended forward (similar to appending to a path).
-     * @param legIndex vertex of the new label.
-     * @return extended Label object (will be a new object).
+     * @param label arena position of the label to be extended.
      */
-    private Label extend(Label label, int legIndex) {
-        Leg prevLeg = legs.get(label.getVertex());
-        Leg nextLeg = legs.get(legIndex);
-        final int propagatedDelay = SolverUtility.getPropagatedDelay( prevLeg, nextLeg,
-            label.getPropagatedDelay() + primaryDelays[prevLeg.getIndex()]);
-
-        final double reducedCost = (label.getReducedCost() +
-            getReducedCostForLeg(legIndex, propagatedDelay));
-
-        return label.extend(nextLeg, propagatedDelay, reducedCost);
-    }
+    private void generateFeasibleExtensions(int label) {
+        final int legIndex = arena.getVertex(label);
+        final int totalDelay = arena.getPropagatedDelay(label) + primaryDelays[legIndex];
+        final double labelReducedCost = arena.getReducedCost(label);
+        for (int e = edgeOffsets[legIndex]; e < edgeOffsets[legIndex + 1]; ++e) {
+            final int nextIndex = edgeTargets[e];
+            final int propagatedDelay = Math.max(0, totalDelay - edgeSlacks[e]);
+            final double reducedCost = labelReducedCost
+                + getReducedCostForLeg(nextIndex, propagatedDelay);
+
+            if (isPruned(nextIndex, reducedCost))
+                continue;
 
-    /**
-     * Returns true if label is dominated by any element of labels, false otherwise.
-     *
-     * @param label  The label we want to add to labels if it is not dominated.
-     * @param labels The labels that we have already created/processed.
-     * @return true if label can be added to labels, false otherwise.
-     */
-    private boolean canAddTo(Label label, ArrayList<Label> labels) {
-        for (Label existingLabel : labels) {
-            if (existingLabel.dominates(label))
-                return false;
+            LabelFront front = arena.getFront(nextIndex);
+            if (!front.isDominated(propagatedDelay, reducedCost))
+                front.add(arena.add(nextIndex, label, propagatedDelay, reducedCost));
         }
-        return true;
     }
 
     /**
@@ -253,6 +418,6 @@ class PricingProblemSolver {
 
     private boolean limitReached() {
         return columnGenStrategy == Enums.ColumnGenStrategy.FIRST_PATHS &&
-            sinkLabels.size() >= Parameters.getNumReducedCostPaths();
+            numSinkLabels >= numReducedCostPaths;
     }
 }
@@ -0,0 +1,95 @@
+package stochastic.solver;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Selects the tails priced in a column generation iteration for partial pricing.
+ * <p>
+ * Near the end of column generation, few tails still have negative reduced cost paths, and
+ * pricing all tails mostly proves that the others have none. So, each iteration prices only a
+ * subset of the candidate tails. Tails are ranked by the number of iterations since they last
+ * produced columns, then by how much their dual moved since they were last priced, then by the
+ * number of iterations since they were last priced. The last key rotates the subset among tails
+ * that are equal otherwise.
+ * <p>
+ * A partial iteration without new columns proves nothing about the other tails, so the caller
+ * must confirm optimality by pricing all tails (a full sweep) and report it with update().
+ */
+class PricingTailSelector {
+    private final int[] candidates; // positions of tails that can be priced.
+    private final int subsetSize;
+
+    private int iteration;
+    private final int[] lastPricedIteration; // by tail position, -1 if never priced.
+    private final int[] lastProductiveIteration; // by tail position, -1 if never productive.
+    private final double[] lastPricedDuals; // tail duals when tails were last priced.
+
+    /**
+     * @param numTails   number of tails of the problem.
+     * @param candidates positions of tails that need pricing.
+     * @param fraction   fraction of candidates priced per iteration, in (0, 1].
+     */
+    PricingTailSelector(int numTails, int[] candidates, double fraction) {
+        this.candidates = candidates;
+        subsetSize = Math.max(1, (int) Math.ceil(fraction * candidates.length));
+        iteration = 0;
+        lastPricedIteration = new int[numTails];
+        lastProductiveIteration = new int[numTails];
+        lastPricedDuals = new double[numTails];
+        Arrays.fill(lastPricedIteration, -1);
+        Arrays.fill(lastProductiveIteration, -1);
+    }
+
+    /**
+     * @return true if the subset is smaller than the set of candidates.
+     */
+    boolean isPartial() {
+        return subsetSize < candidates.length;
+    }
+
+    /**
+     * Selects the tails to price with the given duals.
+     *
+     * @param tailDuals tailDuals[i] is the dual of the cover constraint of tails[i].
+     * @return selected[i] is true if tails[i] is to be priced.
+     */
+    boolean[] selectTails(double[] tailDuals) {
+        Integer[] order = new Integer[candidates.length];
+        for (int k = 0; k < candidates.length; ++k)
+            order[k] = candidates[k];
+
+        // never priced tails move like tails with the largest dual movement.
+        Arrays.sort(order, Comparator
+            .comparingInt((Integer i) -> iteration - lastProductiveIteration[i])
+            .thenComparingDouble(i -> lastPricedIteration[i] < 0
+                ? -Double.MAX_VALUE
+                : -Math.abs(tailDuals[i] - lastPricedDuals[i]))
+            .thenComparingInt(i -> lastPricedIteration[i]));
+
+        boolean[] selected = new boolean[lastPricedIteration.length];
+        for (int k = 0; k < subsetSize; ++k)
+            selected[order[k]] = true;
+        return selected;
+    }
+
+    /**
+     * Records the result of pricing in the current iteration and moves to the next one.
+     *
+     * @param selected  selected[i] is true if tails[i] was priced, null if all tails were.
+     * @param tailDuals duals used for pricing.
+     * @param newPaths  number of new columns of each tail.
+     */
+    void update(boolean[] selected, double[] tailDuals, int[] newPaths) {
+        for (int i : candidates) {
+            if (selected != null && !selected[i])
+                continue;
+
+            lastPricedIteration[i] = iteration;
+            lastPricedDuals[i] = tailDuals[i];
+            if (newPaths[i] > 0)
+                lastProductiveIteration[i] = iteration;
+        }
+        ++iteration;
+    }
+}
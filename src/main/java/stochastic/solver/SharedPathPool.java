@@ -0,0 +1,75 @@
+package stochastic.solver;
+
+import stochastic.network.Path;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Shares paths found in second-stage problems across scenarios.
+ * <p>
+ * The leg sequence of a path does not depend on the scenario, only its propagated delays do. So,
+ * a path found by pricing in one scenario can be used in any other scenario after recomputing its
+ * delays (see SolverUtility.buildPathWithDelays()). Paths are published by scenarios after solving
+ * their second-stage problem. Scenarios import them through their PathCache, which remembers how
+ * many paths of each tail it has already seen.
+ * <p>
+ * Published paths only become visible when commit() is called after all scenarios of a Benders
+ * iteration were solved. They are then kept in scenario order with one path per leg sequence. So,
+ * what a scenario imports does not depend on the order in which parallel solves finish, and
+ * results are the same for parallel and sequential solves.
+ * <p>
+ * Scenarios may be solved in parallel, so all methods are synchronized.
+ */
+class SharedPathPool {
+    private final HashMap<Integer, ArrayList<Path>> publishedPaths; // by tail id.
+    private final HashMap<Integer, HashSet<LegSequence>> legSequences; // by tail id.
+    private final TreeMap<Integer, ArrayList<Path>> pendingPaths; // by scenario, until commit().
+
+    SharedPathPool() {
+        publishedPaths = new HashMap<>();
+        legSequences = new HashMap<>();
+        pendingPaths = new TreeMap<>();
+    }
+
+    /**
+     * Publishes paths of a scenario. They become visible with the next commit().
+     *
+     * @param scenarioNum number of the publishing scenario.
+     * @param paths       paths of any tails, with the propagated delays of the scenario.
+     */
+    synchronized void publish(int scenarioNum, ArrayList<Path> paths) {
+        pendingPaths.computeIfAbsent(scenarioNum, k -> new ArrayList<>()).addAll(paths);
+    }
+
+    /**
+     * Makes paths published since the last call visible in scenario order, skipping paths with a
+     * leg sequence that was published before.
+     */
+    synchronized void commit() {
+        for (Map.Entry<Integer, ArrayList<Path>> entry : pendingPaths.entrySet()) {
+            for (Path path : entry.getValue()) {
+                final int tailId = path.getTail().getId();
+                if (legSequences.computeIfAbsent(tailId, k -> new HashSet<>()).add(
+                        new LegSequence(path)))
+                    publishedPaths.computeIfAbsent(tailId, k -> new ArrayList<>()).add(path);
+            }
+        }
+        pendingPaths.clear();
+    }
+
+    /**
+     * @param tailId id of a tail.
+     * @param first  number of published paths of the tail to skip.
+     * @return paths of the tail published after the first ones.
+     */
+    synchronized ArrayList<Path> getPaths(int tailId, int first) {
+        ArrayList<Path> tailPaths = publishedPaths.get(tailId);
+        if (tailPaths == null || first >= tailPaths.size())
+            return new ArrayList<>();
+        return new ArrayList<>(tailPaths.subList(first, tailPaths.size()));
+    }
+}
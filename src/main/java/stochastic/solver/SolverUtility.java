@@ -1,8 +1,13 @@
 package stochastic.solver;
 
 import stochastic.domain.Leg;
-import stochastic.domain.Tail;
+import stochastic.lp.CplexLPSolver;
+import stochastic.lp.DualSimplexSolver;
+import stochastic.lp.LPSolver;
 import stochastic.network.Path;
+import stochastic.registry.Parameters;
+import stochastic.utility.Enums;
+import stochastic.utility.OptException;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -13,20 +18,16 @@ public class SolverUtility {
      * Generates a map that has the original plan with propagated delays based on the given primary
      * delays.
      *
-     * @param tailHashMap     map to retrieve tails using tail ids.
      * @param originalPathMap map with original path of each tail (indexed by id).
      * @param primaryDelays   primary delays of a delay scenario to propagate on original paths.
      * @return map with delayed and empty paths for each tail.
      */
     public static HashMap<Integer, ArrayList<Path>> getOriginalPaths(
-        HashMap<Integer, Tail> tailHashMap, HashMap<Integer, Path> originalPathMap,
-        int[] primaryDelays) {
+        HashMap<Integer, Path> originalPathMap, int[] primaryDelays) {
         HashMap<Integer, ArrayList<Path>> initialPaths = new HashMap<>();
 
         for (Map.Entry<Integer, Path> entry : originalPathMap.entrySet()) {
             int tailId = entry.getKey();
-            Tail tail = tailHashMap.getOrDefault(tailId, null);
-
             Path origPath = entry.getValue();
 
             // The original path of the tail may not be valid due to random primary delays. To make
@@ -37,22 +38,7 @@ public class SolverUtility {
             // Note that the leg coverage constraint in the second-stage model remains feasible
             // even with just these paths as we assume that there are no open legs in any data set.
             // This means that each leg must be on the original path of some tail.
-            Path pathWithDelays = new Path(tail);
-            ArrayList<Leg> pathLegs = origPath.getLegs();
-
-            int propagatedDelay = 0;
-            int prevPrimaryDelay = 0;
-            Leg prevLeg = null;
-            for (int i = 0; i < pathLegs.size(); ++i) {
-                Leg leg = pathLegs.get(i);
-                if (i > 0) {
-                    propagatedDelay = SolverUtility.getPropagatedDelay(prevLeg, leg,
-                        propagatedDelay + prevPrimaryDelay);
-                }
-                pathWithDelays.addLeg(leg, propagatedDelay);
-                prevLeg = leg;
-                prevPrimaryDelay = primaryDelays[leg.getIndex()];
-            }
+            Path pathWithDelays = buildPathWithDelays(origPath, primaryDelays);
 
             // Don't allow empty paths as they may cause a mismatch between source and sink
             // stations.
@@ -64,17 +50,35 @@ public class SolverUtility {
         return initialPaths;
     }
 
-    static HashMap<Integer, ArrayList<Path>> getPathsForFullEnum(ArrayList<Path> paths) {
-        HashMap<Integer, ArrayList<Path>> tailPathsMap = new HashMap<>();
-        for (Path p : paths) {
-            Integer tailId = p.getTail().getId();
-            tailPathsMap.putIfAbsent(tailId, new ArrayList<>());
-            tailPathsMap.get(tailId).add(p);
+    /**
+     * Builds a path with the tail and legs of the given path and delays propagated from the given
+     * primary delays. The delay of the first leg is not propagated from anywhere, so it is 0.
+     *
+     * @param path          path with the tail and legs of the path to build.
+     * @param primaryDelays primary delays of a delay scenario, indexed by leg index.
+     * @return path with propagated delays.
+     */
+    static Path buildPathWithDelays(Path path, int[] primaryDelays) {
+        int[] propagatedDelays = new int[path.getNumLegs()];
+        for (int i = 1; i < propagatedDelays.length; ++i) {
+            propagatedDelays[i] = SolverUtility.getPropagatedDelay(path.getLeg(i - 1),
+                path.getLeg(i), propagatedDelays[i - 1] + primaryDelays[path.getLegIndex(i - 1)]);
         }
-        return tailPathsMap;
+        return path.withPropagatedDelays(propagatedDelays);
+    }
+
+    /**
+     * @param disableOutput true to disable solver logs.
+     * @return a new solver of the type selected for second-stage problems.
+     * @throws OptException if the solver cannot be initialized.
+     */
+    public static LPSolver createSecondStageSolver(boolean disableOutput) throws OptException {
+        if (Parameters.getSecondStageSolverType() == Enums.LPSolverType.DUAL_SIMPLEX)
+            return new DualSimplexSolver();
+        return new CplexLPSolver(disableOutput);
     }
 
-    static int getSlackInMin(Leg incomingLeg, Leg outgoingLeg) {
+    public static int getSlackInMin(Leg incomingLeg, Leg outgoingLeg) {
         int slack = (int) (outgoingLeg.getDepTime() - incomingLeg.getArrTime());
         return slack - incomingLeg.getTurnTimeInMin();
     }
@@ -0,0 +1,83 @@
+package stochastic.solver;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import stochastic.utility.OptException;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps second-stage models of scenarios alive across Benders iterations.
+ * <p>
+ * Between Benders iterations, the second-stage model of a scenario changes only in right-hand
+ * sides that depend on the first-stage reschedules (see SubSolver.updateReschedules()), and new
+ * paths are appended as columns. Each cached model has its own solver, so that it can be
+ * re-optimized starting from the basis of the previous iteration.
+ * <p>
+ * A model is removed from the cache while its scenario is being solved, so a model is never used
+ * by two threads at the same time and never evicted while in use. To bound memory use, at most
+ * "capacity" idle models are kept; the least recently used ones are ended first.
+ */
+class SubModelCache {
+    private final static Logger logger = LogManager.getLogger(SubModelCache.class);
+    private final int capacity;
+    private final LinkedHashMap<Integer, SubSolver> idleModels; // in order of release.
+    private int numEvictions;
+
+    SubModelCache(int capacity) {
+        this.capacity = capacity;
+        this.idleModels = new LinkedHashMap<>();
+        this.numEvictions = 0;
+    }
+
+    /**
+     * Takes the model of the given scenario out of the cache.
+     *
+     * @param scenarioNum scenario index.
+     * @return cached model, or null if the scenario has no cached model.
+     */
+    synchronized SubSolver acquire(int scenarioNum) {
+        return idleModels.remove(scenarioNum);
+    }
+
+    /**
+     * Returns the model of the given scenario to the cache after it was solved, ending the least
+     * recently released models if the cache is full.
+     *
+     * @param scenarioNum scenario index.
+     * @param subSolver   solved model built with a solver from SolverUtility.createSecondStageSolver().
+     */
+    synchronized void release(int scenarioNum, SubSolver subSolver) {
+        idleModels.put(scenarioNum, subSolver);
+
+        Iterator<Map.Entry<Integer, SubSolver>> iterator = idleModels.entrySet().iterator();
+        while (idleModels.size() > capacity && iterator.hasNext()) {
+            Map.Entry<Integer, SubSolver> entry = iterator.next();
+            iterator.remove();
+            endModel(entry.getValue());
+            ++numEvictions;
+            logger.debug("evicted second-stage model of scenario " + entry.getKey());
+        }
+    }
+
+    /**
+     * Ends all cached models.
+     */
+    synchronized void clear() {
+        for (SubSolver subSolver : idleModels.values())
+            endModel(subSolver);
+        idleModels.clear();
+        logger.info("second-stage model cache cleared, evictions: " + numEvictions);
+    }
+
+    private static void endModel(SubSolver subSolver) {
+        try {
+            subSolver.end();
+        } catch (OptException oe) {
+            logger.error(oe);
+        }
+        subSolver.getLPSolver().end();
+    }
+}
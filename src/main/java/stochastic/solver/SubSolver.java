@@ -1,14 +1,14 @@
 package stochastic.solver;
 
-import ilog.concert.IloException;
-import ilog.concert.IloLinearNumExpr;
-import ilog.cplex.IloCplex;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import stochastic.domain.Leg;
 import stochastic.domain.Tail;
+import stochastic.lp.LPSolver;
+import stochastic.model.LPMatrixBuffer;
 import stochastic.model.SubModelBuilder;
 import stochastic.network.Path;
+import stochastic.network.PathStore;
 import stochastic.registry.Parameters;
 import stochastic.utility.Constants;
 import stochastic.utility.OptException;
@@ -26,9 +26,13 @@ public class SubSolver {
     private ArrayList<Leg> legs;
     private int[] reschedules;  // reschedules[i] is the first-stage reschedule chosen for legs[i].
     private boolean solveAsMIP;
+    private boolean columnsAdded; // true if columns were added since the last solve.
+    private boolean rhsChanged; // true if right-hand sides were changed since the last solve.
 
-    private IloCplex cplex;
+    private LPSolver lpSolver;
     private SubModelBuilder subModelBuilder;
+    private PathStore pathStore; // store path columns were read from, null if built from lists.
+    private int[] primaryDelays; // primary delays path columns were read from the store with.
 
     // Solution info
     private double objValue;
@@ -37,7 +41,6 @@ public class SubSolver {
     private double[] dualsTail;
     private double[] dualsLeg;
     private double[] dualsDelay;
-    private double[][] dualsBound;
     private double dualRisk;
 
     SubSolver(int scenarioNum, ArrayList<Tail> tails, ArrayList<Leg> legs, int[] reschedules) {
@@ -46,6 +49,8 @@ public class SubSolver {
         this.legs = legs;
         this.reschedules = reschedules;
         solveAsMIP = false;
+        columnsAdded = false;
+        rhsChanged = false;
         dualRisk = 0.0;
     }
 
@@ -53,82 +58,142 @@ public class SubSolver {
         this.solveAsMIP = true;
     }
 
-    void setCplex(IloCplex cplex) {
-        this.cplex = cplex;
+    void setLPSolver(LPSolver lpSolver) {
+        this.lpSolver = lpSolver;
+    }
+
+    LPSolver getLPSolver() {
+        return lpSolver;
     }
 
     void constructSecondStage(HashMap<Integer, ArrayList<Path>> paths) throws OptException {
-        try {
-            subModelBuilder = new SubModelBuilder(scenarioNum, legs, tails, paths, cplex);
-
-            IloLinearNumExpr objExpr = cplex.linearNumExpr();
-            subModelBuilder.buildObjective(objExpr, null);
-            cplex.addMinimize(objExpr);
-            objExpr.clear();
-
-            subModelBuilder.addPathVarsToConstraints();
-            subModelBuilder.updateModelWithRescheduleValues(reschedules);
-            subModelBuilder.addConstraintsToModel();
-        } catch (IloException e) {
-            logger.error(e.getStackTrace());
-            throw new OptException("CPLEX error solving first stage MIP");
-        }
+        columnsAdded = false;
+        rhsChanged = false;
+        LPMatrixBuffer matrixBuffer = new LPMatrixBuffer(lpSolver);
+        subModelBuilder = new SubModelBuilder(scenarioNum, legs, tails, paths, lpSolver,
+            matrixBuffer);
+
+        subModelBuilder.buildObjective(null);
+        subModelBuilder.addPathVarsToConstraints();
+        subModelBuilder.updateModelWithRescheduleValues(reschedules);
+        matrixBuffer.build();
+        pathStore = null;
+        primaryDelays = null;
+    }
+
+    /**
+     * Builds the model like constructSecondStage(HashMap) with path columns streamed from a store,
+     * so that paths are not kept on the heap. The store must stay open until the model is ended.
+     * Columns cannot be added or removed later.
+     *
+     * @param pathStore     store with paths of the tails in the same order.
+     * @param primaryDelays primary delays of the scenario to propagate along the paths.
+     * @throws OptException if the model cannot be built.
+     */
+    void constructSecondStage(PathStore pathStore, int[] primaryDelays) throws OptException {
+        columnsAdded = false;
+        rhsChanged = false;
+        LPMatrixBuffer matrixBuffer = new LPMatrixBuffer(lpSolver);
+        subModelBuilder = new SubModelBuilder(scenarioNum, legs, tails, lpSolver, matrixBuffer);
+
+        subModelBuilder.buildObjective(null);
+        subModelBuilder.updateModelWithRescheduleValues(reschedules);
+        matrixBuffer.build();
+        subModelBuilder.addPathVarsFromStore(pathStore, primaryDelays);
+        this.pathStore = pathStore;
+        this.primaryDelays = primaryDelays;
+    }
+
+    /**
+     * Adds paths appended to the path lists given to constructSecondStage() as new columns of the
+     * model built there.
+     *
+     * @throws OptException if the columns cannot be added.
+     */
+    void addNewColumns() throws OptException {
+        final int numAdded = subModelBuilder.addNewPathVars();
+        if (numAdded > 0)
+            columnsAdded = true;
+        logger.debug("scenario " + scenarioNum + ": added " + numAdded + " columns");
+    }
+
+    /**
+     * Removes columns of paths that were removed from the path lists given to
+     * constructSecondStage().
+     *
+     * @param removedPaths removedPaths[i] holds the positions the removed paths of tails[i] had
+     *                     in their list, in increasing order.
+     * @throws OptException if the columns cannot be removed.
+     */
+    void removeColumns(int[][] removedPaths) throws OptException {
+        final int numRemoved = subModelBuilder.removePathVars(removedPaths);
+        logger.debug("scenario " + scenarioNum + ": removed " + numRemoved + " columns");
+    }
+
+    /**
+     * Updates a model built by constructSecondStage() for new first-stage reschedules.
+     *
+     * @param reschedules reschedules[i] is the first-stage reschedule chosen for legs[i].
+     * @throws OptException if the model cannot be updated.
+     */
+    void updateReschedules(int[] reschedules) throws OptException {
+        this.reschedules = reschedules;
+        subModelBuilder.updateRescheduleValues(reschedules);
+        rhsChanged = true;
     }
 
     public void solve() throws OptException {
-        try {
-            cplex.setParam(IloCplex.Param.MIP.Tolerances.MIPGap, Constants.CPLEX_MIP_GAP);
-            cplex.setParam(IloCplex.Param.RootAlgorithm, IloCplex.Algorithm.Dual);
-            cplex.setParam(IloCplex.Param.Preprocessing.Presolve, false);
-
-            if (solveAsMIP)
-                subModelBuilder.changePathVarsToInts();
-
-            cplex.solve();
-            IloCplex.Status status = cplex.getStatus();
-            if (status != IloCplex.Status.Optimal) {
-                logger.error("sub-problem status: " + status);
-                throw new OptException("optimal solution not found for sub-problem");
-            }
-
-            objValue = cplex.getObjValue();
-        } catch (IloException ie) {
-            logger.error(ie);
-            throw new OptException("error solving sub-problem");
+        // After adding columns, the previous optimal basis stays primal feasible, so primal
+        // simplex can continue from it directly. After changing right-hand sides, it stays
+        // dual feasible, which suits dual simplex.
+        final boolean primal = columnsAdded && !rhsChanged && !solveAsMIP;
+        columnsAdded = false;
+        rhsChanged = false;
+
+        if (solveAsMIP) {
+            lpSolver.setMIPGap(Constants.CPLEX_MIP_GAP);
+            subModelBuilder.changePathVarsToInts();
+        }
+
+        LPSolver.Status status = lpSolver.solve(
+            primal ? LPSolver.Algorithm.PRIMAL : LPSolver.Algorithm.DUAL);
+        if (status != LPSolver.Status.OPTIMAL) {
+            logger.error("sub-problem status: " + status);
+            throw new OptException("optimal solution not found for sub-problem");
         }
+
+        objValue = lpSolver.getObjValue();
     }
 
-    void collectSolution() throws IloException {
+    void collectSolution() throws OptException {
         zValues = subModelBuilder.getzValues();
         yValues = subModelBuilder.getyValues();
     }
 
     void collectDuals() throws OptException {
-        try {
-            dualsLeg = subModelBuilder.getDualsLeg();
-            dualsTail = subModelBuilder.getDualsTail();
-            dualsDelay = subModelBuilder.getDualsDelay();
-            dualsBound = subModelBuilder.getDualsBound();
-            if (Parameters.isExpectedExcess())
-                dualRisk = subModelBuilder.getDualRisk();
-        } catch (IloException ie) {
-            logger.error(ie);
-            throw new OptException("error when collecting duals from sub-problem");
-        }
+        dualsLeg = subModelBuilder.getDualsLeg();
+        dualsTail = subModelBuilder.getDualsTail();
+        dualsDelay = subModelBuilder.getDualsDelay();
+        if (Parameters.isExpectedExcess())
+            dualRisk = subModelBuilder.getDualRisk();
     }
 
-    void writeLPFile(String name) throws IloException {
-        cplex.exportModel(name);
+    void writeLPFile(String name) throws OptException {
+        if (Parameters.isSetCplexNames())
+            subModelBuilder.setNames();
+        lpSolver.exportModel(name);
     }
 
-    void writeCplexSolution(String name) throws IloException {
-        cplex.writeSolution(name);
+    void writeCplexSolution(String name) throws OptException {
+        lpSolver.writeSolution(name);
     }
 
-    void end() throws IloException {
-        subModelBuilder.clearCplexObjects();
+    void end() throws OptException {
+        subModelBuilder.clear();
         subModelBuilder = null;
-        cplex.clearModel();
+        pathStore = null;
+        primaryDelays = null;
+        lpSolver.clearModel();
     }
 
     double getObjValue() {
@@ -155,8 +220,21 @@ public class SubSolver {
         return dualsDelay;
     }
 
-    double[][] getDualsBound() {
-        return dualsBound;
+    /**
+     * @return tail duals for pricing, see SubModelBuilder.getPricingDualsTail().
+     */
+    double[] getPricingDualsTail() {
+        return subModelBuilder.getPricingDualsTail(dualsTail, dualsLeg, dualsDelay);
+    }
+
+    /**
+     * @return sum of duals of path variable bounds, derived from the duals of collectDuals().
+     */
+    double getDualsBoundSum() throws OptException {
+        if (pathStore != null)
+            return subModelBuilder.getDualsBoundSum(pathStore, primaryDelays, dualsTail, dualsLeg,
+                dualsDelay);
+        return subModelBuilder.getDualsBoundSum(dualsTail, dualsLeg, dualsDelay);
     }
 
     double getDualRisk() {
@@ -1,12 +1,14 @@
 package stochastic.solver;
 
-import ilog.concert.IloException;
-import ilog.cplex.IloCplex;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import stochastic.domain.Leg;
 import stochastic.domain.Tail;
+import stochastic.lp.LPSolver;
+import stochastic.network.Network;
 import stochastic.network.Path;
+import stochastic.network.PathStore;
+import stochastic.network.PathTopology;
 import stochastic.output.DelaySolution;
 import stochastic.registry.DataRegistry;
 import stochastic.registry.Parameters;
@@ -14,15 +16,30 @@ import stochastic.utility.Constants;
 import stochastic.utility.Enums;
 import stochastic.utility.OptException;
 
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
 
 public class SubSolverRunnable implements Runnable {
     private final static Logger logger = LogManager.getLogger(SubSolverWrapper.class);
+
+    // Pricing runs on a pool shared by all scenarios. Each thread reuses its own label arena.
+    private static ForkJoinPool pricingPool = null;
+    private static final ThreadLocal<LabelArena> labelArenas =
+        ThreadLocal.withInitial(LabelArena::new);
+
     private DataRegistry dataRegistry;
-    private IloCplex cplex;
+    private Network network;
+    private LPSolver lpSolver;
     private int iter;
     private int scenarioNum;
     private int cutNum;
@@ -30,6 +47,9 @@ public class SubSolverRunnable implements Runnable {
     private int[] reschedules;
     private int[] randomDelays;
     private PathCache pathCache;
+    private SubModelCache subModelCache; // keeps models across Benders iterations if not null.
+    private SharedPathPool sharedPathPool; // shares paths with other scenarios if not null.
+    private ColumnGenController columnGenController; // chooses pricing strategies if adaptive.
 
     private String filePrefix;
 
@@ -45,6 +65,7 @@ public class SubSolverRunnable implements Runnable {
     public SubSolverRunnable(DataRegistry dataRegistry, int iter, int scenarioNum, double probability,
                              int[] reschedules, int[] randomDelays, PathCache pathCache) {
         this.dataRegistry = dataRegistry;
+        this.network = dataRegistry.getNetwork();
         this.iter = iter;
         this.scenarioNum = scenarioNum;
         this.cutNum = Parameters.isBendersMultiCut() ? scenarioNum : 0;
@@ -55,8 +76,34 @@ public class SubSolverRunnable implements Runnable {
         this.filePrefix = null;
     }
 
-    public void setCplex(IloCplex cplex) {
-        this.cplex = cplex;
+    public void setLPSolver(LPSolver lpSolver) {
+        this.lpSolver = lpSolver;
+    }
+
+    /**
+     * Sets the network used to enumerate or price paths. Defaults to the network of the data
+     * registry, i.e. the one built with original leg times.
+     *
+     * @param network connection network matching current leg times.
+     */
+    public void setNetwork(Network network) {
+        this.network = network;
+    }
+
+    void setSubModelCache(SubModelCache subModelCache) {
+        this.subModelCache = subModelCache;
+    }
+
+    void setSharedPathPool(SharedPathPool sharedPathPool) {
+        this.sharedPathPool = sharedPathPool;
+    }
+
+    /**
+     * Sets the controller that keeps the pricing strategy of the scenario across Benders
+     * iterations. Used only by the ADAPTIVE strategy, which otherwise starts from scratch.
+     */
+    void setColumnGenController(ColumnGenController columnGenController) {
+        this.columnGenController = columnGenController;
     }
 
     public void setFilePrefix(String filePrefix) {
@@ -79,10 +126,6 @@ public class SubSolverRunnable implements Runnable {
             else
                 solveWithLabeling();
             logger.info("solved scenario " + scenarioNum);
-        } catch (IloException ie) {
-            logger.error(ie);
-            logger.error("CPLEX error solving sub-problem");
-            System.exit(Constants.ERROR_CODE);
         } catch (OptException oe) {
             logger.error(oe);
             logger.error("algorithm error solving sub-problem");
@@ -90,23 +133,27 @@ public class SubSolverRunnable implements Runnable {
         }
     }
 
-    private void solveWithFullEnumeration() throws IloException {
+    private void solveWithFullEnumeration() {
         try {
-            // Enumerate all paths for each tail.
-            ArrayList<Path> allPaths = dataRegistry.getNetwork().enumeratePathsForTails(
-                dataRegistry.getTails(), randomDelays);
-
-            // Store paths for each tail separately.
-            HashMap<Integer, ArrayList<Path>> tailPathsMap = SolverUtility.getPathsForFullEnum(
-                allPaths);
+            // All paths of each tail are enumerated once into a store shared by all scenarios.
+            // They can outgrow the heap, so the store spills to disk, and paths are streamed into
+            // the solver as columns with delays of this scenario.
+            ArrayList<Tail> tails = dataRegistry.getTails();
+            final long pathMemory = Parameters.getPathStoreMemoryInMB() * 1024L * 1024L;
+            PathStore pathStore;
+            try {
+                pathStore = network.getPathStore(tails, pathMemory);
+            } catch (UncheckedIOException ue) {
+                throw new OptException("unable to store enumerated paths for scenario "
+                    + scenarioNum);
+            }
 
-            SubSolver ss = new SubSolver(scenarioNum, dataRegistry.getTails(),
-                dataRegistry.getLegs(), reschedules);
+            SubSolver ss = new SubSolver(scenarioNum, tails, dataRegistry.getLegs(), reschedules);
 
-            ss.setCplex(cplex);
+            ss.setLPSolver(lpSolver);
             if (solveForQuality)
                 ss.setSolveAsMIP();
-            ss.constructSecondStage(tailPathsMap);
+            ss.constructSecondStage(pathStore, randomDelays);
 
             String name = "dummy";
             if (Parameters.isDebugVerbose()) {
@@ -136,16 +183,17 @@ public class SubSolverRunnable implements Runnable {
 
             if (solveForQuality) {
                 ss.collectSolution();
-                buildDelaySolution(ss, randomDelays, tailPathsMap);
+                buildDelaySolution(ss, randomDelays,
+                    getSelectedPaths(ss.getyValues(), pathStore, randomDelays));
             } else {
                 ss.collectDuals();
-                alpha = calculateAlpha(ss.getDualsLeg(), ss.getDualsTail(), ss.getDualsBound(),
+                alpha = calculateAlpha(ss.getDualsLeg(), ss.getDualsTail(), ss.getDualsBoundSum(),
                     ss.getDualRisk());
                 beta = calculateBeta(ss.getDualsDelay(), ss.getDualRisk());
                 objValue = ss.getObjValue();
             }
 
-            logger.info("Total number of paths: " + allPaths.size());
+            logger.info("Total number of paths: " + pathStore.getNumPaths());
             logger.info("Iter " + iter + ": sub-problem objective value: " + ss.getObjValue());
             ss.end();
         } catch (OptException oe) {
@@ -155,25 +203,69 @@ public class SubSolverRunnable implements Runnable {
         }
     }
 
-    private void solveWithLabeling() throws IloException, OptException {
-        SubSolver ss = new SubSolver(scenarioNum, dataRegistry.getTails(), dataRegistry.getLegs(),
-            reschedules);
-        ss.setCplex(cplex);
-
-        // Load on-plan paths with propagated delays.
+    private void solveWithLabeling() throws OptException {
+        // Load paths of the column pool of the scenario, starting with on-plan paths with
+        // propagated delays. New paths are added to the pool, which appends them to these lists.
         HashMap<Integer, ArrayList<Path>> pathsAll = pathCache.getCachedPaths();
 
+        // Add all paths of tails with few paths once, so that only the other tails are priced.
+        if (Parameters.getColumnGenStrategy() == Enums.ColumnGenStrategy.HYBRID
+                && !pathCache.hasEnumeratedPaths())
+            addEnumeratedPaths();
+
+        // Seed the pool with paths other scenarios found, with delays of this scenario.
+        final boolean sharePaths = sharedPathPool != null && !solveForQuality;
+        if (sharePaths) {
+            final int numImported = pathCache.importSharedPaths(sharedPathPool,
+                dataRegistry.getTails(), randomDelays, Parameters.getNumSharedPathsPerTail());
+            logger.debug("scenario " + scenarioNum + ": imported " + numImported
+                + " shared paths");
+        }
+
+        // Build second-stage RMP (Restricted Master Problem). It is kept alive during column
+        // generation and new paths are appended to it as columns. If models are cached, the model
+        // of the previous Benders iteration is reused with updated reschedules and paths cached
+        // since then.
+        final boolean cacheModel = subModelCache != null && !solveForQuality;
+        SubSolver ss = cacheModel ? subModelCache.acquire(scenarioNum) : null;
+        if (ss != null) {
+            ss.updateReschedules(reschedules);
+            ss.addNewColumns();
+        } else {
+            ss = new SubSolver(scenarioNum, dataRegistry.getTails(), dataRegistry.getLegs(),
+                reschedules);
+            ss.setLPSolver(cacheModel ? SolverUtility.createSecondStageSolver(
+                Parameters.disableCplexOutput()) : lpSolver);
+            ss.constructSecondStage(pathsAll);
+        }
+
         // Run the column generation procedure.
         ArrayList<Leg> legs = dataRegistry.getLegs();
+        DualStabilizer stabilizer = null;
+        if (Parameters.getStabilizationAlpha() > 0)
+            stabilizer = new DualStabilizer(Parameters.getStabilizationAlpha(),
+                Parameters.getStabilizationBoxWidth());
+
+        if (Parameters.getColumnGenStrategy() == Enums.ColumnGenStrategy.ADAPTIVE) {
+            if (columnGenController == null)
+                columnGenController = new ColumnGenController(Parameters.getNumReducedCostPaths());
+            columnGenController.start();
+        }
+
+        PricingTailSelector tailSelector = null;
+        if (Parameters.getPartialPricingFraction() < 1.0) {
+            tailSelector = buildPricingTailSelector();
+            if (!tailSelector.isPartial())
+                tailSelector = null;
+        }
+        int numFullSweeps = 0;
 
+        ArrayList<Path> generatedPaths = new ArrayList<>(); // paths added by pricing.
         boolean optimal = false;
         int columnGenIter = 0;
         while (!optimal) {
             logger.debug("scenario " + scenarioNum + " column gen iteration " + columnGenIter + " starting...");
 
-            // Solve second-stage RMP (Restricted Master Problem)
-            ss.constructSecondStage(pathsAll);
-
             String name = "dummy";
             if (Parameters.isDebugVerbose()) {
                 StringBuilder nameBuilder = new StringBuilder();
@@ -192,45 +284,44 @@ public class SubSolverRunnable implements Runnable {
                 ss.writeLPFile(name + ".lp");
             }
 
+            final long lpStart = System.nanoTime();
             ss.solve();
             ss.collectDuals();
+            final long lpTime = System.nanoTime() - lpStart;
 
             if (Parameters.isDebugVerbose())
                 ss.writeCplexSolution(name + ".xml");
 
             // Collect paths with negative reduced cost from the labeling algorithm. Optimality is
             // reached when there are no new negative reduced cost paths available for any tail.
-            ArrayList<Tail> tails = dataRegistry.getTails();
-            double[] tailDuals = ss.getDualsTail();
-            optimal = true;
-
-            for (int i = 0; i < tails.size(); ++i) {
-                Tail tail = tails.get(i);
-
-                PricingProblemSolver pps = new PricingProblemSolver(tail, legs,
-                    dataRegistry.getNetwork(), randomDelays, tailDuals[i], ss.getDualsLeg(),
-                    ss.getDualsDelay());
-
-                // Build sink labels for paths that have already been generated and add them to the
-                // labeling path generator.
-                ArrayList<Path> existingPaths = pathsAll.get(tail.getId());
-
-                // Note: it is possible for a path already in existingPaths to be generated again
-                // and be present in tailPaths, causing duplicates. However, we found empirically
-                // that the number of duplicates is not big enough to impact CPLEX run-times. So,
-                // we ignore duplicate checking here.
-                ArrayList<Path> tailPaths = pps.generatePathsForTail();
-                if (!tailPaths.isEmpty()) {
-                    if (optimal)
-                        optimal = false;
-
-                    existingPaths.addAll(tailPaths);
-                }
+            // Pricing uses tail duals with which paths already in the RMP have no negative reduced
+            // cost, so every path it finds improves the RMP.
+            // With partial pricing, only a subset of tails is priced, and optimality is confirmed
+            // by pricing all tails exactly once the subset yields no new path.
+            final long pricingStart = System.nanoTime();
+            boolean[] pricedTails = tailSelector != null
+                ? tailSelector.selectTails(ss.getPricingDualsTail())
+                : null;
+            int[] numNewPaths = addNewPaths(stabilizer != null
+                ? generateStabilizedPaths(ss, stabilizer, pricedTails)
+                : generatePaths(ss.getPricingDualsTail(), ss.getDualsLeg(), ss.getDualsDelay(),
+                pricedTails), generatedPaths);
+            if (pricedTails != null && Arrays.stream(numNewPaths).sum() == 0) {
+                pricedTails = null;
+                ++numFullSweeps;
+                numNewPaths = addNewPaths(generatePaths(ss.getPricingDualsTail(),
+                    ss.getDualsLeg(), ss.getDualsDelay(), null), generatedPaths);
             }
-
-            // Cleanup CPLEX containers of the SubSolver object.
+            if (tailSelector != null)
+                tailSelector.update(pricedTails, ss.getPricingDualsTail(), numNewPaths);
+            if (columnGenController != null)
+                columnGenController.update(ss.getObjValue(), lpTime,
+                    System.nanoTime() - pricingStart);
+            optimal = Arrays.stream(numNewPaths).sum() == 0;
+
+            // Add new paths as columns of the RMP, which is re-solved from the previous basis.
             if (!optimal)
-                ss.end();
+                ss.addNewColumns();
 
             ++columnGenIter;
         }
@@ -246,6 +337,24 @@ public class SubSolverRunnable implements Runnable {
             }
         }
 
+        if (tailSelector != null)
+            logger.debug("scenario " + scenarioNum + ": partial pricing needed " + numFullSweeps
+                + " full sweeps in " + columnGenIter + " column gen iterations");
+
+        if (columnGenController != null) {
+            logger.debug("scenario " + scenarioNum + ": column gen ended with "
+                + columnGenController.getStrategy() + " pricing of "
+                + columnGenController.getNumReducedCostPaths() + " paths after "
+                + columnGenIter + " iterations");
+            columnGenController.finish();
+        }
+
+        if (stabilizer != null)
+            logger.info("scenario " + scenarioNum + " dual stabilization: "
+                + stabilizer.getNumIterations() + " column gen iterations, "
+                + stabilizer.getNumMispricings() + " mispricings, final alpha "
+                + stabilizer.getAlpha());
+
         int numPaths = 0;
         for (Map.Entry<Integer, ArrayList<Path>> entry : pathsAll.entrySet())
             numPaths += entry.getValue().size();
@@ -270,46 +379,312 @@ public class SubSolverRunnable implements Runnable {
             }
 
             ss.collectSolution();
-            buildDelaySolution(ss, randomDelays, pathsAll);
+            buildDelaySolution(ss, randomDelays, getSelectedPaths(ss.getyValues(), pathsAll));
         } else {
             // Update master problem data
-            alpha = calculateAlpha(ss.getDualsLeg(), ss.getDualsTail(), ss.getDualsBound(),
+            alpha = calculateAlpha(ss.getDualsLeg(), ss.getDualsTail(), ss.getDualsBoundSum(),
                 ss.getDualRisk());
             beta = calculateBeta(ss.getDualsDelay(), ss.getDualRisk());
             objValue = ss.getObjValue();
 
-            // cache best paths for each tail
-            if (Parameters.isUseColumnCaching()) {
+            final int poolCapacity = Parameters.getColumnPoolCapacity();
+            if (Parameters.isUseColumnCaching() || poolCapacity > 0 || sharePaths)
                 ss.collectSolution();
+
+            // cache best paths for each tail
+            if (Parameters.isUseColumnCaching())
                 pathCache.addPaths(getBestPaths(ss.getyValues(), pathsAll));
+
+            if (sharePaths)
+                sharedPathPool.publish(scenarioNum,
+                    Parameters.getColumnSharingPolicy() == Enums.ColumnSharingPolicy.ALL_PATHS
+                        ? generatedPaths
+                        : getUsedPaths(ss.getyValues(), pathsAll));
+
+            // Evict stale paths from the pool and from the cached model. Pricing generates them
+            // again if later iterations need them.
+            if (poolCapacity > 0) {
+                pathCache.updateAges(dataRegistry.getTails(), ss.getyValues());
+                int[][] evictedPaths = pathCache.evictPaths(dataRegistry.getTails(), poolCapacity);
+                if (cacheModel)
+                    ss.removeColumns(evictedPaths);
             }
         }
-        ss.end();
+
+        if (cacheModel)
+            subModelCache.release(scenarioNum, ss);
+        else
+            ss.end();
     }
 
-    private void buildDelaySolution(SubSolver ss, int[] primaryDelays,
-                                    HashMap<Integer, ArrayList<Path>> tailPaths)
-        throws OptException{
-        // find selected paths for each tail
+    /**
+     * Adds all paths of tails with at most hybridEnumerationLimit paths to the column pool, with
+     * propagated delays of this scenario. Leg sequences are enumerated by the network on first use
+     * and shared by all scenarios.
+     */
+    private void addEnumeratedPaths() {
         ArrayList<Tail> tails = dataRegistry.getTails();
-        ArrayList<Path> selectedPaths = new ArrayList<>();
-        double[][] yValues = ss.getyValues();
+        long[] numPaths = network.countPathsPerTail(tails);
+        ArrayList<Tail> enumeratedTails = new ArrayList<>();
+        for (int i = 0; i < tails.size(); ++i)
+            if (numPaths[i] <= Parameters.getHybridEnumerationLimit())
+                enumeratedTails.add(tails.get(i));
+
+        PathTopology pathTopology = network.getPathTopology(enumeratedTails);
+        final int numAdded = pathCache.addEnumeratedPaths(pathTopology.buildTailPaths(
+            pathTopology.computePropagatedDelays(randomDelays)));
+        logger.debug("scenario " + scenarioNum + ": enumerated " + numAdded + " paths of "
+            + enumeratedTails.size() + " tails, pricing " + (tails.size() - enumeratedTails.size())
+            + " tails");
+    }
 
+    /**
+     * @return selector for partial pricing of tails that are not enumerated.
+     */
+    private PricingTailSelector buildPricingTailSelector() {
+        ArrayList<Tail> tails = dataRegistry.getTails();
+        int[] candidates = IntStream.range(0, tails.size())
+            .filter(i -> !pathCache.isEnumerated(tails.get(i).getId()))
+            .toArray();
+        return new PricingTailSelector(tails.size(), candidates,
+            Parameters.getPartialPricingFraction());
+    }
+
+    /**
+     * Adds paths found by pricing to the column pool.
+     *
+     * @param newPaths       list with new paths of tails[i] at position i.
+     * @param generatedPaths list to which paths of tails with added paths are appended.
+     * @return number of added paths of each tail.
+     */
+    private int[] addNewPaths(ArrayList<ArrayList<Path>> newPaths,
+                              ArrayList<Path> generatedPaths) {
+        ArrayList<Tail> tails = dataRegistry.getTails();
+        int[] numAdded = new int[tails.size()];
         for (int i = 0; i < tails.size(); ++i) {
-            Tail tail = tails.get(i);
-            ArrayList<Path> generatedPaths = tailPaths.getOrDefault(tail.getId(), null);
-            if (generatedPaths == null)
+            // The pool drops paths it already holds, which can only be generated again due
+            // to numerical tolerances.
+            ArrayList<Path> tailPaths = newPaths.get(i);
+            if (!tailPaths.isEmpty())
+                numAdded[i] = pathCache.addPaths(tails.get(i).getId(), tailPaths);
+            if (numAdded[i] > 0)
+                generatedPaths.addAll(tailPaths);
+        }
+        return numAdded;
+    }
+
+    /**
+     * Generates new paths using duals of the latest RMP solution stabilized by the given
+     * stabilizer (see DualStabilizer).
+     * <p>
+     * Only paths with negative reduced costs with respect to the RMP duals are returned. If
+     * there are none, pricing is repeated with a separation point closer to the RMP duals. The
+     * result is empty only if exact pricing with the RMP duals found no path.
+     *
+     * @param ss          solved second-stage RMP with collected duals.
+     * @param stabilizer  stabilizer of the scenario, kept across column gen iterations.
+     * @param pricedTails pricedTails[i] is true if tails[i] is priced, null to price all tails.
+     * @return list with new paths of tails[i] at position i.
+     * @throws OptException if pricing fails.
+     */
+    private ArrayList<ArrayList<Path>> generateStabilizedPaths(SubSolver ss,
+                                                               DualStabilizer stabilizer,
+                                                               boolean[] pricedTails)
+        throws OptException {
+        stabilizer.update(ss.getPricingDualsTail(), ss.getDualsLeg(), ss.getDualsDelay());
+        while (true) {
+            ArrayList<ArrayList<Path>> newPaths = generatePaths(stabilizer.getTailDuals(),
+                stabilizer.getLegDuals(), stabilizer.getDelayDuals(), pricedTails);
+
+            boolean noColumns = true;
+            boolean improving = false;
+            for (ArrayList<Path> tailPaths : newPaths) {
+                if (tailPaths.isEmpty())
+                    continue;
+
+                noColumns = false;
+                if (!stabilizer.isExact())
+                    tailPaths.removeIf(path -> stabilizer.getReducedCost(path) > -Constants.EPS);
+                if (!tailPaths.isEmpty())
+                    improving = true;
+            }
+
+            if (improving) {
+                stabilizer.recordImprovement();
+                return newPaths;
+            }
+            if (stabilizer.isExact())
+                return newPaths;
+
+            logger.debug("scenario " + scenarioNum + " mispricing with stabilized duals");
+            stabilizer.recordMispricing(noColumns);
+        }
+    }
+
+    /**
+     * Solves the pricing problem of each given tail with the given duals. Tails enumerated in the
+     * column pool have all their paths in the RMP and are not priced.
+     * <p>
+     * If source labels are shared, the labeling is run once for each distinct source port and
+     * paths of all tails starting there are read from it. Otherwise, each tail runs its own
+     * labeling. Both give the same paths.
+     * <p>
+     * Groups of tails priced together are independent, as they only read the duals and the
+     * network. If more than one pricing thread is configured, they are solved on the shared
+     * pricing pool. Paths are stored by tail position, so the result does not depend on the order
+     * in which groups finish (only path indices do).
+     *
+     * @param tailDuals   tailDuals[i] is the dual of the cover constraint of tails[i].
+     * @param legDuals    legDuals[i] is the dual of the cover constraint of legs[i].
+     * @param delayDuals  delayDuals[i] is the dual of the delay link constraint of legs[i].
+     * @param pricedTails pricedTails[i] is true if tails[i] is priced, null to price all tails.
+     * @return list with new paths of tails[i] at position i, empty for tails not priced.
+     * @throws OptException if pricing fails or is interrupted.
+     */
+    private ArrayList<ArrayList<Path>> generatePaths(double[] tailDuals, double[] legDuals,
+                                                     double[] delayDuals, boolean[] pricedTails)
+        throws OptException {
+        ArrayList<Tail> tails = dataRegistry.getTails();
+
+        ArrayList<ArrayList<Integer>> tailGroups = new ArrayList<>();
+        ArrayList<ArrayList<Path>> newPaths = new ArrayList<>(tails.size());
+        LinkedHashMap<Integer, ArrayList<Integer>> tailsBySource = new LinkedHashMap<>();
+        for (int i = 0; i < tails.size(); ++i) {
+            newPaths.add(new ArrayList<>());
+            if (pathCache.isEnumerated(tails.get(i).getId())
+                    || (pricedTails != null && !pricedTails[i]))
                 continue;
 
-            double[] yValuesForTail = yValues[i];
-            for (int j = 0; j < yValuesForTail.length; ++j) {
-                if (yValuesForTail[j] >= Constants.EPS) {
-                    selectedPaths.add(generatedPaths.get(j));
-                    break;
-                }
+            if (Parameters.isShareSourceLabels())
+                tailsBySource.computeIfAbsent(tails.get(i).getSourcePort(),
+                    k -> new ArrayList<>()).add(i);
+            else
+                tailGroups.add(new ArrayList<>(Collections.singletonList(i)));
+        }
+        tailGroups.addAll(tailsBySource.values());
+
+        if (Parameters.getNumThreadsForPricing() <= 1 || tailGroups.size() <= 1) {
+            for (ArrayList<Integer> tailGroup : tailGroups)
+                priceTails(tailGroup, tailDuals, legDuals, delayDuals, newPaths);
+            return newPaths;
+        }
+
+        ArrayList<Callable<Void>> tasks = new ArrayList<>();
+        for (ArrayList<Integer> tailGroup : tailGroups) {
+            tasks.add(() -> {
+                priceTails(tailGroup, tailDuals, legDuals, delayDuals, newPaths);
+                return null;
+            });
+        }
+
+        try {
+            for (Future<Void> future : getPricingPool().invokeAll(tasks))
+                future.get();
+        } catch (InterruptedException | ExecutionException ex) {
+            logger.error(ex);
+            throw new OptException("parallel pricing failed for scenario " + scenarioNum);
+        }
+        return newPaths;
+    }
+
+    /**
+     * Solves the pricing problems of the given tails and stores their paths in newPaths. If
+     * source labels are shared, all given tails must have the same source port.
+     */
+    private void priceTails(ArrayList<Integer> tailIndices, double[] tailDuals, double[] legDuals,
+                            double[] delayDuals, ArrayList<ArrayList<Path>> newPaths) {
+        ArrayList<Tail> tails = dataRegistry.getTails();
+        ArrayList<Leg> legs = dataRegistry.getLegs();
+        LabelArena labelArena = labelArenas.get();
+
+        if (Parameters.isShareSourceLabels()) {
+            ArrayList<Tail> sourceTails = new ArrayList<>();
+            for (int i : tailIndices)
+                sourceTails.add(tails.get(i));
+
+            PricingProblemSolver pps = new PricingProblemSolver(
+                sourceTails.get(0).getSourcePort(), legs, network, randomDelays, legDuals,
+                delayDuals, labelArena);
+            if (columnGenController != null)
+                pps.setColumnGenStrategy(columnGenController.getStrategy(),
+                    columnGenController.getNumReducedCostPaths());
+            pps.labelFromSource(sourceTails, tailDuals);
+            for (int i : tailIndices)
+                newPaths.set(i, pps.generatePathsForTail(tails.get(i), tailDuals[i]));
+        } else {
+            for (int i : tailIndices) {
+                PricingProblemSolver pps = new PricingProblemSolver(tails.get(i), legs, network,
+                    randomDelays, tailDuals[i], legDuals, delayDuals, labelArena);
+                if (columnGenController != null)
+                    pps.setColumnGenStrategy(columnGenController.getStrategy(),
+                        columnGenController.getNumReducedCostPaths());
+                newPaths.set(i, pps.generatePathsForTail());
             }
         }
+    }
+
+    /**
+     * @return pool for pricing, re-created if the number of pricing threads has changed.
+     */
+    private static synchronized ForkJoinPool getPricingPool() {
+        final int numThreads = Parameters.getNumThreadsForPricing();
+        if (pricingPool == null || pricingPool.getParallelism() != numThreads) {
+            if (pricingPool != null)
+                pricingPool.shutdown();
+            pricingPool = new ForkJoinPool(numThreads);
+        }
+        return pricingPool;
+    }
+
+    private ArrayList<Path> getSelectedPaths(double[][] yValues,
+                                             HashMap<Integer, ArrayList<Path>> tailPaths) {
+        ArrayList<Tail> tails = dataRegistry.getTails();
+        ArrayList<Path> selectedPaths = new ArrayList<>();
+        for (int i = 0; i < tails.size(); ++i) {
+            ArrayList<Path> generatedPaths = tailPaths.getOrDefault(tails.get(i).getId(), null);
+            if (generatedPaths == null)
+                continue;
+
+            final int selected = getSelectedPathIndex(yValues[i]);
+            if (selected >= 0)
+                selectedPaths.add(generatedPaths.get(selected));
+        }
+        return selectedPaths;
+    }
+
+    /**
+     * Rebuilds the selected path of each tail from the store its columns were read from.
+     */
+    private ArrayList<Path> getSelectedPaths(double[][] yValues, PathStore pathStore,
+                                             int[] primaryDelays) throws OptException {
+        ArrayList<Path> selectedPaths = new ArrayList<>();
+        for (int i = 0; i < yValues.length; ++i) {
+            final int selected = getSelectedPathIndex(yValues[i]);
+            if (selected < 0)
+                continue;
 
+            int[] pathIndex = {0};
+            pathStore.forEachPath(i, primaryDelays, (tail, legIndices, delays, numLegs) -> {
+                if (pathIndex[0]++ == selected)
+                    selectedPaths.add(new Path(tail, dataRegistry.getLegs(),
+                        Arrays.copyOf(legIndices, numLegs), Arrays.copyOf(delays, numLegs)));
+            });
+        }
+        return selectedPaths;
+    }
+
+    /**
+     * @return position of the first path with a non-zero value, -1 if there is none.
+     */
+    private static int getSelectedPathIndex(double[] yValuesForTail) {
+        for (int j = 0; j < yValuesForTail.length; ++j)
+            if (yValuesForTail[j] >= Constants.EPS)
+                return j;
+        return -1;
+    }
+
+    private void buildDelaySolution(SubSolver ss, int[] primaryDelays,
+                                    ArrayList<Path> selectedPaths) throws OptException {
         // collect total second-stage delay for each tail
         int[] totalDelays = new int[dataRegistry.getLegs().size()];
         int[] propagatedDelays = new int[dataRegistry.getLegs().size()];
@@ -317,15 +692,10 @@ public class SubSolverRunnable implements Runnable {
         Arrays.fill(propagatedDelays, 0);
 
         for (Path path : selectedPaths) {
-            ArrayList<Leg> pathLegs = path.getLegs();
-            if (pathLegs.isEmpty())
-                continue;
+            for (int i = 0; i < path.getNumLegs(); ++i) {
+                final int index = path.getLegIndex(i);
 
-            ArrayList<Integer> propagatedDelaysOnPath = path.getPropagatedDelays();
-            for (int i = 0; i < pathLegs.size(); ++i) {
-                final int index = pathLegs.get(i).getIndex();
-
-                propagatedDelays[index] = propagatedDelaysOnPath.get(i);
+                propagatedDelays[index] = path.getPropagatedDelay(i);
                 totalDelays[index] = propagatedDelays[index] + primaryDelays[index];
             }
         }
@@ -361,7 +731,23 @@ public class SubSolverRunnable implements Runnable {
         return bestPaths;
     }
 
-    private double calculateAlpha(double[] dualsLegs, double[] dualsTail, double[][] dualsBnd,
+    /**
+     * @return paths with a non-zero value in the given solution.
+     */
+    private ArrayList<Path> getUsedPaths(double[][] yValues,
+                                         HashMap<Integer, ArrayList<Path>> allPaths) {
+        ArrayList<Path> usedPaths = new ArrayList<>();
+        for (Tail tail : dataRegistry.getTails()) {
+            ArrayList<Path> pathsForTail = allPaths.get(tail.getId());
+            double[] yValuesForTail = yValues[tail.getIndex()];
+            for (int i = 0; i < yValuesForTail.length; ++i)
+                if (yValuesForTail[i] >= Constants.EPS)
+                    usedPaths.add(pathsForTail.get(i));
+        }
+        return usedPaths;
+    }
+
+    private double calculateAlpha(double[] dualsLegs, double[] dualsTail, double dualsBoundSum,
                                   double dualRisk) {
         ArrayList<Leg> legs = dataRegistry.getLegs();
 
@@ -375,11 +761,7 @@ public class SubSolverRunnable implements Runnable {
             if (Math.abs(dualsTail[j]) >= Constants.EPS)
                 scenAlpha += dualsTail[j];
 
-        for (double[] dualBnd : dualsBnd)
-            if (dualBnd != null)
-                for (double j : dualBnd)
-                    if (Math.abs(j) >= Constants.EPS)
-                        scenAlpha += j;
+        scenAlpha += dualsBoundSum;
 
         if (Parameters.isExpectedExcess())
             if (Math.abs(dualRisk) >= Constants.EPS)
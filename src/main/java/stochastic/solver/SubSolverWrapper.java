@@ -1,7 +1,7 @@
 package stochastic.solver;
 
-import ilog.cplex.IloCplex;
 import stochastic.actor.ActorManager;
+import stochastic.lp.LPSolver;
 import stochastic.delay.Scenario;
 import stochastic.registry.DataRegistry;
 import stochastic.registry.Parameters;
@@ -17,17 +17,25 @@ class SubSolverWrapper {
     private int iter;
     private double uBound;
     private PathCache[] pathCaches;
+    private SubModelCache subModelCache; // null if models are rebuilt in every iteration.
+    private SharedPathPool sharedPathPool; // null if scenarios do not share paths.
+    private ColumnGenController[] columnGenControllers; // null unless column gen is adaptive.
 
     SubSolverWrapper(DataRegistry dataRegistry, int[] reschedules, int iter, double uBound,
-                     PathCache[] pathCaches) {
+                     PathCache[] pathCaches, SubModelCache subModelCache,
+                     SharedPathPool sharedPathPool,
+                     ColumnGenController[] columnGenControllers) {
         this.dataRegistry = dataRegistry;
         this.reschedules = reschedules;
         this.iter = iter;
         this.uBound = uBound;
         this.pathCaches = pathCaches;
+        this.subModelCache = subModelCache;
+        this.sharedPathPool = sharedPathPool;
+        this.columnGenControllers = columnGenControllers;
     }
 
-    BendersData solveSequential(IloCplex cplex) {
+    BendersData solveSequential(LPSolver lpSolver) {
         BendersData bendersData = buildBendersData();
         Scenario[] scenarios = dataRegistry.getDelayScenarios();
         for (int i = 0; i < scenarios.length; i++) {
@@ -36,7 +44,11 @@ class SubSolverWrapper {
             SubSolverRunnable ssr = new SubSolverRunnable(dataRegistry, iter, i,
                 probability, reschedules, scenario.getPrimaryDelays(),
                 pathCaches[i]);
-            ssr.setCplex(cplex);
+            ssr.setLPSolver(lpSolver);
+            ssr.setSubModelCache(subModelCache);
+            ssr.setSharedPathPool(sharedPathPool);
+            if (columnGenControllers != null)
+                ssr.setColumnGenController(columnGenControllers[i]);
             ssr.run();
 
             bendersData.updateAlpha(ssr.getCutNum(), ssr.getAlpha(), probability);
@@ -58,6 +70,10 @@ class SubSolverWrapper {
             models[i] = new SubSolverRunnable(dataRegistry, iter, i,
                 scenario.getProbability(), reschedules, scenario.getPrimaryDelays(),
                 pathCaches[i]);
+            models[i].setSubModelCache(subModelCache);
+            models[i].setSharedPathPool(sharedPathPool);
+            if (columnGenControllers != null)
+                models[i].setColumnGenController(columnGenControllers[i]);
         }
 
         return actorManager.solveModels(models);
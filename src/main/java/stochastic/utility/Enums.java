@@ -36,11 +36,37 @@ public class Enums {
      * reduced cost paths.
      * FIRST_PATHS: exit the labeling procedure as soon as a specific number of paths have been
      * found.
+     * HYBRID: enumerate all paths of tails with few paths once and keep them in the model, price
+     * the other tails like ALL_PATHS.
+     * ADAPTIVE: start with FIRST_PATHS and move to more paths, BEST_PATHS and ALL_PATHS when
+     * column generation stalls, separately for each scenario (see ColumnGenController).
      * <p>
      * The number of paths for the BEST_PATHS and FIRST_PATHS strategy is specified using
-     * "numReducedCostPaths."
+     * "numReducedCostPaths." The maximum number of paths of tails enumerated by HYBRID is
+     * specified using "hybridEnumerationLimit."
      */
-    public enum ColumnGenStrategy {FULL_ENUMERATION, ALL_PATHS, BEST_PATHS, FIRST_PATHS}
+    public enum ColumnGenStrategy {FULL_ENUMERATION, ALL_PATHS, BEST_PATHS, FIRST_PATHS, HYBRID,
+        ADAPTIVE}
+
+    /**
+     * LPSolverType specifies the solver used for second-stage problems.
+     * <p>
+     * CPLEX: use CPLEX.
+     * DUAL_SIMPLEX: use the pure Java dual simplex solver, which needs no native libraries. It
+     * only solves LPs, so solution quality checks (which solve second-stage MIPs) still use CPLEX.
+     */
+    public enum LPSolverType {CPLEX, DUAL_SIMPLEX}
+
+    /**
+     * ColumnSharingPolicy specifies the paths that second-stage problems share with other
+     * scenarios, which import them with their own propagated delays. Paths are shared from the
+     * next Benders iteration on.
+     * <p>
+     * NONE: do not share paths.
+     * USED_PATHS: share paths used in the final solution of the second-stage problem.
+     * ALL_PATHS: share all paths generated by pricing.
+     */
+    public enum ColumnSharingPolicy {NONE, USED_PATHS, ALL_PATHS}
 
     /**
      * Specifies KPIs that can be collected by running second-stage scenarios with an adjusted
@@ -0,0 +1,280 @@
+package stochastic.lp;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import stochastic.utility.OptException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DualSimplexSolverTests {
+    private static final double TOL = 1e-6;
+
+    /**
+     * Builds min x1 + 2 x2 s.t. x1 + x2 >= 2, x1 - x2 <= 1, x >= 0.
+     */
+    private static DualSimplexSolver buildSmallModel() {
+        DualSimplexSolver solver = new DualSimplexSolver();
+        solver.addColumns(2, 0, Double.MAX_VALUE, new double[]{1, 2});
+        solver.addRows(new double[]{2, -Double.MAX_VALUE}, new double[]{Double.MAX_VALUE, 1},
+            new int[][]{{0, 1}, {0, 1}}, new double[][]{{1, 1}, {1, -1}});
+        return solver;
+    }
+
+    @Test
+    @DisplayName("Small LP is solved with CPLEX sign conventions for duals")
+    void testSmallModel() throws OptException {
+        DualSimplexSolver solver = buildSmallModel();
+        assertEquals(LPSolver.Status.OPTIMAL, solver.solve(LPSolver.Algorithm.DUAL));
+        assertEquals(2.5, solver.getObjValue(), TOL);
+        assertArrayEquals(new double[]{1.5, 0.5}, solver.getValues(0, 2), TOL);
+        assertArrayEquals(new double[]{1.5, -0.5}, solver.getDuals(0, 2), TOL);
+    }
+
+    @Test
+    @DisplayName("Model is re-solved after changing a row bound and adding a column")
+    void testWarmStart() throws OptException {
+        DualSimplexSolver solver = buildSmallModel();
+        solver.solve(LPSolver.Algorithm.DUAL);
+
+        solver.setRowUB(1, 3);
+        assertEquals(LPSolver.Status.OPTIMAL, solver.solve(LPSolver.Algorithm.DUAL));
+        assertEquals(2.0, solver.getObjValue(), TOL);
+
+        // a bounded column with a negative reduced cost is moved to its upper bound.
+        assertEquals(2, solver.addColumn(0, 1, 0.5, new int[]{0}, new double[]{1}));
+        assertEquals(LPSolver.Status.OPTIMAL, solver.solve(LPSolver.Algorithm.PRIMAL));
+        assertEquals(1.5, solver.getObjValue(), TOL);
+        assertArrayEquals(new double[]{1, 0, 1}, solver.getValues(0, 3), TOL);
+    }
+
+    @Test
+    @DisplayName("Model is re-solved after removing nonbasic and basic columns")
+    void testRemoveColumns() throws OptException {
+        DualSimplexSolver solver = buildSmallModel();
+        solver.addColumn(0, Double.MAX_VALUE, 3, new int[]{0}, new double[]{1});
+        solver.addColumn(0, Double.MAX_VALUE, 4, new int[]{0, 1}, new double[]{1, 1});
+        assertEquals(LPSolver.Status.OPTIMAL, solver.solve(LPSolver.Algorithm.DUAL));
+        assertEquals(2.5, solver.getObjValue(), TOL);
+
+        solver.removeColumns(new int[]{2});
+        assertEquals(3, solver.getNumColumns());
+        assertEquals(LPSolver.Status.OPTIMAL, solver.solve(LPSolver.Algorithm.DUAL));
+        assertEquals(2.5, solver.getObjValue(), TOL);
+
+        // without x1, min 2 x2 + 4 x4 s.t. x2 + x4 >= 2, -x2 + x4 <= 1.
+        solver.removeColumns(new int[]{0});
+        assertEquals(LPSolver.Status.OPTIMAL, solver.solve(LPSolver.Algorithm.DUAL));
+        assertEquals(4.0, solver.getObjValue(), TOL);
+        assertArrayEquals(new double[]{2, 0}, solver.getValues(0, 2), TOL);
+    }
+
+    @Test
+    @DisplayName("Infeasible LP is detected")
+    void testInfeasible() {
+        DualSimplexSolver solver = new DualSimplexSolver();
+        solver.addColumns(2, 0, 0.4, new double[]{1, 1});
+        solver.addRows(new double[]{1}, new double[]{1}, new int[][]{{0, 1}},
+            new double[][]{{1, 1}});
+        assertEquals(LPSolver.Status.INFEASIBLE, solver.solve(LPSolver.Algorithm.DUAL));
+    }
+
+    @Test
+    @DisplayName("Integer columns are rejected")
+    void testInteger() {
+        DualSimplexSolver solver = new DualSimplexSolver();
+        solver.addColumns(1, 0, 1, null);
+        assertThrows(OptException.class, () -> solver.setInteger(new int[]{0}));
+    }
+
+    @Test
+    @DisplayName("Solutions of random cover models satisfy the optimality conditions")
+    void testRandomCoverModels() throws OptException {
+        Random random = new Random(42);
+        for (int instance = 0; instance < 20; ++instance)
+            checkRandomCoverModel(random, 4 + random.nextInt(10), 4 + random.nextInt(10), 10);
+    }
+
+    @Test
+    @DisplayName("Solutions stay optimal for the original costs across reinversions")
+    void testLargeRandomCoverModels() throws OptException {
+        // solves take enough pivots for periodic reinversions, after which costs may be shifted.
+        Random random = new Random(7);
+        for (int instance = 0; instance < 3; ++instance)
+            checkRandomCoverModel(random, 60 + random.nextInt(20), 60 + random.nextInt(20), 150);
+    }
+
+    /**
+     * Solves a random model like second-stage models: equality cover rows with expensive slack
+     * columns and delay rows with delay columns, re-solved after adding path columns in rounds.
+     */
+    private static void checkRandomCoverModel(Random random, int numCoverRows, int numDelayRows,
+                                              int numColumnsPerRound) throws OptException {
+        MirroredModel model = new MirroredModel();
+
+        final int firstSlack = model.columns.size();
+        for (int i = 0; i < numCoverRows; ++i)
+            model.addColumn(0, 1, 1000, new int[]{i}, new double[]{1});
+        final int firstDelay = model.columns.size();
+        for (int i = 0; i < numDelayRows; ++i)
+            model.addColumn(0, Double.MAX_VALUE, 1 + random.nextInt(10),
+                new int[]{numCoverRows + i}, new double[]{-1});
+
+        // rows are added after their columns, so columns above are empty in the solver.
+        model.solver.addColumns(numCoverRows, 0, 1, filled(numCoverRows, 1000));
+        double[] delayCosts = new double[numDelayRows];
+        for (int i = 0; i < numDelayRows; ++i)
+            delayCosts[i] = model.columns.get(firstDelay + i).cost;
+        model.solver.addColumns(numDelayRows, 0, Double.MAX_VALUE, delayCosts);
+
+        final int numRows = numCoverRows + numDelayRows;
+        int[][] ind = new int[numRows][];
+        double[][] val = new double[numRows][];
+        for (int i = 0; i < numCoverRows; ++i) {
+            ind[i] = new int[]{firstSlack + i};
+            val[i] = new double[]{1};
+            model.rowLbs.add(1.0);
+            model.rowUbs.add(1.0);
+        }
+        for (int i = 0; i < numDelayRows; ++i) {
+            ind[numCoverRows + i] = new int[]{firstDelay + i};
+            val[numCoverRows + i] = new double[]{-1};
+            model.rowLbs.add(-Double.MAX_VALUE);
+            model.rowUbs.add((double) random.nextInt(5));
+        }
+        model.solver.addRows(toArray(model.rowLbs), toArray(model.rowUbs), ind, val);
+
+        for (int round = 0; round < 5; ++round) {
+            for (int k = 0; k < numColumnsPerRound; ++k) {
+                int[] rows = new int[4];
+                double[] values = new double[4];
+                rows[0] = random.nextInt(numCoverRows / 2);
+                rows[1] = numCoverRows / 2 + random.nextInt(numCoverRows - numCoverRows / 2);
+                rows[2] = numCoverRows + random.nextInt(numDelayRows / 2);
+                rows[3] = numCoverRows + numDelayRows / 2
+                    + random.nextInt(numDelayRows - numDelayRows / 2);
+                values[0] = 1;
+                values[1] = 1;
+                values[2] = random.nextInt(20);
+                values[3] = random.nextInt(20);
+                model.addColumn(0, 1, 0, rows, values);
+                model.solver.addColumn(0, 1, 0, rows, values);
+            }
+
+            if (round % 2 == 1) {
+                final int row = numCoverRows + random.nextInt(numDelayRows);
+                final double ub = random.nextInt(10);
+                model.rowUbs.set(row, ub);
+                model.solver.setRowUB(row, ub);
+            }
+
+            assertEquals(LPSolver.Status.OPTIMAL, model.solver.solve(LPSolver.Algorithm.DUAL));
+            model.checkOptimality();
+        }
+    }
+
+    private static double[] filled(int num, double value) {
+        double[] values = new double[num];
+        Arrays.fill(values, value);
+        return values;
+    }
+
+    private static double[] toArray(ArrayList<Double> values) {
+        return values.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    /**
+     * Keeps a copy of the model given to the solver to check its solutions.
+     */
+    private static class MirroredModel {
+        private static class Column {
+            double lb;
+            double ub;
+            double cost;
+            int[] rows;
+            double[] values;
+        }
+
+        final DualSimplexSolver solver = new DualSimplexSolver();
+        final ArrayList<Column> columns = new ArrayList<>();
+        final ArrayList<Double> rowLbs = new ArrayList<>();
+        final ArrayList<Double> rowUbs = new ArrayList<>();
+
+        void addColumn(double lb, double ub, double cost, int[] rows, double[] values) {
+            Column column = new Column();
+            column.lb = lb;
+            column.ub = ub;
+            column.cost = cost;
+            column.rows = rows;
+            column.values = values;
+            columns.add(column);
+        }
+
+        /**
+         * Checks primal feasibility and complementary slackness of values and duals, which
+         * together prove optimality.
+         */
+        void checkOptimality() throws OptException {
+            double[] x = solver.getValues(0, columns.size());
+            double[] pi = solver.getDuals(0, rowLbs.size());
+
+            double objValue = 0;
+            double[] activity = new double[rowLbs.size()];
+            for (int j = 0; j < columns.size(); ++j) {
+                Column column = columns.get(j);
+                assertTrue(x[j] >= column.lb - TOL && x[j] <= column.ub + TOL);
+                objValue += column.cost * x[j];
+
+                double reducedCost = column.cost;
+                for (int k = 0; k < column.rows.length; ++k) {
+                    activity[column.rows[k]] += column.values[k] * x[j];
+                    reducedCost -= pi[column.rows[k]] * column.values[k];
+                }
+                if (reducedCost > TOL)
+                    assertEquals(column.lb, x[j], TOL);
+                if (reducedCost < -TOL)
+                    assertEquals(column.ub, x[j], TOL);
+            }
+            assertEquals(objValue, solver.getObjValue(), TOL);
+
+            for (int i = 0; i < rowLbs.size(); ++i) {
+                assertTrue(activity[i] >= rowLbs.get(i) - TOL);
+                assertTrue(activity[i] <= rowUbs.get(i) + TOL);
+                if (pi[i] > TOL)
+                    assertEquals(rowLbs.get(i), activity[i], TOL);
+                if (pi[i] < -TOL)
+                    assertEquals(rowUbs.get(i), activity[i], TOL);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Duals are optimal for the original costs after removing the perturbation")
+    void testNearlyTiedCosts() throws OptException {
+        // min sum_j c_j x_j s.t. sum_j x_j >= 1, x >= 0 with unbounded columns whose costs differ
+        // by less than the cost perturbation.
+        final int numColumns = 10;
+        double[] costs = new double[numColumns];
+        int[] columns = new int[numColumns];
+        double[] values = new double[numColumns];
+        for (int j = 0; j < numColumns; ++j) {
+            costs[j] = 1 - 2e-6 * j;
+            columns[j] = j;
+            values[j] = 1.0;
+        }
+
+        DualSimplexSolver solver = new DualSimplexSolver();
+        solver.addColumns(numColumns, 0, Double.MAX_VALUE, costs);
+        solver.addRows(new double[]{1}, new double[]{Double.MAX_VALUE},
+            new int[][]{columns}, new double[][]{values});
+        assertEquals(LPSolver.Status.OPTIMAL, solver.solve(LPSolver.Algorithm.DUAL));
+        assertEquals(costs[numColumns - 1], solver.getObjValue(), 1e-9);
+        assertEquals(costs[numColumns - 1], solver.getDuals(0, 1)[0], 1e-9);
+    }
+}
@@ -0,0 +1,76 @@
+package stochastic.network;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import stochastic.domain.Leg;
+import stochastic.solver.SolverUtility;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ConnectionGraphTests {
+    private final ArrayList<Leg> legs;
+
+    ConnectionGraphTests() {
+        legs = new ArrayList<>();
+        Random random = new Random(0);
+        for (int i = 0; i < 200; ++i) {
+            final int depPort = 100 + random.nextInt(4);
+            final int arrPort = 100 + random.nextInt(4);
+            final long depTime = 25000000 + 5 * random.nextInt(200);
+            final long arrTime = depTime + 30 + random.nextInt(120);
+            Leg leg = new Leg(i, i, depPort, arrPort, 30 + random.nextInt(3) * 15, 0, depTime,
+                arrTime);
+            leg.setIndex(i);
+            legs.add(leg);
+        }
+    }
+
+    @Test
+    @DisplayName("Connection graph should match pairwise connection checks")
+    void testGraphMatchesPairwiseConnections() {
+        ConnectionGraph graph = new ConnectionGraphBuilder(legs).build();
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        int[] slacks = graph.getSlacks();
+        for (int i = 0; i < legs.size(); ++i) {
+            int e = offsets[i];
+            for (int j = 0; j < legs.size(); ++j) {
+                if (i == j || !legs.get(i).canConnectTo(legs.get(j)))
+                    continue;
+
+                assertEquals(j, targets[e]);
+                assertEquals(SolverUtility.getSlackInMin(legs.get(i), legs.get(j)), slacks[e]);
+                ++e;
+            }
+            assertEquals(offsets[i + 1], e);
+        }
+    }
+
+    @Test
+    @DisplayName("Rescheduled network should match network built with rescheduled times")
+    void testRescheduledGraphMatchesRebuild() {
+        Network network = new Network(legs);
+
+        Random random = new Random(1);
+        int[] reschedules = new int[legs.size()];
+        for (int i = 0; i < reschedules.length; ++i)
+            reschedules[i] = random.nextInt(3) == 0 ? random.nextInt(31) : 0;
+
+        ConnectionGraph rescheduledGraph =
+            network.getRescheduledNetwork(reschedules).getConnectionGraph();
+
+        for (Leg leg : legs)
+            leg.reschedule(reschedules[leg.getIndex()]);
+        ConnectionGraph rebuiltGraph = new ConnectionGraphBuilder(legs).build();
+        for (Leg leg : legs)
+            leg.revertReschedule();
+
+        assertArrayEquals(rebuiltGraph.getOffsets(), rescheduledGraph.getOffsets());
+        assertArrayEquals(rebuiltGraph.getTargets(), rescheduledGraph.getTargets());
+        assertArrayEquals(rebuiltGraph.getSlacks(), rescheduledGraph.getSlacks());
+    }
+}
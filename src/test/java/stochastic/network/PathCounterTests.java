@@ -0,0 +1,45 @@
+package stochastic.network;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import stochastic.domain.Leg;
+import stochastic.domain.Tail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class PathCounterTests {
+    /**
+     * Builds numLayers layers of two legs from port l to port l + 1, where each leg connects to
+     * both legs of the next layer, so there are 2^numLayers paths from port 0 to the last port.
+     */
+    private static ArrayList<Leg> buildLayeredLegs(int numLayers) {
+        ArrayList<Leg> legs = new ArrayList<>();
+        for (int l = 0; l < numLayers; ++l) {
+            for (int k = 0; k < 2; ++k) {
+                Leg leg = new Leg(legs.size(), legs.size(), l, l + 1, 30, k, 100L * l,
+                    100L * l + 30);
+                leg.setIndex(legs.size());
+                legs.add(leg);
+            }
+        }
+        return legs;
+    }
+
+    @Test
+    @DisplayName("Path counts are shared by tails with the same sink and saturate on overflow")
+    void testLayeredNetwork() {
+        ArrayList<Leg> legs = buildLayeredLegs(70);
+        ConnectionGraph graph = new ConnectionGraphBuilder(legs).build();
+
+        // tails from port 0 and port 60 to port 70, and from port 0 to port 10.
+        ArrayList<Tail> tails = new ArrayList<>(Arrays.asList(
+            new Tail(0, new ArrayList<>(Arrays.asList(legs.get(0), legs.get(139)))),
+            new Tail(1, new ArrayList<>(Arrays.asList(legs.get(120), legs.get(139)))),
+            new Tail(2, new ArrayList<>(Arrays.asList(legs.get(0), legs.get(19))))));
+        long[] numPaths = new PathCounter(legs, graph).countPathsForTails(tails);
+        assertArrayEquals(new long[]{Long.MAX_VALUE, 1024, 1024}, numPaths);
+    }
+}
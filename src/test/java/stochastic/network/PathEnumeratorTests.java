@@ -9,7 +9,6 @@ import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -30,6 +29,16 @@ class PathEnumeratorTests {
         prevLeg.setIndex(0);
     }
 
+    /**
+     * Enumerates paths of a tail through the path topology of the network.
+     */
+    private static ArrayList<Path> enumeratePaths(Network network, Tail tail, int[] primaryDelays) {
+        PathTopology topology = network.getPathTopology(
+            new ArrayList<>(Collections.singletonList(tail)));
+        return topology.buildTailPaths(topology.computePropagatedDelays(primaryDelays))
+            .get(tail.getId());
+    }
+
     @Test
     @DisplayName("Path with 1 flight should have no propagated delay")
     void testOneFlightPath() {
@@ -37,9 +46,9 @@ class PathEnumeratorTests {
         Tail tail = new Tail(0, legs);
         int[] primaryDelays = new int[1];
         primaryDelays[0] = 120;
-        HashMap<Integer, ArrayList<Integer>> adj = new HashMap<>();
-        PathEnumerator pathEnumerator = new PathEnumerator(tail, legs, primaryDelays, adj);
-        ArrayList<Path> paths = pathEnumerator.generatePaths();
+        Network network = new Network(legs);
+        assertEquals(0, network.getNumConnections());
+        ArrayList<Path> paths = enumeratePaths(network, tail, primaryDelays);
 
         assertEquals(1, paths.size());
         ArrayList<Integer> propagatedDelays = paths.get(0).getPropagatedDelays();
@@ -66,10 +75,9 @@ class PathEnumeratorTests {
         int[] primaryDelays = new int[2];
         primaryDelays[0] = 120;
         primaryDelays[1] = 45;
-        HashMap<Integer, ArrayList<Integer>> adj = new HashMap<>();
-        adj.put(prevLeg.getId(), new ArrayList<>(Collections.singletonList(nextLeg.getId())));
-        PathEnumerator pathEnumerator = new PathEnumerator(tail, legs, primaryDelays, adj);
-        ArrayList<Path> paths = pathEnumerator.generatePaths();
+        Network network = new Network(legs);
+        assertEquals(1, network.getNumConnections());
+        ArrayList<Path> paths = enumeratePaths(network, tail, primaryDelays);
 
         assertEquals(1, paths.size());
         ArrayList<Integer> propagatedDelays = paths.get(0).getPropagatedDelays();
@@ -96,10 +104,9 @@ class PathEnumeratorTests {
         int[] primaryDelays = new int[2];
         primaryDelays[0] = 120;
         primaryDelays[1] = 45;
-        HashMap<Integer, ArrayList<Integer>> adj = new HashMap<>();
-        adj.put(prevLeg.getId(), new ArrayList<>(Collections.singletonList(nextLeg.getId())));
-        PathEnumerator pathEnumerator = new PathEnumerator(tail, legs, primaryDelays, adj);
-        ArrayList<Path> paths = pathEnumerator.generatePaths();
+        Network network = new Network(legs);
+        assertEquals(1, network.getNumConnections());
+        ArrayList<Path> paths = enumeratePaths(network, tail, primaryDelays);
         assertEquals(1, paths.size());
 
         ArrayList<Integer> propagatedDelays = paths.get(0).getPropagatedDelays();
@@ -126,14 +133,40 @@ class PathEnumeratorTests {
         int[] primaryDelays = new int[2];
         primaryDelays[0] = 120;
         primaryDelays[1] = 45;
-        HashMap<Integer, ArrayList<Integer>> adj = new HashMap<>();
-        adj.put(prevLeg.getId(), new ArrayList<>(Collections.singletonList(nextLeg.getId())));
-        PathEnumerator pathEnumerator = new PathEnumerator(tail, legs, primaryDelays, adj);
-        ArrayList<Path> paths = pathEnumerator.generatePaths();
+        Network network = new Network(legs);
+        assertEquals(1, network.getNumConnections());
+        ArrayList<Path> paths = enumeratePaths(network, tail, primaryDelays);
 
         assertEquals(1, paths.size());
         ArrayList<Integer> propagatedDelays = paths.get(0).getPropagatedDelays();
         ArrayList<Integer> expectedPropagatedDelays = new ArrayList<>(Arrays.asList(0, 105));
         assertEquals(expectedPropagatedDelays, propagatedDelays);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Consumer receives leg sequences and connection slacks in DFS order")
+    void testPathConsumer() {
+        // legs 0 -> 1 and 0 -> 3 connect port 100 to port 102, both can continue with leg 2.
+        Leg legA = new Leg(1, 1, 101, 102, 30, 0, prevLeg.getArrTime() + 45,
+            prevLeg.getArrTime() + 90);
+        Leg legB = new Leg(2, 2, 102, 102, 30, 0, prevLeg.getArrTime() + 150,
+            prevLeg.getArrTime() + 200);
+        Leg legC = new Leg(3, 3, 101, 102, 30, 1, prevLeg.getArrTime() + 60,
+            prevLeg.getArrTime() + 120);
+        ArrayList<Leg> legs = new ArrayList<>(Arrays.asList(prevLeg, legA, legB, legC));
+        for (int i = 0; i < legs.size(); ++i)
+            legs.get(i).setIndex(i);
+        Tail tail = new Tail(0, new ArrayList<>(Arrays.asList(prevLeg, legA, legB)));
+        ConnectionGraph graph = new ConnectionGraphBuilder(legs).build();
+
+        ArrayList<String> paths = new ArrayList<>();
+        PathEnumerator pathEnumerator = new PathEnumerator(tail, legs, graph);
+        pathEnumerator.enumeratePaths((pathTail, legIndices, slacks, numLegs) -> paths.add(
+            Arrays.toString(Arrays.copyOf(legIndices, numLegs))
+                + Arrays.toString(Arrays.copyOf(slacks, numLegs))));
+
+        assertEquals(Arrays.asList("[0, 1][0, 0]", "[0, 1, 2][0, 0, 30]", "[0, 3][0, 15]",
+            "[0, 3, 2][0, 15, 0]"), paths);
+        assertEquals(paths.size(), new PathCounter(legs, graph).countPathsForTail(tail));
+    }
+}
@@ -0,0 +1,77 @@
+package stochastic.network;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import stochastic.domain.Leg;
+import stochastic.domain.Tail;
+import stochastic.utility.OptException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PathStoreTests {
+    @Test
+    @DisplayName("Paths spilled to a file are read back with delays of a scenario")
+    void testSpilledPaths() throws OptException {
+        ArrayList<Leg> legs = TestNetworks.buildTwoPathLegs();
+        ArrayList<Tail> tails = TestNetworks.buildTwoPathTails(legs);
+
+        // segments of 4 ints, only the first one is kept in memory.
+        ArrayList<String> paths = new ArrayList<>();
+        try (PathStore pathStore = new PathStore(tails, 16, 2)) {
+            new Network(legs).enumeratePaths(tails, pathStore);
+            assertTrue(pathStore.isSpilled());
+            assertEquals(2, pathStore.getNumPaths(0));
+
+            pathStore.forEachPath(0, new int[]{30, 10, 0, 0}, (pathTail, legIndices, delays, n) ->
+                paths.add(Arrays.toString(Arrays.copyOf(legIndices, n))
+                    + Arrays.toString(Arrays.copyOf(delays, n))));
+        }
+        assertEquals(Arrays.asList("[0, 1, 2][0, 15, 10]", "[0, 3][0, 0]"), paths);
+    }
+
+    @Test
+    @DisplayName("Direct segments of all open stores count against the memory budget")
+    void testSharedMemoryBudget() {
+        ArrayList<Leg> legs = TestNetworks.buildTwoPathLegs();
+        ArrayList<Tail> tails = TestNetworks.buildTwoPathTails(legs);
+        Network network = new Network(legs);
+
+        // segments of 4 ints, the budget fits one of them.
+        PathStore first = new PathStore(tails, 16, 2);
+        first.accept(tails.get(0), new int[]{0, 3}, new int[]{0, 45}, 2);
+        assertFalse(first.isSpilled());
+        try (PathStore second = new PathStore(tails, 16, 2)) {
+            network.enumeratePaths(tails, second);
+            assertTrue(second.isSpilled());
+        }
+
+        first.close();
+        try (PathStore third = new PathStore(tails, 16, 2)) {
+            third.accept(tails.get(0), new int[]{0, 3}, new int[]{0, 45}, 2);
+            assertFalse(third.isSpilled());
+        }
+    }
+
+    @Test
+    @DisplayName("The network enumerates paths into a store once per list of tails")
+    void testCachedStore() {
+        ArrayList<Leg> legs = TestNetworks.buildTwoPathLegs();
+        ArrayList<Tail> tails = TestNetworks.buildTwoPathTails(legs);
+        Network network = new Network(legs);
+
+        PathStore pathStore = network.getPathStore(tails, 1024);
+        assertSame(pathStore, network.getPathStore(tails, 1024));
+        assertEquals(2, pathStore.getNumPaths());
+
+        network.closePathStore();
+        assertNotSame(pathStore, network.getPathStore(tails, 1024));
+        network.closePathStore();
+    }
+}
@@ -0,0 +1,45 @@
+package stochastic.network;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import stochastic.domain.Leg;
+import stochastic.domain.Tail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PathTests {
+    @Test
+    @DisplayName("Paths with other delays do not share storage with the original path")
+    void testWithPropagatedDelays() {
+        ArrayList<Leg> legs = new ArrayList<>();
+        for (int i = 0; i < 4; ++i) {
+            Leg leg = new Leg(100 + i, i, i, i + 1, 30, 1, 60L * i, 60L * i + 45);
+            leg.setIndex(i);
+            legs.add(leg);
+        }
+        Tail tail = new Tail(1, new ArrayList<>(legs));
+
+        Path path = new Path(tail);
+        path.addLeg(legs.get(0), 0);
+        path.addLeg(legs.get(1), 0);
+        Path delayedPath = path.withPropagatedDelays(new int[]{0, 20});
+
+        delayedPath.addLeg(legs.get(2), 5);
+        path.addLeg(legs.get(3), 0);
+        assertEquals(Arrays.asList(legs.get(0), legs.get(1), legs.get(3)), path.getLegs());
+        assertEquals(Arrays.asList(0, 0, 0), path.getPropagatedDelays());
+        assertEquals(Arrays.asList(legs.get(0), legs.get(1), legs.get(2)), delayedPath.getLegs());
+        assertEquals(Arrays.asList(0, 20, 5), delayedPath.getPropagatedDelays());
+        assertEquals(2, delayedPath.getLegIndex(2));
+
+        // paths over a pool stay ranges of the network leg list.
+        Path pooledPath = new Path(tail, legs, new int[]{3, 0, 1}, new int[]{0, 0, 0}, 1, 2);
+        Path delayedPooledPath = pooledPath.withPropagatedDelays(new int[]{0, 10});
+        assertEquals(Arrays.asList(legs.get(0), legs.get(1)), delayedPooledPath.getLegs());
+        assertThrows(IllegalStateException.class, () -> delayedPooledPath.addLeg(legs.get(2), 0));
+    }
+}
@@ -0,0 +1,37 @@
+package stochastic.network;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import stochastic.domain.Leg;
+import stochastic.domain.Tail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class PathTopologyTests {
+    @Test
+    @DisplayName("Paths are enumerated once and delays are computed for each scenario")
+    void testPropagatedDelays() {
+        ArrayList<Leg> legs = TestNetworks.buildTwoPathLegs();
+        ArrayList<Tail> tails = TestNetworks.buildTwoPathTails(legs);
+        Tail tail = tails.get(0);
+
+        Network network = new Network(legs);
+        PathTopology topology = network.getPathTopology(tails);
+        assertSame(topology, network.getPathTopology(tails));
+        assertEquals(2, topology.getNumPaths());
+
+        assertArrayEquals(new int[]{0, 15, 10, 0, 0},
+            topology.computePropagatedDelays(new int[]{30, 10, 0, 0}));
+        int[] propagatedDelays = topology.computePropagatedDelays(new int[]{60, 0, 0, 0});
+        assertArrayEquals(new int[]{0, 45, 30, 0, 15}, propagatedDelays);
+
+        ArrayList<Path> paths = topology.buildTailPaths(propagatedDelays).get(tail.getId());
+        assertEquals(Arrays.asList(legs.get(0), legs.get(1), legs.get(2)), paths.get(0).getLegs());
+        assertEquals(Arrays.asList(0, 15), paths.get(1).getPropagatedDelays());
+    }
+}
@@ -0,0 +1,43 @@
+package stochastic.network;
+
+import stochastic.domain.Leg;
+import stochastic.domain.Tail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Small networks shared by tests of the package.
+ */
+final class TestNetworks {
+    private TestNetworks() {
+    }
+
+    /**
+     * Builds legs 0 -> 1 -> 2 and 0 -> 3, which connect port 0 to port 3 with slacks 15, 15 and
+     * 45. A tail flying them has two paths, [0, 1, 2] and [0, 3].
+     *
+     * @return legs with indices set to their positions.
+     */
+    static ArrayList<Leg> buildTwoPathLegs() {
+        ArrayList<Leg> legs = new ArrayList<>(Arrays.asList(
+            new Leg(0, 0, 0, 1, 30, 0, 0, 45),
+            new Leg(1, 1, 1, 2, 30, 0, 90, 135),
+            new Leg(2, 2, 2, 3, 30, 0, 180, 225),
+            new Leg(3, 3, 1, 3, 30, 1, 120, 200)));
+        for (int i = 0; i < legs.size(); ++i)
+            legs.get(i).setIndex(i);
+        return legs;
+    }
+
+    /**
+     * @param legs legs from buildTwoPathLegs().
+     * @return a single tail with index 0 whose original schedule is legs 0, 1 and 2.
+     */
+    static ArrayList<Tail> buildTwoPathTails(ArrayList<Leg> legs) {
+        Tail tail = new Tail(0, new ArrayList<>(legs.subList(0, 3)));
+        tail.setIndex(0);
+        return new ArrayList<>(Collections.singletonList(tail));
+    }
+}
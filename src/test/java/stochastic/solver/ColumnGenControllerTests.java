@@ -0,0 +1,61 @@
+package stochastic.solver;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import stochastic.utility.Enums;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ColumnGenControllerTests {
+    @Test
+    @DisplayName("tailing off should move to more thorough pricing if the LP dominates")
+    void testMoveUp() {
+        ColumnGenController controller = new ColumnGenController(5);
+        assertEquals(Enums.ColumnGenStrategy.FIRST_PATHS, controller.getStrategy());
+        assertEquals(5, controller.getNumReducedCostPaths());
+
+        // iterations before the first decrease are not stalls.
+        for (int i = 0; i < 5; ++i)
+            controller.update(1000.0, 2, 1);
+        controller.update(900.0, 2, 1);
+        controller.update(899.9, 2, 1);
+        controller.update(899.8, 2, 1);
+        assertEquals(0, controller.getLevel());
+        controller.update(899.7, 2, 1);
+        assertEquals(Enums.ColumnGenStrategy.FIRST_PATHS, controller.getStrategy());
+        assertEquals(20, controller.getNumReducedCostPaths());
+
+        for (int i = 0; i < 10; ++i)
+            controller.update(899.7, 2, 1);
+        assertEquals(Enums.ColumnGenStrategy.ALL_PATHS, controller.getStrategy());
+    }
+
+    @Test
+    @DisplayName("tailing off should keep the level if pricing dominates")
+    void testPricingDominates() {
+        ColumnGenController controller = new ColumnGenController(5);
+        controller.update(200.0, 1, 2);
+        for (int i = 0; i < 10; ++i)
+            controller.update(100.0, 1, 2);
+        assertEquals(0, controller.getLevel());
+    }
+
+    @Test
+    @DisplayName("next solve should start where the last one ended, or lower if it never moved up")
+    void testStartLevel() {
+        ColumnGenController controller = new ColumnGenController(5);
+        controller.update(200.0, 2, 1);
+        for (int i = 0; i < 4; ++i)
+            controller.update(100.0, 2, 1);
+        controller.finish();
+
+        controller.start();
+        assertEquals(1, controller.getLevel());
+        controller.update(100.0, 2, 1);
+        controller.update(50.0, 2, 1);
+        controller.finish();
+
+        controller.start();
+        assertEquals(0, controller.getLevel());
+    }
+}
@@ -0,0 +1,42 @@
+package stochastic.solver;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DualStabilizerTests {
+    @Test
+    @DisplayName("separation point should smooth towards the center and stay in the box")
+    void testSeparationPoint() {
+        DualStabilizer stabilizer = new DualStabilizer(0.5, 3.0);
+        stabilizer.update(new double[]{10.0}, new double[]{0.0, 4.0}, new double[]{-2.0, 0.0});
+        assertTrue(stabilizer.isExact()); // center is the first RMP solution.
+
+        stabilizer.update(new double[]{20.0}, new double[]{2.0, -4.0}, new double[]{-4.0, -1.0});
+        assertFalse(stabilizer.isExact());
+        assertArrayEquals(new double[]{13.0}, stabilizer.getTailDuals(), 1e-9);
+        assertArrayEquals(new double[]{1.0, 1.0}, stabilizer.getLegDuals(), 1e-9);
+        assertArrayEquals(new double[]{-3.0, -0.5}, stabilizer.getDelayDuals(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("repeated mispricings should fall back to exact pricing")
+    void testMispricingFallback() {
+        DualStabilizer stabilizer = new DualStabilizer(0.9, 0.0);
+        stabilizer.update(new double[]{0.0}, new double[]{0.0}, new double[]{0.0});
+
+        double[] tailDuals = new double[]{10.0};
+        stabilizer.update(tailDuals, new double[]{1.0}, new double[]{-1.0});
+        int numMispricings = 0;
+        while (!stabilizer.isExact()) {
+            stabilizer.recordMispricing(false);
+            ++numMispricings;
+            assertTrue(numMispricings <= 10);
+        }
+        assertSame(tailDuals, stabilizer.getTailDuals());
+    }
+}
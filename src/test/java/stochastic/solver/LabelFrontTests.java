@@ -0,0 +1,79 @@
+package stochastic.solver;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LabelFrontTests {
+    @Test
+    @DisplayName("front should keep exactly the non-dominated labels")
+    void testFrontMatchesPairwiseDominance() {
+        LabelArena arena = new LabelArena();
+        Random random = new Random(0);
+        for (int round = 0; round < 50; ++round) {
+            arena.reset(1);
+            LabelFront front = arena.getFront(0);
+            for (int i = 0; i < 40; ++i) {
+                final int label = arena.add(0, LabelArena.NO_PREDECESSOR, random.nextInt(20),
+                    random.nextInt(30) - 15.0);
+                front.add(label);
+            }
+
+            // a label must be kept iff no label added before it has at most its delay and reduced
+            // cost, and no label added after it is strictly better in one of them.
+            ArrayList<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < arena.size(); ++i) {
+                boolean kept = true;
+                for (int j = 0; j < arena.size() && kept; ++j) {
+                    if (j == i || !dominates(arena, j, i))
+                        continue;
+                    if (j < i || !dominates(arena, i, j))
+                        kept = false;
+                }
+                if (kept)
+                    expected.add(i);
+            }
+
+            assertEquals(expected.size(), front.size());
+            for (int k = 0; k < front.size(); ++k) {
+                assertTrue(expected.contains(front.get(k)));
+                if (k > 0) {
+                    assertTrue(arena.getPropagatedDelay(front.get(k - 1))
+                        < arena.getPropagatedDelay(front.get(k)));
+                    assertTrue(arena.getReducedCost(front.get(k - 1))
+                        > arena.getReducedCost(front.get(k)));
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("dominated candidates should be detected before insertion")
+    void testIsDominated() {
+        LabelArena arena = new LabelArena();
+        arena.reset(1);
+        LabelFront front = arena.getFront(0);
+        assertTrue(front.add(arena.add(0, LabelArena.NO_PREDECESSOR, 5, -1.0)));
+        assertTrue(front.add(arena.add(0, LabelArena.NO_PREDECESSOR, 10, -3.0)));
+
+        assertTrue(front.isDominated(5, -1.0));
+        assertTrue(front.isDominated(12, -2.0));
+        assertFalse(front.isDominated(4, 0.0));
+        assertFalse(front.isDominated(7, -2.0));
+        assertFalse(front.add(arena.add(0, LabelArena.NO_PREDECESSOR, 10, -3.0)));
+
+        assertTrue(front.add(arena.add(0, LabelArena.NO_PREDECESSOR, 3, -4.0)));
+        assertEquals(1, front.size());
+    }
+
+    private static boolean dominates(LabelArena arena, int label, int other) {
+        return arena.getPropagatedDelay(label) <= arena.getPropagatedDelay(other)
+            && arena.getReducedCost(label) <= arena.getReducedCost(other);
+    }
+}
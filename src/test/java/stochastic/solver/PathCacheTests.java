@@ -0,0 +1,128 @@
+package stochastic.solver;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import stochastic.domain.Leg;
+import stochastic.domain.Tail;
+import stochastic.network.Path;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PathCacheTests {
+    private ArrayList<Leg> legs;
+    private Tail tail;
+    private PathCache pathCache;
+
+    @BeforeEach
+    void setUp() {
+        legs = new ArrayList<>();
+        for (int i = 0; i < 4; ++i) {
+            Leg leg = new Leg(100 + i, i, i, i + 1, 30, 1, 60L * i, 60L * i + 45);
+            leg.setIndex(i);
+            legs.add(leg);
+        }
+        tail = new Tail(1, new ArrayList<>(legs));
+        tail.setIndex(0);
+
+        HashMap<Integer, ArrayList<Path>> initialPaths = new HashMap<>();
+        initialPaths.put(tail.getId(), new ArrayList<>(Collections.singletonList(buildPath(0, 1))));
+        pathCache = new PathCache();
+        pathCache.setCachedPaths(initialPaths);
+    }
+
+    private Path buildPath(int... legIndices) {
+        Path path = new Path(tail);
+        for (int i : legIndices)
+            path.addLeg(legs.get(i), 0);
+        return path;
+    }
+
+    @Test
+    @DisplayName("Paths with a leg sequence already in the cache are not added")
+    void testDeduplication() {
+        ArrayList<Path> paths = new ArrayList<>(Arrays.asList(buildPath(0, 1), buildPath(2),
+            buildPath(2), buildPath(2, 3)));
+        assertEquals(2, pathCache.addPaths(tail.getId(), paths));
+        assertEquals(3, pathCache.getCachedPaths().get(tail.getId()).size());
+    }
+
+    @Test
+    @DisplayName("Oldest unused paths are evicted, initial and used paths are kept")
+    void testEviction() {
+        ArrayList<Tail> tails = new ArrayList<>(Collections.singletonList(tail));
+        Path older = buildPath(2);
+        Path used = buildPath(3);
+        Path newer = buildPath(2, 3);
+        pathCache.addPaths(tail.getId(), new ArrayList<>(Arrays.asList(older, used)));
+        pathCache.updateAges(tails, new double[][]{{0.0, 0.0, 1.0}});
+        pathCache.addPaths(tail.getId(), new ArrayList<>(Collections.singletonList(newer)));
+        pathCache.updateAges(tails, new double[][]{{0.0, 0.0, 1.0, 0.0}});
+
+        // the initial path is unused as well, but never evicted.
+        int[][] evictedPaths = pathCache.evictPaths(tails, 2);
+        assertArrayEquals(new int[]{1, 3}, evictedPaths[0]);
+        ArrayList<Path> cachedPaths = pathCache.getCachedPaths().get(tail.getId());
+        assertEquals(2, cachedPaths.size());
+        assertSame(used, cachedPaths.get(1));
+
+        // evicted paths can be added again.
+        assertEquals(1, pathCache.addPaths(tail.getId(),
+            new ArrayList<>(Collections.singletonList(buildPath(2)))));
+    }
+
+    @Test
+    @DisplayName("Shared paths are imported with delays of the importing scenario")
+    void testImportSharedPaths() {
+        ArrayList<Tail> tails = new ArrayList<>(Collections.singletonList(tail));
+        SharedPathPool sharedPathPool = new SharedPathPool();
+        sharedPathPool.publish(1, new ArrayList<>(Arrays.asList(buildPath(2, 3),
+            buildPath(1, 3))));
+        sharedPathPool.publish(0, new ArrayList<>(Arrays.asList(buildPath(0, 1),
+            buildPath(1, 2))));
+        assertEquals(0, pathCache.importSharedPaths(sharedPathPool, tails, new int[4], 2));
+        sharedPathPool.commit();
+
+        // legs[i] arrives 15 minutes before legs[i + 1] departs and needs 30 minutes to turn.
+        int[] primaryDelays = {0, 20, 0, 0};
+        assertEquals(2, pathCache.importSharedPaths(sharedPathPool, tails, primaryDelays, 2));
+        ArrayList<Path> cachedPaths = pathCache.getCachedPaths().get(tail.getId());
+        assertEquals(3, cachedPaths.size());
+        assertEquals(Arrays.asList(0, 35), cachedPaths.get(1).getPropagatedDelays());
+
+        // remaining paths are imported by the next call.
+        assertEquals(1, pathCache.importSharedPaths(sharedPathPool, tails, primaryDelays, 2));
+        assertEquals(0, pathCache.importSharedPaths(sharedPathPool, tails, primaryDelays, 2));
+    }
+
+    @Test
+    @DisplayName("Paths of enumerated tails are never evicted and no shared paths are imported")
+    void testEnumeratedPaths() {
+        ArrayList<Tail> tails = new ArrayList<>(Collections.singletonList(tail));
+        HashMap<Integer, ArrayList<Path>> enumeratedPaths = new HashMap<>();
+        enumeratedPaths.put(tail.getId(), new ArrayList<>(Arrays.asList(buildPath(0, 1),
+            buildPath(2), buildPath(2, 3))));
+        assertFalse(pathCache.hasEnumeratedPaths());
+        assertEquals(2, pathCache.addEnumeratedPaths(enumeratedPaths));
+        assertTrue(pathCache.hasEnumeratedPaths());
+        assertTrue(pathCache.isEnumerated(tail.getId()));
+
+        pathCache.updateAges(tails, new double[][]{{1.0, 0.0, 0.0}});
+        assertEquals(0, pathCache.evictPaths(tails, 1)[0].length);
+
+        SharedPathPool sharedPathPool = new SharedPathPool();
+        sharedPathPool.publish(0, new ArrayList<>(Collections.singletonList(buildPath(3))));
+        sharedPathPool.commit();
+        assertEquals(0, pathCache.importSharedPaths(sharedPathPool, tails, new int[4], 2));
+        assertEquals(3, pathCache.getCachedPaths().get(tail.getId()).size());
+    }
+}
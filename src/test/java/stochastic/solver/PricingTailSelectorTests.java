@@ -0,0 +1,35 @@
+package stochastic.solver;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PricingTailSelectorTests {
+    @Test
+    @DisplayName("productive tails should be priced first, then tails with moving duals")
+    void testPriority() {
+        // tails[3] is enumerated and never selected.
+        PricingTailSelector selector = new PricingTailSelector(4, new int[]{0, 1, 2}, 0.5);
+        assertTrue(selector.isPartial());
+        double[] tailDuals = {10.0, 20.0, 30.0, 40.0};
+        assertArrayEquals(new boolean[]{true, true, false, false}, selector.selectTails(tailDuals));
+        selector.update(null, tailDuals, new int[]{0, 3, 0, 0});
+
+        // tails[1] produced columns, tails[2] has the largest dual movement.
+        tailDuals = new double[]{11.0, 20.0, 35.0, 40.0};
+        assertArrayEquals(new boolean[]{false, true, true, false}, selector.selectTails(tailDuals));
+        selector.update(new boolean[]{false, true, true, false}, tailDuals, new int[4]);
+
+        // tails[1] produced columns most recently, the dual of tails[0] moved since it was priced.
+        assertArrayEquals(new boolean[]{true, true, false, false}, selector.selectTails(tailDuals));
+    }
+
+    @Test
+    @DisplayName("a subset of all candidates should not be partial")
+    void testFullSubset() {
+        assertFalse(new PricingTailSelector(3, new int[]{0, 2}, 0.6).isPartial());
+    }
+}